@@ -0,0 +1,99 @@
+package org.nardhar.vertx.processor;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Writes the index of the concrete Model and Controller classes of the compilation, so the RepositoryVerticle
+ * and the WebVerticle find them without a configuration list and without scanning the classpath
+ * The indexes are META-INF/services/org.nardhar.vertx.repository.Model and META-INF/services/org.nardhar.vertx.web.Controller,
+ * with one binary class name per line in source order
+ */
+@SupportedAnnotationTypes("*")
+public class IndexProcessor extends AbstractProcessor {
+
+    private static final String[] INDEXED = {"org.nardhar.vertx.repository.Model", "org.nardhar.vertx.web.Controller"};
+
+    private final Map<String, Set<String>> indexes = new LinkedHashMap<>();
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        if (roundEnv.processingOver()) {
+            indexes.forEach(this::write);
+            return false;
+        }
+        for (String indexed : INDEXED) {
+            TypeElement supertype = processingEnv.getElementUtils().getTypeElement(indexed);
+            if (supertype != null) {
+                ElementFilter.typesIn(roundEnv.getRootElements()).forEach((type) -> collect(type, supertype, indexed));
+            }
+        }
+        return false;
+    }
+
+    private void collect(TypeElement type, TypeElement supertype, String indexed) {
+        Types typeUtils = processingEnv.getTypeUtils();
+        if (type.getKind() == ElementKind.CLASS
+            && !type.getModifiers().contains(Modifier.ABSTRACT)
+            && instantiable(type)
+            && typeUtils.isAssignable(typeUtils.erasure(type.asType()), typeUtils.erasure(supertype.asType()))) {
+            indexes.computeIfAbsent(indexed, (key) -> new LinkedHashSet<>())
+                .add(processingEnv.getElementUtils().getBinaryName(type).toString());
+        }
+        ElementFilter.typesIn(type.getEnclosedElements()).forEach((nested) -> collect(nested, supertype, indexed));
+    }
+
+    /**
+     * @return If Class.newInstance can create the class from any package
+     */
+    private boolean instantiable(TypeElement type) {
+        for (Element current = type; current.getKind() != ElementKind.PACKAGE; current = current.getEnclosingElement()) {
+            if (!current.getModifiers().contains(Modifier.PUBLIC)) {
+                return false;
+            }
+            if (current.getEnclosingElement().getKind() != ElementKind.PACKAGE && !current.getModifiers().contains(Modifier.STATIC)) {
+                return false;
+            }
+        }
+        return ElementFilter.constructorsIn(type.getEnclosedElements()).stream()
+            .anyMatch((constructor) -> constructor.getParameters().isEmpty() && constructor.getModifiers().contains(Modifier.PUBLIC));
+    }
+
+    private void write(String indexed, Set<String> classes) {
+        try {
+            FileObject file = processingEnv.getFiler()
+                .createResource(StandardLocation.CLASS_OUTPUT, "", "META-INF/services/" + indexed);
+            try (Writer writer = file.openWriter()) {
+                for (String clazz : classes) {
+                    writer.write(clazz);
+                    writer.write("\n");
+                }
+            }
+        } catch (IOException ex) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Could not write the index of " + indexed + ": " + ex);
+        }
+    }
+
+}
@@ -0,0 +1,673 @@
+package org.nardhar.vertx.processor;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.ExecutableType;
+import javax.lang.model.type.PrimitiveType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.type.WildcardType;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardLocation;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Generates a JsonMapper for every concrete Model class of the compilation, so converting models to and from JsonObject
+ * doesn't need reflection, and lists them in META-INF/services/org.nardhar.vertx.converter.JsonMapper
+ * The generated code follows the default rules of Jackson (bean properties, @JsonProperty and @JsonIgnore, and the
+ * coercion of scalars such as "10" to an int), classes using any other Jackson annotation are skipped and keep using Jackson
+ */
+@SupportedAnnotationTypes("*")
+public class ModelProcessor extends AbstractProcessor {
+
+    private static final String MODEL = "org.nardhar.vertx.repository.Model";
+    private static final String MAPPER = "org.nardhar.vertx.converter.JsonMapper";
+    private static final String JACKSON = "com.fasterxml.jackson.";
+    private static final String JSON_PROPERTY = "com.fasterxml.jackson.annotation.JsonProperty";
+    private static final String JSON_IGNORE = "com.fasterxml.jackson.annotation.JsonIgnore";
+
+    // boxed types converted directly, with the JsonMappers reader of each one, they coerce other values as Jackson does
+    private static final Map<String, String> SIMPLE = new LinkedHashMap<>();
+
+    static {
+        SIMPLE.put("java.lang.String", "asString");
+        SIMPLE.put("java.lang.Boolean", "asBoolean");
+        SIMPLE.put("java.lang.Integer", "asInteger");
+        SIMPLE.put("java.lang.Long", "asLong");
+        SIMPLE.put("java.lang.Double", "asDouble");
+        SIMPLE.put("java.lang.Float", "asFloat");
+    }
+
+    private final Set<String> mappers = new TreeSet<>();
+    private final Set<String> processed = new HashSet<>();
+
+    /**
+     * A json property of a model, read with a getter or a field and written with a setter or a field
+     */
+    private static final class Property {
+        private String name;
+        private String getter;
+        private TypeMirror readType;
+        private String setter;
+        private TypeMirror writeType;
+    }
+
+    /**
+     * Thrown when a model can't be mapped without Jackson, the message is the reason
+     */
+    private static final class Unsupported extends Exception {
+        private Unsupported(String message) {
+            super(message, null, false, false);
+        }
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        if (roundEnv.processingOver()) {
+            writeServices();
+            return false;
+        }
+        TypeElement model = processingEnv.getElementUtils().getTypeElement(MODEL);
+        if (model == null) {
+            // the runtime is not in the classpath of this compilation
+            return false;
+        }
+        List<TypeElement> types = new ArrayList<>();
+        ElementFilter.typesIn(roundEnv.getRootElements()).forEach((type) -> collectTypes(type, types));
+        for (TypeElement type : types) {
+            if (isModel(type, model) && processed.add(type.getQualifiedName().toString())) {
+                try {
+                    generate(type);
+                } catch (Unsupported ex) {
+                    processingEnv.getMessager().printMessage(
+                        Diagnostic.Kind.NOTE,
+                        "No JsonMapper generated for " + type.getQualifiedName() + ", it will use Jackson: " + ex.getMessage(),
+                        type
+                    );
+                }
+            }
+        }
+        return false;
+    }
+
+    private void collectTypes(TypeElement type, List<TypeElement> types) {
+        types.add(type);
+        ElementFilter.typesIn(type.getEnclosedElements()).forEach((nested) -> collectTypes(nested, types));
+    }
+
+    private boolean isModel(TypeElement type, TypeElement model) {
+        Types typeUtils = processingEnv.getTypeUtils();
+        return type.getKind() == ElementKind.CLASS
+            && !type.getModifiers().contains(Modifier.ABSTRACT)
+            && typeUtils.isAssignable(typeUtils.erasure(type.asType()), typeUtils.erasure(model.asType()));
+    }
+
+    private void generate(TypeElement type) throws Unsupported {
+        if (!type.getTypeParameters().isEmpty()) {
+            throw new Unsupported("it has type parameters");
+        }
+        for (Element current = type; current.getKind() != ElementKind.PACKAGE; current = current.getEnclosingElement()) {
+            if (current.getModifiers().contains(Modifier.PRIVATE)) {
+                throw new Unsupported("it is not accessible from its package");
+            }
+            if (current.getEnclosingElement().getKind() != ElementKind.PACKAGE && !current.getModifiers().contains(Modifier.STATIC)) {
+                throw new Unsupported("it is an inner class");
+            }
+        }
+        boolean constructor = ElementFilter.constructorsIn(type.getEnclosedElements()).stream()
+            .anyMatch((method) -> method.getParameters().isEmpty() && !method.getModifiers().contains(Modifier.PRIVATE));
+        if (!constructor) {
+            throw new Unsupported("it has no constructor without parameters");
+        }
+        for (TypeElement current : hierarchy(type)) {
+            checkAnnotations(current);
+        }
+
+        Collection<Property> properties = properties(type);
+        String packageName = processingEnv.getElementUtils().getPackageOf(type).getQualifiedName().toString();
+        String simpleName = mapperName(type);
+        String qualifiedName = packageName.isEmpty() ? simpleName : packageName + "." + simpleName;
+
+        try {
+            JavaFileObject file = processingEnv.getFiler().createSourceFile(qualifiedName, type);
+            try (Writer writer = file.openWriter()) {
+                writer.write(source(type, packageName, simpleName, properties));
+            }
+        } catch (IOException ex) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Could not write " + qualifiedName + ": " + ex, type);
+            return;
+        }
+        mappers.add(qualifiedName);
+    }
+
+    private String mapperName(TypeElement type) {
+        StringBuilder name = new StringBuilder(type.getSimpleName());
+        for (Element current = type.getEnclosingElement(); current.getKind() != ElementKind.PACKAGE; current = current.getEnclosingElement()) {
+            name.insert(0, current.getSimpleName() + "_");
+        }
+        return name.append("JsonMapper").toString();
+    }
+
+    /**
+     * @return The class and its superclasses, from the topmost one, without Object
+     */
+    private List<TypeElement> hierarchy(TypeElement type) {
+        List<TypeElement> classes = new ArrayList<>();
+        for (TypeElement current = type; current != null; ) {
+            if (current.getQualifiedName().contentEquals("java.lang.Object")) {
+                break;
+            }
+            classes.add(0, current);
+            TypeMirror superclass = current.getSuperclass();
+            current = superclass.getKind() == TypeKind.DECLARED ? (TypeElement) ((DeclaredType) superclass).asElement() : null;
+        }
+        return classes;
+    }
+
+    private void checkAnnotations(TypeElement type) throws Unsupported {
+        List<Element> elements = new ArrayList<>();
+        elements.add(type);
+        elements.addAll(ElementFilter.fieldsIn(type.getEnclosedElements()));
+        elements.addAll(ElementFilter.methodsIn(type.getEnclosedElements()));
+        elements.addAll(ElementFilter.constructorsIn(type.getEnclosedElements()));
+        for (Element element : elements) {
+            for (AnnotationMirror annotation : element.getAnnotationMirrors()) {
+                String name = annotationName(annotation);
+                if (!name.startsWith(JACKSON)) {
+                    continue;
+                }
+                if (name.equals(JSON_IGNORE)
+                    || (name.equals(JSON_PROPERTY) && annotation.getElementValues().keySet().stream()
+                        .allMatch((key) -> key.getSimpleName().contentEquals("value")))) {
+                    continue;
+                }
+                throw new Unsupported(element.getSimpleName() + " has the annotation " + annotation);
+            }
+        }
+    }
+
+    private Collection<Property> properties(TypeElement type) throws Unsupported {
+        Map<String, Property> properties = new LinkedHashMap<>();
+        Set<String> accessors = new HashSet<>();
+        Set<String> ignored = new HashSet<>();
+        DeclaredType declared = (DeclaredType) type.asType();
+        Types typeUtils = processingEnv.getTypeUtils();
+        List<ExecutableElement> methods = ElementFilter.methodsIn(processingEnv.getElementUtils().getAllMembers(type));
+
+        // fields, with their accessors
+        for (TypeElement current : hierarchy(type)) {
+            for (VariableElement field : ElementFilter.fieldsIn(current.getEnclosedElements())) {
+                Set<Modifier> modifiers = field.getModifiers();
+                if (modifiers.contains(Modifier.STATIC) || modifiers.contains(Modifier.TRANSIENT)) {
+                    continue;
+                }
+                TypeMirror fieldType = typeUtils.asMemberOf(declared, field);
+                String fieldName = field.getSimpleName().toString();
+                boolean primitiveBoolean = fieldType.getKind() == TypeKind.BOOLEAN;
+                // lombok drops the is prefix of boolean fields in the names of the accessors
+                String base = primitiveBoolean && fieldName.matches("is[A-Z].*") ? fieldName.substring(2) : capitalize(fieldName);
+
+                ExecutableElement getter = method(methods, type, (primitiveBoolean ? "is" : "get") + base, 0);
+                ExecutableElement setter = method(methods, type, "set" + base, 1);
+                boolean lombokGetter = getter == null && lombok(current, field, "lombok.Getter", "lombok.Data", "lombok.Value");
+                boolean lombokSetter = setter == null && lombok(current, field, "lombok.Setter", "lombok.Data");
+                boolean direct = modifiers.contains(Modifier.PUBLIC) && accessible(field, type);
+
+                Property property = new Property();
+                if (getter != null) {
+                    property.getter = getter.getSimpleName() + "()";
+                    property.readType = ((ExecutableType) typeUtils.asMemberOf(declared, getter)).getReturnType();
+                    accessors.add(getter.getSimpleName().toString());
+                } else if (lombokGetter) {
+                    property.getter = (primitiveBoolean ? "is" : "get") + base + "()";
+                    property.readType = fieldType;
+                } else if (direct) {
+                    property.getter = fieldName;
+                    property.readType = fieldType;
+                }
+                if (setter != null) {
+                    property.setter = setter.getSimpleName().toString();
+                    property.writeType = ((ExecutableType) typeUtils.asMemberOf(declared, setter)).getParameterTypes().get(0);
+                    accessors.add(setter.getSimpleName().toString());
+                } else if (lombokSetter) {
+                    property.setter = "set" + base;
+                    property.writeType = fieldType;
+                } else if (direct && !modifiers.contains(Modifier.FINAL)) {
+                    property.setter = fieldName + " =";
+                    property.writeType = fieldType;
+                }
+                if (property.getter == null && property.setter == null) {
+                    if (annotation(field, JSON_PROPERTY) != null) {
+                        throw new Unsupported("the field " + fieldName + " has no accessors");
+                    }
+                    continue;
+                }
+
+                String explicit = propertyName(field);
+                if (explicit == null) {
+                    explicit = propertyName(getter);
+                }
+                if (explicit == null) {
+                    explicit = propertyName(setter);
+                }
+                if (explicit != null) {
+                    property.name = explicit;
+                } else if (getter != null || lombokGetter) {
+                    property.name = mangle(base);
+                } else if (setter != null || lombokSetter) {
+                    property.name = mangle(base);
+                } else {
+                    property.name = fieldName;
+                }
+                if (ignore(field) || ignore(getter) || ignore(setter)) {
+                    ignored.add(property.name);
+                    continue;
+                }
+                properties.put(property.name, property);
+            }
+        }
+
+        // getters and setters without a field
+        for (ExecutableElement method : methods) {
+            String name = method.getSimpleName().toString();
+            if (method.getModifiers().contains(Modifier.STATIC)
+                || !method.getModifiers().contains(Modifier.PUBLIC)
+                || accessors.contains(name)
+                || ((TypeElement) method.getEnclosingElement()).getQualifiedName().contentEquals("java.lang.Object")) {
+                continue;
+            }
+            ExecutableType methodType = (ExecutableType) typeUtils.asMemberOf(declared, method);
+            String base;
+            boolean getter;
+            if (name.length() > 3 && name.startsWith("get") && method.getParameters().isEmpty()
+                && methodType.getReturnType().getKind() != TypeKind.VOID) {
+                base = name.substring(3);
+                getter = true;
+            } else if (name.length() > 2 && name.startsWith("is") && method.getParameters().isEmpty()
+                && isBoolean(methodType.getReturnType())) {
+                base = name.substring(2);
+                getter = true;
+            } else if (name.length() > 3 && name.startsWith("set") && method.getParameters().size() == 1) {
+                base = name.substring(3);
+                getter = false;
+            } else {
+                continue;
+            }
+            String propertyName = propertyName(method);
+            if (propertyName == null) {
+                propertyName = mangle(base);
+            }
+            if (ignore(method)) {
+                ignored.add(propertyName);
+                continue;
+            }
+            Property property = properties.computeIfAbsent(propertyName, (key) -> new Property());
+            property.name = propertyName;
+            if (getter && property.getter == null) {
+                property.getter = name + "()";
+                property.readType = methodType.getReturnType();
+            } else if (!getter && property.setter == null) {
+                property.setter = name;
+                property.writeType = methodType.getParameterTypes().get(0);
+            }
+        }
+
+        ignored.forEach(properties::remove);
+        for (Property property : properties.values()) {
+            if ((property.readType != null && hasTypeVariables(property.readType))
+                || (property.writeType != null && hasTypeVariables(property.writeType))) {
+                throw new Unsupported("the type of the property " + property.name + " is not known at compile time");
+            }
+        }
+        return properties.values();
+    }
+
+    private ExecutableElement method(List<ExecutableElement> methods, TypeElement type, String name, int parameters) {
+        for (ExecutableElement method : methods) {
+            if (method.getSimpleName().contentEquals(name)
+                && method.getParameters().size() == parameters
+                && !method.getModifiers().contains(Modifier.STATIC)
+                && accessible(method, type)) {
+                return method;
+            }
+        }
+        return null;
+    }
+
+    private boolean accessible(Element element, TypeElement type) {
+        Set<Modifier> modifiers = element.getModifiers();
+        if (modifiers.contains(Modifier.PUBLIC)) {
+            return true;
+        }
+        if (modifiers.contains(Modifier.PRIVATE)) {
+            return false;
+        }
+        Elements elementUtils = processingEnv.getElementUtils();
+        PackageElement owner = elementUtils.getPackageOf(element);
+        return owner.equals(elementUtils.getPackageOf(type));
+    }
+
+    private boolean lombok(TypeElement type, Element field, String... annotations) {
+        List<String> names = Arrays.asList(annotations);
+        return type.getAnnotationMirrors().stream().anyMatch((annotation) -> names.contains(annotationName(annotation)))
+            || field.getAnnotationMirrors().stream().anyMatch((annotation) -> names.contains(annotationName(annotation)));
+    }
+
+    private String propertyName(Element element) {
+        AnnotationMirror annotation = element == null ? null : annotation(element, JSON_PROPERTY);
+        if (annotation == null) {
+            return null;
+        }
+        for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> value : annotation.getElementValues().entrySet()) {
+            String name = String.valueOf(value.getValue().getValue());
+            return name.isEmpty() ? null : name;
+        }
+        return null;
+    }
+
+    private boolean ignore(Element element) {
+        AnnotationMirror annotation = element == null ? null : annotation(element, JSON_IGNORE);
+        if (annotation == null) {
+            return false;
+        }
+        for (AnnotationValue value : annotation.getElementValues().values()) {
+            return Boolean.TRUE.equals(value.getValue());
+        }
+        return true;
+    }
+
+    private AnnotationMirror annotation(Element element, String name) {
+        for (AnnotationMirror annotation : element.getAnnotationMirrors()) {
+            if (annotationName(annotation).equals(name)) {
+                return annotation;
+            }
+        }
+        return null;
+    }
+
+    private String annotationName(AnnotationMirror annotation) {
+        return ((TypeElement) annotation.getAnnotationType().asElement()).getQualifiedName().toString();
+    }
+
+    private boolean isBoolean(TypeMirror type) {
+        return type.getKind() == TypeKind.BOOLEAN || type.toString().equals("java.lang.Boolean");
+    }
+
+    private boolean hasTypeVariables(TypeMirror type) {
+        switch (type.getKind()) {
+            case TYPEVAR:
+            case ERROR:
+                return true;
+            case ARRAY:
+                return hasTypeVariables(((ArrayType) type).getComponentType());
+            case WILDCARD:
+                WildcardType wildcard = (WildcardType) type;
+                return (wildcard.getExtendsBound() != null && hasTypeVariables(wildcard.getExtendsBound()))
+                    || (wildcard.getSuperBound() != null && hasTypeVariables(wildcard.getSuperBound()));
+            case DECLARED:
+                for (TypeMirror argument : ((DeclaredType) type).getTypeArguments()) {
+                    if (hasTypeVariables(argument)) {
+                        return true;
+                    }
+                }
+                return false;
+            default:
+                return false;
+        }
+    }
+
+    private static String capitalize(String name) {
+        return Character.toUpperCase(name.charAt(0)) + name.substring(1);
+    }
+
+    /**
+     * Jackson's naming of bean properties: the leading upper case letters of the accessor are lower cased, getURL is url
+     */
+    private static String mangle(String base) {
+        StringBuilder name = new StringBuilder(base);
+        for (int i = 0; i < name.length(); i++) {
+            char upper = name.charAt(i);
+            char lower = Character.toLowerCase(upper);
+            if (upper == lower) {
+                break;
+            }
+            name.setCharAt(i, lower);
+        }
+        return name.toString();
+    }
+
+    private String source(TypeElement type, String packageName, String simpleName, Collection<Property> properties) {
+        String model = type.getQualifiedName().toString();
+        Types typeUtils = processingEnv.getTypeUtils();
+        StringBuilder source = new StringBuilder();
+        StringBuilder constants = new StringBuilder();
+        StringBuilder toJson = new StringBuilder();
+        StringBuilder fromJson = new StringBuilder();
+        List<String> fields = new ArrayList<>();
+        // the json name of the property of getId and setId of Model
+        String idField = "\"id\"";
+        int references = 0;
+
+        for (Property property : properties) {
+            String key = processingEnv.getElementUtils().getConstantExpression(property.name);
+            if ("getId()".equals(property.getter) || "setId".equals(property.setter)) {
+                idField = key;
+            }
+            if (property.getter != null) {
+                String value = "object." + property.getter;
+                String simple = simpleType(property.readType);
+                if (simple != null) {
+                    toJson.append("        json.put(").append(key).append(", ").append(value).append(");\n");
+                } else if (isEnum(property.readType)) {
+                    toJson.append("        json.put(").append(key).append(", ").append(value).append(" == null ? null : ")
+                        .append(value).append(".name());\n");
+                } else if (simpleList(property.readType) != null) {
+                    toJson.append("        json.put(").append(key).append(", JsonMappers.toJsonArray(").append(value).append("));\n");
+                } else {
+                    toJson.append("        json.put(").append(key).append(", JsonMappers.toJsonValue(").append(value).append("));\n");
+                }
+            }
+            if (property.setter != null) {
+                fields.add(key);
+                String assign = "            object." + property.setter + (property.setter.endsWith("=") ? " " : "(");
+                String end = property.setter.endsWith("=") ? ";\n" : ");\n";
+                TypeMirror writeType = property.writeType;
+                String simple = simpleType(writeType);
+                // null leaves primitives with their default value, as in jackson
+                fromJson.append(writeType.getKind().isPrimitive() ? "        if (json.getValue(" : "        if (json.containsKey(")
+                    .append(key).append(writeType.getKind().isPrimitive() ? ") != null) {\n" : ")) {\n");
+                if (simple != null) {
+                    fromJson.append(assign).append("JsonMappers.").append(SIMPLE.get(simple)).append("(json.getValue(")
+                        .append(key).append("))").append(end);
+                } else if (isEnum(writeType)) {
+                    String name = typeUtils.erasure(writeType).toString();
+                    fromJson.append("            Object value = json.getValue(").append(key).append(");\n")
+                        .append(assign).append("value instanceof String ? ").append(name).append(".valueOf((String) value) : ")
+                        .append("JsonMappers.fromJsonValue(value, ").append(name).append(".class)").append(end);
+                } else if (simpleList(writeType) != null) {
+                    fromJson.append(assign).append("JsonMappers.toList(json.getJsonArray(").append(key).append("), ")
+                        .append(simpleList(writeType)).append(".class)").append(end);
+                } else {
+                    String boxed = writeType.getKind().isPrimitive()
+                        ? typeUtils.boxedClass((PrimitiveType) writeType).getQualifiedName().toString()
+                        : writeType.toString();
+                    String constant = "TYPE_" + references++;
+                    constants.append("    private static final TypeReference<").append(boxed).append("> ").append(constant)
+                        .append(" = new TypeReference<").append(boxed).append(">() {};\n");
+                    fromJson.append(assign).append("JsonMappers.fromJsonValue(json.getValue(").append(key).append("), ")
+                        .append(constant).append(")").append(end);
+                }
+                fromJson.append("        }\n");
+            }
+        }
+
+        if (!packageName.isEmpty()) {
+            source.append("package ").append(packageName).append(";\n\n");
+        }
+        source.append("import com.fasterxml.jackson.core.type.TypeReference;\n")
+            .append("import io.vertx.core.json.JsonObject;\n")
+            .append("import ").append(MAPPER).append(";\n")
+            .append("import org.nardhar.vertx.converter.JsonMappers;\n\n")
+            .append("import java.util.Arrays;\n")
+            .append("import java.util.Collections;\n")
+            .append("import java.util.List;\n\n")
+            .append("/**\n * Generated by ").append(ModelProcessor.class.getName()).append(" from ").append(model)
+            .append(", do not edit\n */\n")
+            .append("public final class ").append(simpleName).append(" implements JsonMapper<").append(model).append("> {\n\n")
+            .append("    private static final List<String> FIELDS = Collections.unmodifiableList(Arrays.asList(")
+            .append(String.join(", ", fields)).append("));\n")
+            .append(constants)
+            .append("\n")
+            .append("    @Override\n")
+            .append("    public Class<").append(model).append("> type() {\n")
+            .append("        return ").append(model).append(".class;\n")
+            .append("    }\n\n")
+            .append("    @Override\n")
+            .append("    public JsonObject toJson(").append(model).append(" object) {\n")
+            .append("        JsonObject json = new JsonObject();\n")
+            .append(toJson)
+            .append("        return json;\n")
+            .append("    }\n\n")
+            .append("    @Override\n")
+            .append("    public ").append(model).append(" fromJson(JsonObject json) {\n")
+            .append("        ").append(model).append(" object = new ").append(model).append("();\n")
+            .append(fromJson)
+            .append("        return object;\n")
+            .append("    }\n\n")
+            .append("    @Override\n")
+            .append("    public String collection() {\n")
+            .append("        return ").append(collection(type)).append(";\n")
+            .append("    }\n\n")
+            .append("    @Override\n")
+            .append("    public String idField() {\n")
+            .append("        return ").append(idField).append(";\n")
+            .append("    }\n\n")
+            .append("    @Override\n")
+            .append("    public List<String> fields() {\n")
+            .append("        return FIELDS;\n")
+            .append("    }\n\n")
+            .append("}\n");
+        return source.toString();
+    }
+
+    /**
+     * @return The expression of the static collection property of the model, null if it can't be read from its package
+     */
+    private String collection(TypeElement type) {
+        for (VariableElement field : ElementFilter.fieldsIn(type.getEnclosedElements())) {
+            if (!field.getSimpleName().contentEquals("collection")
+                || !field.getModifiers().contains(Modifier.STATIC)
+                || !field.asType().toString().equals("java.lang.String")) {
+                continue;
+            }
+            if (field.getConstantValue() instanceof String) {
+                return processingEnv.getElementUtils().getConstantExpression(field.getConstantValue());
+            }
+            if (!field.getModifiers().contains(Modifier.PRIVATE)) {
+                return type.getQualifiedName() + ".collection";
+            }
+        }
+        return "null";
+    }
+
+    /**
+     * @return The boxed name of a type converted directly, null for other types
+     */
+    private String simpleType(TypeMirror type) {
+        if (type.getKind().isPrimitive()) {
+            if (type.getKind() == TypeKind.SHORT || type.getKind() == TypeKind.BYTE || type.getKind() == TypeKind.CHAR) {
+                return null;
+            }
+            type = processingEnv.getTypeUtils().boxedClass((PrimitiveType) type).asType();
+        }
+        String name = type.toString();
+        return SIMPLE.containsKey(name) ? name : null;
+    }
+
+    /**
+     * @return The element type of a java.util.List of simple values, null for other types
+     */
+    private String simpleList(TypeMirror type) {
+        if (type.getKind() != TypeKind.DECLARED) {
+            return null;
+        }
+        DeclaredType declared = (DeclaredType) type;
+        if (!((TypeElement) declared.asElement()).getQualifiedName().contentEquals("java.util.List")
+            || declared.getTypeArguments().size() != 1) {
+            return null;
+        }
+        String element = declared.getTypeArguments().get(0).toString();
+        return SIMPLE.containsKey(element) ? element : null;
+    }
+
+    private boolean isEnum(TypeMirror type) {
+        if (type.getKind() != TypeKind.DECLARED) {
+            return false;
+        }
+        Element element = ((DeclaredType) type).asElement();
+        if (element.getKind() != ElementKind.ENUM) {
+            return false;
+        }
+        // enums with jackson annotations are left to jackson
+        for (Element constant : element.getEnclosedElements()) {
+            for (AnnotationMirror annotation : constant.getAnnotationMirrors()) {
+                if (annotationName(annotation).startsWith(JACKSON)) {
+                    return false;
+                }
+            }
+        }
+        return element.getAnnotationMirrors().stream().noneMatch((annotation) -> annotationName(annotation).startsWith(JACKSON));
+    }
+
+    private void writeServices() {
+        if (mappers.isEmpty()) {
+            return;
+        }
+        try {
+            FileObject file = processingEnv.getFiler()
+                .createResource(StandardLocation.CLASS_OUTPUT, "", "META-INF/services/" + MAPPER);
+            try (Writer writer = file.openWriter()) {
+                for (String mapper : mappers) {
+                    writer.write(mapper);
+                    writer.write("\n");
+                }
+            }
+        } catch (IOException ex) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Could not write the JsonMapper services: " + ex);
+        }
+    }
+
+}
@@ -0,0 +1,48 @@
+package org.nardhar.vertx.benchmark;
+
+import org.nardhar.vertx.eventbus.FailureReply;
+import org.nardhar.vertx.exception.ApplicationException;
+import org.nardhar.vertx.exception.BusinessException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Creating and encoding the failures every repository error replies with, and the stackless replies that replace them
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ApplicationExceptionBenchmark {
+
+    private final ApplicationException exception = new ApplicationException("Not found", "repository.findOne.notFound");
+    private final ApplicationException exceptionWithArgs = new ApplicationException(
+        "Not found", "repository.findOne.notFound", "book", 42
+    );
+
+    @Benchmark
+    public String encode() {
+        return exception.encode();
+    }
+
+    @Benchmark
+    public String encodeWithArgs() {
+        return exceptionWithArgs.encode();
+    }
+
+    @Benchmark
+    public String createAndEncode() {
+        return new ApplicationException("Not found", "repository.findOne.notFound").encode();
+    }
+
+    @Benchmark
+    public FailureReply createStacklessReply() {
+        return FailureReply.of(404, new BusinessException("Not found", "repository.findOne.notFound"));
+    }
+
+}
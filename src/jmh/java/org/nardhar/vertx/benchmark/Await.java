@@ -0,0 +1,36 @@
+package org.nardhar.vertx.benchmark;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Blocks the benchmark thread until an asynchronous result arrives, benchmarks never run on an event loop
+ */
+final class Await {
+
+    private static final long TIMEOUT = 10;
+
+    private Await() {}
+
+    static <T> T result(Future<T> future) throws Exception {
+        return result((Handler<AsyncResult<T>> handler) -> future.setHandler(handler));
+    }
+
+    static <T> T result(Consumer<Handler<AsyncResult<T>>> call) throws Exception {
+        CompletableFuture<T> completable = new CompletableFuture<>();
+        call.accept((ar) -> {
+            if (ar.succeeded()) {
+                completable.complete(ar.result());
+            } else {
+                completable.completeExceptionally(ar.cause());
+            }
+        });
+        return completable.get(TIMEOUT, TimeUnit.SECONDS);
+    }
+
+}
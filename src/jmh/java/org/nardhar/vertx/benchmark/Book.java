@@ -0,0 +1,92 @@
+package org.nardhar.vertx.benchmark;
+
+import io.vertx.core.json.JsonObject;
+import org.nardhar.vertx.repository.Model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Model used by the benchmarks, with the usual mix of strings, numbers and a nested list
+ */
+public class Book implements Model {
+
+    static final String collection = "book";
+
+    private String id;
+    private String title;
+    private String author;
+    private int year;
+    private List<String> tags;
+
+    public static Book of(int index) {
+        Book book = new Book();
+        book.setId(String.format("5bf0a9a1e7b1a21d4c%06x", index));
+        book.setTitle("Title number " + index);
+        book.setAuthor("Author " + (index % 97));
+        book.setYear(1900 + index % 120);
+        book.setTags(Arrays.asList("fiction", "tag" + (index % 13)));
+        return book;
+    }
+
+    public static List<Book> list(int size) {
+        List<Book> books = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            books.add(of(i));
+        }
+        return books;
+    }
+
+    /**
+     * Returns the book as it is stored in mongo, with _id instead of id
+     * @param index The index of the book
+     * @return The document
+     */
+    public static JsonObject document(int index) {
+        JsonObject document = JsonObject.mapFrom(of(index));
+        document.put("_id", document.remove("id"));
+        return document;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public void setTitle(String title) {
+        this.title = title;
+    }
+
+    public String getAuthor() {
+        return author;
+    }
+
+    public void setAuthor(String author) {
+        this.author = author;
+    }
+
+    public int getYear() {
+        return year;
+    }
+
+    public void setYear(int year) {
+        this.year = year;
+    }
+
+    public List<String> getTags() {
+        return tags;
+    }
+
+    public void setTags(List<String> tags) {
+        this.tags = tags;
+    }
+
+}
@@ -0,0 +1,108 @@
+package org.nardhar.vertx.benchmark;
+
+import io.vertx.core.Vertx;
+import io.vertx.core.eventbus.DeliveryOptions;
+import io.vertx.core.json.JsonObject;
+import org.nardhar.vertx.eventbus.BusSender;
+import org.nardhar.vertx.repository.ModelDeliveryOptions;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Local eventBus round trips through BusSender against a consumer that echoes the body
+ * Run it with the gc profiler for the bytes allocated per send, e.g. ./gradlew jmh -Pinclude=BusSender
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class BusSenderBenchmark {
+
+    private static final String ADDRESS = "benchmark.echo";
+
+    private Vertx vertx;
+    private BusSender sender;
+    private JsonObject query;
+    private Map<String, String> headers;
+
+    @Setup
+    public void setup() throws Exception {
+        vertx = Vertx.vertx();
+        sender = vertx::eventBus;
+        query = new JsonObject().put("_id", Book.of(0).getId());
+        headers = Collections.singletonMap("model", Book.class.getName());
+
+        Await.<Void>result((handler) -> vertx.eventBus()
+            .consumer(ADDRESS, (message) -> message.reply(message.body()))
+            .completionHandler(handler));
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        Await.<Void>result(vertx::close);
+    }
+
+    @Benchmark
+    public Object busGet() throws Exception {
+        return Await.result(sender.busGet(ADDRESS, query));
+    }
+
+    @Benchmark
+    public Object busGetWithHeaders() throws Exception {
+        return Await.result(sender.busGet(ADDRESS, headers, query));
+    }
+
+    /**
+     * A repository findOne send with the cached DeliveryTemplate of the model
+     */
+    @Benchmark
+    public Object busSendTemplate() throws Exception {
+        return Await.result(sender.busSend(ADDRESS, ModelDeliveryOptions.of(Book.class).getModelReply(), query));
+    }
+
+    /**
+     * The same send with its DeliveryOptions built for it, as every send did before DeliveryTemplate
+     */
+    @Benchmark
+    public Object busSendNewOptions() throws Exception {
+        return Await.result(sender.busSend(ADDRESS, newFindOneOptions(), query));
+    }
+
+    /**
+     * Only the preparation of a repository findOne send, the options and the encoded body, without sending it
+     */
+    @Benchmark
+    public Object prepareFindOne() {
+        DeliveryOptions deliveryOptions = ModelDeliveryOptions.of(Book.class).getModelReply();
+        return deliveryOptions != null ? sender.busEncode(query) : null;
+    }
+
+    /**
+     * The same preparation building the options, the baseline of prepareFindOne
+     */
+    @Benchmark
+    public Object prepareFindOneNewOptions() {
+        DeliveryOptions deliveryOptions = newFindOneOptions();
+        return deliveryOptions != null ? sender.busEncode(query) : null;
+    }
+
+    private DeliveryOptions newFindOneOptions() {
+        Map<String, String> findHeaders = new HashMap<>();
+        findHeaders.put("model", Book.class.getName());
+        findHeaders.put("reply", "model");
+        DeliveryOptions deliveryOptions = new DeliveryOptions();
+        findHeaders.forEach(deliveryOptions::addHeader);
+        return deliveryOptions;
+    }
+
+}
@@ -0,0 +1,94 @@
+package org.nardhar.vertx.benchmark;
+
+import io.vertx.core.DeploymentOptions;
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpClient;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import org.nardhar.vertx.converter.Converter;
+import org.nardhar.vertx.web.AbstractController;
+import org.nardhar.vertx.web.WebVerticle;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * HTTP round trips to a WebVerticle, measuring how Controller.action encodes the responses
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ControllerBenchmark {
+
+    private static final int PORT = 18089;
+
+    // the controllers are created by the WebVerticle, so they read their data from here
+    private static volatile List<Book> books;
+
+    public static class BookController extends AbstractController {
+
+        @Override
+        public void init() {
+            list("/books", (ctx) -> Converter.toFutureJsonArray(books));
+            get("/books/first", (ctx) -> Converter.toFutureJsonObject(books.get(0)));
+        }
+
+    }
+
+    @Param({"1", "100", "1000"})
+    private int size;
+
+    private Vertx vertx;
+    private HttpClient client;
+
+    @Setup
+    public void setup() throws Exception {
+        books = Book.list(size);
+        vertx = Vertx.vertx();
+        client = vertx.createHttpClient();
+
+        Await.<String>result((handler) -> vertx.deployVerticle(
+            WebVerticle.class.getName(),
+            new DeploymentOptions().setConfig(new JsonObject()
+                .put("port", PORT)
+                .put("controllers", new JsonArray().add(BookController.class.getName()))
+            ),
+            handler
+        ));
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        client.close();
+        Await.<Void>result(vertx::close);
+    }
+
+    @Benchmark
+    public Buffer list() throws Exception {
+        return get("/books");
+    }
+
+    @Benchmark
+    public Buffer get() throws Exception {
+        return get("/books/first");
+    }
+
+    private Buffer get(String path) throws Exception {
+        return Await.<Buffer>result((handler) -> client.getNow(PORT, "localhost", path, (response) -> response
+            .exceptionHandler((ex) -> handler.handle(Future.failedFuture(ex)))
+            .bodyHandler((body) -> handler.handle(Future.succeededFuture(body)))
+        ));
+    }
+
+}
@@ -0,0 +1,48 @@
+package org.nardhar.vertx.benchmark;
+
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import org.nardhar.vertx.converter.Converter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Converting models to json, as every controller does before responding
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ConverterBenchmark {
+
+    @Param({"1", "100", "10000"})
+    private int size;
+
+    private List<Book> books;
+    private Book book;
+
+    @Setup
+    public void setup() {
+        books = Book.list(size);
+        book = Book.of(size);
+    }
+
+    @Benchmark
+    public JsonArray toJsonArray() {
+        return Converter.toJsonArray(books);
+    }
+
+    @Benchmark
+    public JsonObject toJsonObject() {
+        return Converter.toJsonObject(book);
+    }
+
+}
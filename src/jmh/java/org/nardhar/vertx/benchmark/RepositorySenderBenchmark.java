@@ -0,0 +1,87 @@
+package org.nardhar.vertx.benchmark;
+
+import io.vertx.core.DeploymentOptions;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import org.nardhar.vertx.repository.MemoryBackend;
+import org.nardhar.vertx.repository.RepositorySender;
+import org.nardhar.vertx.repository.RepositoryVerticle;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * RepositorySender against a RepositoryVerticle with the MemoryBackend as stand-in of mongo,
+ * plus the mapping of json results to models that remote replies go through
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class RepositorySenderBenchmark {
+
+    @Param({"10", "1000"})
+    private int size;
+
+    private Vertx vertx;
+    private RepositorySender sender;
+    private JsonObject byId;
+    private JsonArray documents;
+
+    @Setup
+    public void setup() throws Exception {
+        vertx = Vertx.vertx();
+        sender = vertx::eventBus;
+        byId = new JsonObject().put("_id", Book.of(size / 2).getId());
+        documents = new JsonArray(IntStream.range(0, size)
+            .mapToObj((index) -> JsonObject.mapFrom(Book.of(index)))
+            .collect(Collectors.toList()));
+
+        MemoryBackend backend = MemoryBackend.shared(vertx, "benchmark");
+        for (int i = 0; i < size; i++) {
+            backend.insert(Book.collection, Book.document(i), (ar) -> {});
+        }
+
+        Await.<String>result((handler) -> vertx.deployVerticle(
+            RepositoryVerticle.class.getName(),
+            new DeploymentOptions().setConfig(new JsonObject()
+                .put("models", new JsonArray().add(Book.class.getName()))
+                .put("backend", "memory")
+                .put("memory", new JsonObject().put("name", "benchmark"))
+            ),
+            handler
+        ));
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        Await.<Void>result(vertx::close);
+    }
+
+    @Benchmark
+    public List<Book> dbFindAll() throws Exception {
+        return Await.result(sender.dbFindAll(Book.class, new JsonObject()));
+    }
+
+    @Benchmark
+    public Book dbFindOne() throws Exception {
+        return Await.result(sender.dbFindOne(Book.class, byId));
+    }
+
+    @Benchmark
+    public List<Book> dbToModelList() {
+        return sender.dbToModelList(Book.class, documents);
+    }
+
+}
@@ -12,8 +12,15 @@ public final class Converter {
 
     private Converter() {}
 
+    @SuppressWarnings("unchecked")
     public static <T> JsonObject toJsonObject(T object) {
-        return JsonObject.mapFrom(object);
+        JsonMapper<T> mapper = object == null ? null : JsonMappers.get((Class<T>) object.getClass());
+        return mapper != null ? mapper.toJson(object) : JsonObject.mapFrom(object);
+    }
+
+    public static <T> T fromJsonObject(JsonObject json, Class<T> clazz) {
+        JsonMapper<T> mapper = JsonMappers.get(clazz);
+        return mapper != null ? mapper.fromJson(json) : json.mapTo(clazz);
     }
 
     public static <T> Future<JsonObject> toFutureJsonObject(T object) {
@@ -0,0 +1,49 @@
+package org.nardhar.vertx.converter;
+
+import io.vertx.core.json.JsonObject;
+
+import java.util.List;
+
+/**
+ * Reflection free conversion between a class and JsonObject, with the metadata of the class when it's a Model
+ * The implementations are generated at compile time by the processor module and found by JsonMappers
+ * @param <T> The mapped class
+ */
+public interface JsonMapper<T> {
+
+    Class<T> type();
+
+    /**
+     * Converts an object as JsonObject.mapFrom would
+     * @param object The object, not null
+     * @return The json
+     */
+    JsonObject toJson(T object);
+
+    /**
+     * Converts a json as JsonObject.mapTo would, keys that are not present leave the default value of the property
+     * @param json The json, not null
+     * @return The object
+     */
+    T fromJson(JsonObject json);
+
+    /**
+     * @return The value of the static collection property of the model, null if it's not known at compile time
+     */
+    default String collection() {
+        return null;
+    }
+
+    /**
+     * @return The json name of the id property
+     */
+    default String idField() {
+        return "id";
+    }
+
+    /**
+     * @return The json names of the properties that fromJson reads
+     */
+    List<String> fields();
+
+}
@@ -0,0 +1,191 @@
+package org.nardhar.vertx.converter;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import io.vertx.core.json.Json;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.ServiceLoader;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Registry of the generated JsonMappers, loaded once from META-INF/services/org.nardhar.vertx.converter.JsonMapper
+ * It also has the helpers the generated code uses for the values it doesn't convert directly
+ */
+public final class JsonMappers {
+
+    private static final Map<Class<?>, JsonMapper<?>> mappers = load();
+
+    private JsonMappers() {}
+
+    private static Map<Class<?>, JsonMapper<?>> load() {
+        Map<Class<?>, JsonMapper<?>> loaded = new ConcurrentHashMap<>();
+        ServiceLoader.load(JsonMapper.class, JsonMappers.class.getClassLoader()).forEach((mapper) -> loaded.put(mapper.type(), mapper));
+        return loaded;
+    }
+
+    /**
+     * Returns the mapper of a class
+     * @param clazz The class
+     * @param <T> The type of the class
+     * @return The mapper, null if there is none and reflection has to be used
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> JsonMapper<T> get(Class<T> clazz) {
+        return (JsonMapper<T>) mappers.get(clazz);
+    }
+
+    /**
+     * Registers a mapper written by hand, replacing the generated one of its class if there is any
+     * @param mapper The mapper
+     */
+    public static void register(JsonMapper<?> mapper) {
+        mappers.put(mapper.type(), mapper);
+    }
+
+    /**
+     * Converts a value of a type without direct conversion to a json value, as JsonObject.mapFrom would
+     * @param value The value
+     * @return The value as JsonObject, JsonArray or a json scalar
+     */
+    @SuppressWarnings("unchecked")
+    public static Object toJsonValue(Object value) {
+        if (value == null) {
+            return null;
+        }
+        JsonMapper<Object> mapper = (JsonMapper<Object>) mappers.get(value.getClass());
+        if (mapper != null) {
+            return mapper.toJson(value);
+        }
+        Object converted = Json.mapper.convertValue(value, Object.class);
+        if (converted instanceof Map) {
+            return new JsonObject((Map<String, Object>) converted);
+        }
+        if (converted instanceof List) {
+            return new JsonArray((List) converted);
+        }
+        return converted;
+    }
+
+    /**
+     * Converts a json value to a type without direct conversion, as JsonObject.mapTo would
+     * @param value The json value
+     * @param type The type to convert to
+     * @param <T> The type
+     * @return The converted value
+     */
+    public static <T> T fromJsonValue(Object value, TypeReference<T> type) {
+        return Json.mapper.convertValue(unwrap(value), type);
+    }
+
+    /**
+     * Converts a json value to a class without direct conversion, as JsonObject.mapTo would
+     * @param value The json value
+     * @param type The class to convert to
+     * @param <T> The type
+     * @return The converted value
+     * @throws IllegalArgumentException If Jackson can't convert it, as with JsonObject.mapTo
+     */
+    public static <T> T fromJsonValue(Object value, Class<T> type) {
+        return Json.mapper.convertValue(unwrap(value), type);
+    }
+
+    private static Object unwrap(Object value) {
+        if (value instanceof JsonObject) {
+            return ((JsonObject) value).getMap();
+        }
+        if (value instanceof JsonArray) {
+            return ((JsonArray) value).getList();
+        }
+        return value;
+    }
+
+    // readers of the simple types, values of the expected type are read directly and the rest are coerced by Jackson,
+    // so {"name": 123} is "123" and {"views": "10"} is 10 as with JsonObject.mapTo
+
+    public static String asString(Object value) {
+        return value instanceof String ? (String) value : fromJsonValue(value, String.class);
+    }
+
+    public static Boolean asBoolean(Object value) {
+        return value instanceof Boolean ? (Boolean) value : fromJsonValue(value, Boolean.class);
+    }
+
+    public static Integer asInteger(Object value) {
+        return value instanceof Integer ? (Integer) value : fromJsonValue(value, Integer.class);
+    }
+
+    public static Long asLong(Object value) {
+        if (value instanceof Long || value instanceof Integer) {
+            return ((Number) value).longValue();
+        }
+        return fromJsonValue(value, Long.class);
+    }
+
+    public static Double asDouble(Object value) {
+        if (value instanceof Double || value instanceof Float || value instanceof Long || value instanceof Integer) {
+            return ((Number) value).doubleValue();
+        }
+        return fromJsonValue(value, Double.class);
+    }
+
+    public static Float asFloat(Object value) {
+        if (value instanceof Float || value instanceof Double || value instanceof Long || value instanceof Integer) {
+            return ((Number) value).floatValue();
+        }
+        return fromJsonValue(value, Float.class);
+    }
+
+    /**
+     * Copies a list of strings, booleans or numbers to a JsonArray
+     * @param list The list
+     * @return The array, null if the list is null
+     */
+    public static JsonArray toJsonArray(List<?> list) {
+        return list == null ? null : new JsonArray(new ArrayList<>(list));
+    }
+
+    /**
+     * Copies a JsonArray to a list, coercing the elements to their type as the as* readers do
+     * @param array The array
+     * @param type The type of the elements, String, Boolean or a boxed number
+     * @param <E> The type of the elements
+     * @return The list, null if the array is null
+     */
+    public static <E> List<E> toList(JsonArray array, Class<E> type) {
+        if (array == null) {
+            return null;
+        }
+        List<E> list = new ArrayList<>(array.size());
+        for (Object element : array) {
+            list.add(element == null ? null : type.cast(as(element, type)));
+        }
+        return list;
+    }
+
+    private static Object as(Object value, Class<?> type) {
+        if (type == String.class) {
+            return asString(value);
+        }
+        if (type == Boolean.class) {
+            return asBoolean(value);
+        }
+        if (type == Integer.class) {
+            return asInteger(value);
+        }
+        if (type == Long.class) {
+            return asLong(value);
+        }
+        if (type == Double.class) {
+            return asDouble(value);
+        }
+        if (type == Float.class) {
+            return asFloat(value);
+        }
+        return type.isInstance(value) ? value : fromJsonValue(value, type);
+    }
+
+}
@@ -0,0 +1,130 @@
+package org.nardhar.vertx.eventbus;
+
+import io.vertx.core.eventbus.DeliveryOptions;
+import io.vertx.core.eventbus.ReplyException;
+import io.vertx.core.eventbus.ReplyFailure;
+import org.nardhar.vertx.exception.BusinessException;
+import org.nardhar.vertx.metrics.LatencyHistogram;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The SendPolicy of an address with its state, the circuit breaker and the hedge delay
+ */
+class AddressPolicy {
+
+    // sends needed before the latency percentile is trusted for hedging
+    private static final long HEDGE_MIN_SAMPLES = 100;
+    // the hedge delay and budget are renewed every second
+    private static final long HEDGE_PERIOD = 1000;
+
+    private final SendPolicy policy;
+    private final CircuitBreaker circuitBreaker;
+
+    private volatile long hedgeDelay = -1;
+    private volatile long hedgePeriodEnd;
+    private final AtomicLong sends = new AtomicLong();
+    private final AtomicLong hedges = new AtomicLong();
+
+    AddressPolicy(SendPolicy policy) {
+        this.policy = policy;
+        this.circuitBreaker = policy.createCircuitBreaker();
+    }
+
+    CircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
+
+    boolean isHedged() {
+        return policy.isHedged();
+    }
+
+    /**
+     * @return If the circuit breaker lets a send through
+     */
+    boolean allow() {
+        return circuitBreaker == null || circuitBreaker.allow(System.currentTimeMillis());
+    }
+
+    /**
+     * Records the result of an allowed send in the circuit breaker, only failures that show the address
+     * is degraded count (timeouts, no handlers and failure codes from 500), not expected ones like a 404
+     * @param cause The failure, null if it succeeded
+     */
+    void record(Throwable cause) {
+        if (circuitBreaker != null) {
+            circuitBreaker.record(cause != null && degraded(cause), System.currentTimeMillis());
+        }
+    }
+
+    /**
+     * @param address The address
+     * @return The failure of the sends rejected by the open circuit breaker
+     */
+    FailureReply rejected(String address) {
+        return FailureReply.of(503, new BusinessException(
+            "Circuit breaker open for " + address,
+            "eventbus.circuitOpen.error",
+            address
+        ));
+    }
+
+    /**
+     * Applies the timeout of the policy to options that keep the default one
+     * Templates are derived once, other options are copied
+     * @param options The options of the send
+     * @return The options to send with
+     */
+    DeliveryOptions options(DeliveryOptions options) {
+        long timeout = policy.getTimeout();
+        if (timeout <= 0 || options.getSendTimeout() != DeliveryOptions.DEFAULT_TIMEOUT) {
+            return options;
+        }
+        if (options instanceof DeliveryTemplate) {
+            return ((DeliveryTemplate)options).withSendTimeout(timeout);
+        }
+        return new DeliveryOptions(options).setSendTimeout(timeout);
+    }
+
+    /**
+     * Counts a send and returns the delay of its second attempt
+     * @param latency The latency of the sends to the address
+     * @return The delay in milliseconds, -1 for not sending a second attempt
+     */
+    long hedgeDelay(LatencyHistogram latency) {
+        long now = System.currentTimeMillis();
+        if (now >= hedgePeriodEnd) {
+            // another thread may renew it too, both get about the same values
+            hedgePeriodEnd = now + HEDGE_PERIOD;
+            sends.set(0);
+            hedges.set(0);
+            hedgeDelay = latency.getCount() < HEDGE_MIN_SAMPLES ? -1 : Math.max(
+                policy.getHedgeMinDelay(),
+                TimeUnit.NANOSECONDS.toMillis(latency.percentile(policy.getHedgePercentile())) + 1
+            );
+        }
+        sends.incrementAndGet();
+        return hedgeDelay;
+    }
+
+    /**
+     * @return If a second attempt can be sent without going over the hedge budget
+     */
+    boolean hedge() {
+        if (hedges.get() + 1 > sends.get() * policy.getHedgeMaxRate()) {
+            return false;
+        }
+        hedges.incrementAndGet();
+        return true;
+    }
+
+    static boolean degraded(Throwable cause) {
+        if (cause instanceof ReplyException) {
+            ReplyException failure = (ReplyException)cause;
+            return failure.failureType() != ReplyFailure.RECIPIENT_FAILURE || failure.failureCode() >= 500;
+        }
+        return true;
+    }
+
+}
@@ -4,9 +4,9 @@ import io.vertx.core.AsyncResult;
 import io.vertx.core.Future;
 import io.vertx.core.Handler;
 import io.vertx.core.eventbus.Message;
-import io.vertx.core.json.DecodeException;
 import io.vertx.core.json.JsonObject;
-import org.nardhar.vertx.exception.ApplicationException;
+import org.nardhar.vertx.converter.Converter;
+import org.nardhar.vertx.exception.FailureLog;
 
 public interface BusConsumer {
 
@@ -14,24 +14,15 @@ public interface BusConsumer {
         message.reply(result);
     }
 
+    /**
+     * Replies a failure as a FailureReply, the failure is logged at most once per interval for each code
+     * @param message The message
+     * @param statusCode The failure code
+     * @param cause The failure, failures of other replies are forwarded with their payload
+     */
     default void busRespondFailure(Message<JsonObject> message, int statusCode, Throwable cause) {
-        cause.printStackTrace();
-        if (cause instanceof ApplicationException) {
-            message.fail(statusCode, ((ApplicationException)cause).encode());
-        } else {
-            // cause.getMessage() could be an encoded ApplicationException
-            // so we should try to parse it and convert to an instance of ApplicationException
-            try {
-                JsonObject exceptionJson = new JsonObject(cause.getMessage());
-                message.fail(statusCode, new ApplicationException(
-                    exceptionJson.getString("message"),
-                    exceptionJson.getString("code")
-                ).encode());
-            } catch (DecodeException ex) {
-                // otherwise
-                message.fail(statusCode, new ApplicationException(cause, "service.error").encode());
-            }
-        }
+        FailureLog.log(cause);
+        message.reply(FailureReply.of(statusCode, cause));
     }
 
     default <T> Handler<AsyncResult<T>> busRespond(Message<JsonObject> message) {
@@ -47,7 +38,7 @@ public interface BusConsumer {
     default <T> Handler<AsyncResult<T>> busRespondToJsonObject(Message<JsonObject> message) {
         return (handler) -> {
             if (handler.succeeded()) {
-                busRespondSuccess(message, JsonObject.mapFrom(handler.result()));
+                busRespondSuccess(message, Converter.toJsonObject(handler.result()));
             } else {
                 busRespondFailure(message, 400, handler.cause());
             }
@@ -55,7 +46,7 @@ public interface BusConsumer {
     }
 
     default <T> Future<JsonObject> toFutureJsonObject(T model) {
-        return Future.succeededFuture(JsonObject.mapFrom(model));
+        return Converter.toFutureJsonObject(model);
     }
 
 }
@@ -1,12 +1,22 @@
 package org.nardhar.vertx.eventbus;
 
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Context;
 import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
 import io.vertx.core.eventbus.DeliveryOptions;
 import io.vertx.core.eventbus.EventBus;
+import io.vertx.core.eventbus.Message;
 import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
+import org.nardhar.vertx.converter.Converter;
+import org.nardhar.vertx.metrics.Metrics;
+import org.nardhar.vertx.metrics.OperationMetrics;
 
 import java.util.Map;
+import java.util.function.BiConsumer;
 
 public interface BusSender {
 
@@ -32,23 +42,148 @@ public interface BusSender {
         return busGet(address, null, message);
     }
 
-    @SuppressWarnings("unchecked")
     default <T> Future<T> busGet(String address, Map<String, String> headers, Object message) {
-        Future<T> future = Future.future();
+        DeliveryOptions deliveryOptions = headers != null
+            ? DeliveryTemplate.of(headers, null)
+            : DeliveryTemplate.EMPTY;
 
-        DeliveryOptions deliveryOptions = new DeliveryOptions();
-        if (headers != null) {
-            headers.keySet().forEach((key) -> deliveryOptions.addHeader(key, headers.get(key)));
+        return busSend(address, deliveryOptions, busEncode(message));
+    }
+
+    /**
+     * Converts a message to a type the eventBus can send, messages that are already encoded are passed as they are
+     * @param message The message
+     * @return The encoded message
+     */
+    default Object busEncode(Object message) {
+        if (message == null
+            || message instanceof JsonObject
+            || message instanceof JsonArray
+            || message instanceof Buffer
+            || message instanceof String
+            || message instanceof byte[]) {
+            return message;
         }
+        return Converter.toJsonObject(message);
+    }
+
+    /**
+     * Sends a message as is, so its conversion is left to the codec defined in the deliveryOptions
+     * The SendPolicy of the address sets its timeout and circuit breaker, see SendPolicies
+     * @param address The eventBus address
+     * @param deliveryOptions The options with the headers and codec name
+     * @param message The message to send
+     * @param <T> The type of the reply body
+     * @return A future with the reply body
+     */
+    default <T> Future<T> busSend(String address, DeliveryOptions deliveryOptions, Object message) {
+        return busSend(address, deliveryOptions, message, false);
+    }
 
-        Object actualMessage = message != null ? JsonObject.mapFrom(message) : null;
+    /**
+     * Sends a message as busSend, idempotent messages (e.g. finds and counts) are also hedged if their policy says so,
+     * a second attempt is sent when the first one takes longer than a percentile of the latency of the address
+     * @param address The eventBus address
+     * @param deliveryOptions The options with the headers and codec name
+     * @param message The message to send
+     * @param idempotent If sending the message twice is harmless
+     * @param <T> The type of the reply body
+     * @return A future with the first reply body
+     */
+    default <T> Future<T> busSend(String address, DeliveryOptions deliveryOptions, Object message, boolean idempotent) {
+        Context context = Vertx.currentContext();
+        AddressPolicy policy = idempotent && context != null ? SendPolicies.of(address) : null;
+        if (policy != null && policy.isHedged()) {
+            OperationMetrics metrics = Metrics.sender(
+                address,
+                deliveryOptions.getHeaders() != null ? deliveryOptions.getHeaders().get("model") : null
+            );
+            long delay = policy.hedgeDelay(metrics.getLatency());
+            if (delay >= 0) {
+                Future<T> future = Future.future();
 
-        getEventBus().send(address, actualMessage, deliveryOptions, (result) -> {
-            if (result.succeeded()) {
-                future.complete((T)result.result().body());
-            } else {
-                future.fail(result.cause());
+                Deadline deadline = Deadline.current();
+                if (deadline != null && deadline.isExpired()) {
+                    future.fail(Deadline.exceeded());
+                    return future;
+                }
+                if (!policy.allow()) {
+                    future.fail(policy.rejected(address));
+                    return future;
+                }
+                DeliveryOptions options = policy.options(deliveryOptions);
+                if (deadline != null) {
+                    options = deadline.apply(options);
+                }
+
+                new HedgedSend<>(
+                    context.owner(), getEventBus(), address, message, options, policy, metrics, deadline, future
+                ).send(delay);
+                return future;
             }
+        }
+
+        return this.<T>busRequest(address, deliveryOptions, message).map(Message::body);
+    }
+
+    /**
+     * Sends a message as busSend, keeping the whole reply (e.g. to read its headers)
+     * @param address The eventBus address
+     * @param deliveryOptions The options with the headers and codec name
+     * @param message The message to send
+     * @param <T> The type of the reply body
+     * @return A future with the reply
+     */
+    default <T> Future<Message<T>> busRequest(String address, DeliveryOptions deliveryOptions, Object message) {
+        return busRequest(
+            address,
+            deliveryOptions,
+            (options, handler) -> getEventBus().<T>send(address, message, options, handler)
+        );
+    }
+
+    /**
+     * Sends a message through a sender with the SendPolicy, deadline and metrics of an address,
+     * e.g. a reply to a message of a conversation with that address
+     * @param address The eventBus address the message belongs to
+     * @param deliveryOptions The options with the headers and codec name
+     * @param sender Sends the message with the resulting options and reply handler
+     * @param <T> The type of the reply body
+     * @return A future with the reply
+     */
+    default <T> Future<Message<T>> busRequest(
+        String address,
+        DeliveryOptions deliveryOptions,
+        BiConsumer<DeliveryOptions, Handler<AsyncResult<Message<T>>>> sender
+    ) {
+        Future<Message<T>> future = Future.future();
+
+        Deadline deadline = Deadline.current();
+        if (deadline != null && deadline.isExpired()) {
+            future.fail(Deadline.exceeded());
+            return future;
+        }
+
+        AddressPolicy policy = SendPolicies.of(address);
+        if (!policy.allow()) {
+            future.fail(policy.rejected(address));
+            return future;
+        }
+        DeliveryOptions options = policy.options(deliveryOptions);
+        if (deadline != null) {
+            options = deadline.apply(options);
+        }
+
+        OperationMetrics metrics = Metrics.sender(
+            address,
+            deliveryOptions.getHeaders() != null ? deliveryOptions.getHeaders().get("model") : null
+        );
+        long start = metrics.start();
+        sender.accept(options, (result) -> {
+            metrics.end(start, result.failed());
+            policy.record(result.cause());
+            // the futures composed on the reply keep the deadline of the send
+            Deadline.run(deadline, () -> future.handle(result));
         });
 
         return future;
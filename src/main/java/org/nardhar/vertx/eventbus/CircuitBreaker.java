@@ -0,0 +1,92 @@
+package org.nardhar.vertx.eventbus;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Circuit breaker of an address, shared by every sender of the JVM
+ * It opens when the failures reach the error rate of the calls of a window (with a minimum of calls),
+ * rejects calls while open and then lets a single call through, which closes it if it succeeds
+ * Recording a call doesn't allocate
+ */
+public class CircuitBreaker {
+
+    private final double errorRate;
+    private final int minCalls;
+    private final long window;
+    private final long openTime;
+
+    private final AtomicLong windowStart = new AtomicLong();
+    private final AtomicLong calls = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicBoolean probing = new AtomicBoolean();
+    // time until which calls are rejected, 0 while closed
+    private volatile long openUntil;
+
+    /**
+     * @param errorRate The rate of failed calls that opens the breaker, between 0 and 1
+     * @param minCalls The calls a window needs before the breaker can open
+     * @param window The duration of a window in milliseconds
+     * @param openTime The time the breaker rejects calls once open, in milliseconds
+     */
+    public CircuitBreaker(double errorRate, int minCalls, long window, long openTime) {
+        this.errorRate = errorRate;
+        this.minCalls = minCalls;
+        this.window = window;
+        this.openTime = openTime;
+    }
+
+    /**
+     * @param now The current time in milliseconds
+     * @return If a call can be made, once open only a single call is allowed after the open time
+     */
+    public boolean allow(long now) {
+        long until = openUntil;
+        if (until == 0) {
+            return true;
+        }
+        return now >= until && probing.compareAndSet(false, true);
+    }
+
+    /**
+     * Records the result of an allowed call
+     * @param failed If the call failed
+     * @param now The current time in milliseconds
+     */
+    public void record(boolean failed, long now) {
+        if (openUntil != 0) {
+            // only the single call of the half open breaker decides, calls from before it opened are ignored
+            if (probing.get()) {
+                if (!failed) {
+                    windowStart.set(now);
+                    calls.set(0);
+                    failures.set(0);
+                }
+                openUntil = failed ? now + openTime : 0;
+                probing.set(false);
+            }
+            return;
+        }
+
+        long start = windowStart.get();
+        if (now - start >= window && windowStart.compareAndSet(start, now)) {
+            calls.set(0);
+            failures.set(0);
+        }
+        long total = calls.incrementAndGet();
+        if (failed) {
+            long failedCalls = failures.incrementAndGet();
+            if (total >= minCalls && failedCalls >= errorRate * total) {
+                openUntil = now + openTime;
+            }
+        }
+    }
+
+    /**
+     * @return If calls are being rejected
+     */
+    public boolean isOpen() {
+        return openUntil != 0;
+    }
+
+}
@@ -5,6 +5,8 @@ import io.vertx.core.CompositeFuture;
 import io.vertx.core.Future;
 import io.vertx.core.Handler;
 import io.vertx.core.eventbus.Message;
+import org.nardhar.vertx.metrics.Metrics;
+import org.nardhar.vertx.metrics.OperationMetrics;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -20,6 +22,9 @@ public abstract class ConsumerVerticle extends AbstractVerticle {
      */
     @Override
     public void start(Future<Void> startFuture) {
+        // consumers reply their failures as FailureReply
+        FailureReplyCodec.register(vertx.eventBus());
+
         // calling to dummy method
         registerConsumers();
 
@@ -37,10 +42,13 @@ public abstract class ConsumerVerticle extends AbstractVerticle {
      * @param startFuture
      */
     protected void completeRegistering(Future<Void> startFuture) {
+        int registering = consumers.size();
         // waiting for all the consumers to be completed
-        CompositeFuture.all(consumers).setHandler((ar) -> {
+        CompositeFuture.all(new ArrayList<>(consumers)).setHandler((ar) -> {
+            // consumers added when a deploy future completed are waited for too
+            if (ar.succeeded() && consumers.size() > registering) completeRegistering(startFuture);
             // if all the consumers had been successfully registered, then startFuture is complete
-            if (ar.succeeded()) startFuture.complete();
+            else if (ar.succeeded()) startFuture.complete();
             // otherwise propagate the error
             else startFuture.fail(ar.cause());
         });
@@ -55,7 +63,7 @@ public abstract class ConsumerVerticle extends AbstractVerticle {
         // creating a future for adding to the consumer list
         Future<Void> completer = Future.future();
         // actual registering of the handler in the eventBus
-        vertx.eventBus().consumer(address, handler).completionHandler((ar) -> {
+        vertx.eventBus().consumer(address, metered(address, handler)).completionHandler((ar) -> {
             // waiting for its registering to be completed
             if (ar.succeeded()) {
                 System.out.println("Consumer registered at " + address);
@@ -68,6 +76,47 @@ public abstract class ConsumerVerticle extends AbstractVerticle {
         consumers.add(completer);
     }
 
+    /**
+     * Wraps a handler for recording its latency until the message is replied or failed, by address and model header
+     * Messages whose Deadline already passed are failed with a 504 without handling them,
+     * the rest are handled with their deadline as the current one
+     * @param address The eventBus address
+     * @param handler The handler
+     * @return The wrapped handler
+     */
+    protected <T> Handler<Message<T>> metered(String address, Handler<Message<T>> handler) {
+        return (message) -> {
+            Deadline deadline = Deadline.fromHeaders(message.headers());
+            if (deadline != null && deadline.isExpired() && message.replyAddress() != null) {
+                message.reply(Deadline.exceeded());
+                return;
+            }
+            Deadline.run(deadline, () -> handle(address, handler, message));
+        };
+    }
+
+    private <T> void handle(String address, Handler<Message<T>> handler, Message<T> message) {
+        OperationMetrics metrics = Metrics.consumer(address, message.headers().get("model"));
+        long start = metrics.start();
+        // published messages don't get a reply, so only their handling is measured
+        if (message.replyAddress() == null) {
+            boolean failed = true;
+            try {
+                handler.handle(message);
+                failed = false;
+            } finally {
+                metrics.end(start, failed);
+            }
+            return;
+        }
+        try {
+            handler.handle(new TrackedMessage<>(message, (failed) -> metrics.end(start, failed)));
+        } catch (RuntimeException ex) {
+            metrics.end(start, true);
+            throw ex;
+        }
+    }
+
     protected void addDeployFuture(Future future) {
         consumers.add(future);
     }
@@ -0,0 +1,143 @@
+package org.nardhar.vertx.eventbus;
+
+import io.vertx.core.MultiMap;
+import io.vertx.core.eventbus.DeliveryOptions;
+import org.nardhar.vertx.exception.BusinessException;
+
+/**
+ * Time by which the work started for a request must be done, nobody reads the result after it
+ * It travels in the "deadline" header of the messages as epoch milliseconds, so the consumers drop the work whose
+ * deadline already passed and give the rest only the time that remains (e.g. as the maxTimeMS of a mongo query)
+ * The deadline of the work being run is kept per thread, BusSender adds it to the messages it sends
+ * and runs their replies with it, so the futures composed on them keep it too
+ */
+public final class Deadline {
+
+    public static final String HEADER = "deadline";
+
+    private static final ThreadLocal<Deadline> current = new ThreadLocal<>();
+
+    private final long at;
+    private volatile boolean cancelled;
+
+    private Deadline(long at) {
+        this.at = at;
+    }
+
+    /**
+     * @param at The epoch milliseconds of the deadline
+     * @return The deadline
+     */
+    public static Deadline at(long at) {
+        return new Deadline(at);
+    }
+
+    /**
+     * @param millis The milliseconds from now
+     * @return The deadline
+     */
+    public static Deadline in(long millis) {
+        return new Deadline(System.currentTimeMillis() + millis);
+    }
+
+    /**
+     * Reads the deadline of a message
+     * @param headers The message headers
+     * @return The deadline, null if the message doesn't have a valid one
+     */
+    public static Deadline fromHeaders(MultiMap headers) {
+        String value = headers != null ? headers.get(HEADER) : null;
+        if (value == null) {
+            return null;
+        }
+        try {
+            return new Deadline(Long.parseLong(value));
+        } catch (NumberFormatException ex) {
+            return null;
+        }
+    }
+
+    /**
+     * @return The deadline of the work being run in this thread, null if it has none
+     */
+    public static Deadline current() {
+        return current.get();
+    }
+
+    /**
+     * Runs some work with a deadline as the current one, restoring the previous one after it
+     * @param deadline The deadline, null to run without one
+     * @param work The work
+     */
+    public static void run(Deadline deadline, Runnable work) {
+        Deadline previous = current.get();
+        if (previous == deadline) {
+            work.run();
+            return;
+        }
+        current.set(deadline);
+        try {
+            work.run();
+        } finally {
+            current.set(previous);
+        }
+    }
+
+    /**
+     * @return The failure of the work dropped because its deadline passed
+     */
+    public static FailureReply exceeded() {
+        return FailureReply.of(504, new BusinessException("Deadline exceeded", "deadline.exceeded.error"));
+    }
+
+    /**
+     * @return The epoch milliseconds of the deadline
+     */
+    public long getAt() {
+        return at;
+    }
+
+    /**
+     * @return The milliseconds left, 0 if it passed or was cancelled
+     */
+    public long remaining() {
+        return cancelled ? 0 : Math.max(0, at - System.currentTimeMillis());
+    }
+
+    /**
+     * @return If the deadline passed or was cancelled
+     */
+    public boolean isExpired() {
+        return remaining() == 0;
+    }
+
+    /**
+     * Expires the deadline before its time, e.g. when the client closed the connection
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * Adds the deadline to the options of a send, with a send timeout no longer than the time left
+     * @param options The options, they are copied and not modified
+     * @return The options to send with
+     */
+    DeliveryOptions apply(DeliveryOptions options) {
+        DeliveryOptions applied = options instanceof DeliveryTemplate
+            ? ((DeliveryTemplate)options).toOptions()
+            // the copy constructor shares the headers
+            : new DeliveryOptions(options).setHeaders(copy(options.getHeaders()));
+        applied.setSendTimeout(Math.max(1, Math.min(options.getSendTimeout(), remaining())));
+        return applied.addHeader(HEADER, Long.toString(at));
+    }
+
+    private static MultiMap copy(MultiMap headers) {
+        MultiMap copy = MultiMap.caseInsensitiveMultiMap();
+        if (headers != null) {
+            copy.addAll(headers);
+        }
+        return copy;
+    }
+
+}
@@ -0,0 +1,110 @@
+package org.nardhar.vertx.eventbus;
+
+import io.vertx.core.MultiMap;
+import io.vertx.core.eventbus.DeliveryOptions;
+
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Prebuilt DeliveryOptions that can be shared between sends, any attempt to modify it or its headers fails
+ * The eventBus copies the headers for every delivered message, so sharing them is safe
+ */
+public final class DeliveryTemplate extends DeliveryOptions {
+
+    public static final DeliveryTemplate EMPTY = of(null, null);
+
+    private final boolean frozen;
+    private final MultiMap headers;
+    // templates derived with other send timeouts, replaced as a whole when one is added
+    private volatile DeliveryTemplate[] withTimeouts = new DeliveryTemplate[0];
+
+    private DeliveryTemplate(DeliveryOptions options) {
+        super(options);
+        MultiMap shared = super.getHeaders();
+        headers = shared == null || shared instanceof ReadOnlyHeaders ? shared : new ReadOnlyHeaders(shared);
+        frozen = true;
+    }
+
+    /**
+     * Creates a template with the given headers and codec
+     * @param headers The headers, could be null
+     * @param codecName The codec name, null for the default codec of the message
+     * @return The template
+     */
+    public static DeliveryTemplate of(Map<String, String> headers, String codecName) {
+        DeliveryOptions options = new DeliveryOptions().setCodecName(codecName);
+        if (headers != null) {
+            headers.forEach(options::addHeader);
+        }
+        return new DeliveryTemplate(options);
+    }
+
+    /**
+     * Creates a modifiable copy of this template, with its own headers
+     * The DeliveryOptions copy constructor shares the headers, so it shouldn't be used for templates
+     * @return The copy
+     */
+    public DeliveryOptions toOptions() {
+        DeliveryOptions options = new DeliveryOptions()
+            .setSendTimeout(getSendTimeout())
+            .setCodecName(getCodecName());
+        if (getHeaders() != null) {
+            getHeaders().forEach((header) -> options.addHeader(header.getKey(), header.getValue()));
+        }
+        return options;
+    }
+
+    /**
+     * Returns a template like this one with another send timeout, derived once per timeout
+     * @param timeout The send timeout in milliseconds
+     * @return The template
+     */
+    public DeliveryTemplate withSendTimeout(long timeout) {
+        DeliveryTemplate[] derived = withTimeouts;
+        for (DeliveryTemplate template : derived) {
+            if (template.getSendTimeout() == timeout) {
+                return template;
+            }
+        }
+        DeliveryTemplate template = new DeliveryTemplate(new DeliveryOptions(this).setSendTimeout(timeout));
+        DeliveryTemplate[] added = Arrays.copyOf(derived, derived.length + 1);
+        added[derived.length] = template;
+        // a concurrent derivation may be lost, it's derived again the next time
+        withTimeouts = added;
+        return template;
+    }
+
+    /**
+     * @return A read only view of the headers, null if it has none
+     */
+    @Override
+    public MultiMap getHeaders() {
+        return headers;
+    }
+
+    @Override
+    public DeliveryOptions setSendTimeout(long timeout) {
+        return frozen ? unsupported() : super.setSendTimeout(timeout);
+    }
+
+    @Override
+    public DeliveryOptions setCodecName(String codecName) {
+        return frozen ? unsupported() : super.setCodecName(codecName);
+    }
+
+    @Override
+    public DeliveryOptions addHeader(String key, String value) {
+        return frozen ? unsupported() : super.addHeader(key, value);
+    }
+
+    @Override
+    public DeliveryOptions setHeaders(MultiMap headers) {
+        return frozen ? unsupported() : super.setHeaders(headers);
+    }
+
+    private DeliveryOptions unsupported() {
+        throw new UnsupportedOperationException("DeliveryTemplate can not be modified, copy it with toOptions()");
+    }
+
+}
@@ -0,0 +1,74 @@
+package org.nardhar.vertx.eventbus;
+
+import io.vertx.core.eventbus.ReplyException;
+import io.vertx.core.eventbus.ReplyFailure;
+import io.vertx.core.json.DecodeException;
+import io.vertx.core.json.JsonObject;
+import org.nardhar.vertx.exception.ApplicationException;
+
+/**
+ * Failure reply with the structured failure of an ApplicationException, sent with message.reply
+ * Local deliveries hand over the same instance, so the caller reads the payload without parsing anything,
+ * and the message is the encoded payload (encoded the first time it's read), as message.fail would send it
+ * It has no stack trace, the stack of the eventBus reply says nothing about the failure
+ */
+public class FailureReply extends ReplyException {
+
+    private final JsonObject payload;
+    private String encoded;
+
+    /**
+     * @param failureCode The failure code, usually an http status
+     * @param payload The failure, it must not be modified once replied
+     */
+    public FailureReply(int failureCode, JsonObject payload) {
+        super(ReplyFailure.RECIPIENT_FAILURE, failureCode, null);
+        this.payload = payload;
+    }
+
+    /**
+     * Creates the reply of a failure, failures that come from another reply keep their payload
+     * @param failureCode The failure code
+     * @param cause The failure
+     * @return The failure reply
+     */
+    public static FailureReply of(int failureCode, Throwable cause) {
+        if (cause instanceof FailureReply) {
+            FailureReply reply = (FailureReply)cause;
+            return reply.failureCode() == failureCode ? reply : new FailureReply(failureCode, reply.payload);
+        }
+        if (cause instanceof ApplicationException) {
+            return new FailureReply(failureCode, ((ApplicationException)cause).toJsonObject());
+        }
+        if (cause instanceof ReplyException && cause.getMessage() != null && cause.getMessage().startsWith("{")) {
+            // a failure of message.fail with an encoded ApplicationException, e.g. from a clustered node
+            try {
+                return new FailureReply(failureCode, new JsonObject(cause.getMessage()));
+            } catch (DecodeException ex) {
+                // not an encoded failure after all
+            }
+        }
+        return new FailureReply(failureCode, new ApplicationException(cause, "service.error").toJsonObject());
+    }
+
+    /**
+     * @return The failure, with message, code and args or with the errors of a ValidationException
+     */
+    public JsonObject getPayload() {
+        return payload;
+    }
+
+    @Override
+    public String getMessage() {
+        if (encoded == null) {
+            encoded = payload.encode();
+        }
+        return encoded;
+    }
+
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+        return this;
+    }
+
+}
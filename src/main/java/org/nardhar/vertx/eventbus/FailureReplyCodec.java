@@ -0,0 +1,58 @@
+package org.nardhar.vertx.eventbus;
+
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.eventbus.EventBus;
+import io.vertx.core.eventbus.MessageCodec;
+import io.vertx.core.json.JsonObject;
+
+/**
+ * EventBus codec for FailureReply
+ * Local deliveries hand over the same instance, clustered deliveries send the failure code and the encoded payload
+ */
+public class FailureReplyCodec implements MessageCodec<FailureReply, FailureReply> {
+
+    public static final String NAME = "failureReply";
+
+    /**
+     * Registers the codec as the default one of FailureReply, once per eventBus
+     * @param eventBus The eventBus
+     */
+    public static void register(EventBus eventBus) {
+        try {
+            eventBus.registerDefaultCodec(FailureReply.class, new FailureReplyCodec());
+        } catch (IllegalStateException ex) {
+            // already registered by another verticle
+        }
+    }
+
+    @Override
+    public void encodeToWire(Buffer buffer, FailureReply failure) {
+        Buffer payload = Buffer.buffer(failure.getMessage());
+        buffer.appendInt(failure.failureCode());
+        buffer.appendInt(payload.length());
+        buffer.appendBuffer(payload);
+    }
+
+    @Override
+    public FailureReply decodeFromWire(int pos, Buffer buffer) {
+        int failureCode = buffer.getInt(pos);
+        int length = buffer.getInt(pos + 4);
+        return new FailureReply(failureCode, new JsonObject(buffer.getString(pos + 8, pos + 8 + length)));
+    }
+
+    @Override
+    public FailureReply transform(FailureReply failure) {
+        return failure;
+    }
+
+    @Override
+    public String name() {
+        return NAME;
+    }
+
+    @Override
+    public byte systemCodecID() {
+        return -1;
+    }
+
+}
@@ -0,0 +1,111 @@
+package org.nardhar.vertx.eventbus;
+
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.eventbus.DeliveryOptions;
+import io.vertx.core.eventbus.EventBus;
+import org.nardhar.vertx.metrics.OperationMetrics;
+
+/**
+ * Send of an idempotent message that sends a second attempt when the first one takes longer than the hedge delay
+ * of its address, or when it fails because the address is degraded, and takes the first reply
+ * Every attempt is recorded in the metrics, so the latency percentiles stay the ones of single sends
+ * @param <T> The type of the reply body
+ */
+class HedgedSend<T> {
+
+    private final Vertx vertx;
+    private final EventBus eventBus;
+    private final String address;
+    private final Object message;
+    private final DeliveryOptions options;
+    private final AddressPolicy policy;
+    private final OperationMetrics metrics;
+    private final Deadline deadline;
+    private final Future<T> future;
+
+    private int pending;
+    private boolean hedged;
+    private long timer = -1;
+
+    HedgedSend(
+        Vertx vertx,
+        EventBus eventBus,
+        String address,
+        Object message,
+        DeliveryOptions options,
+        AddressPolicy policy,
+        OperationMetrics metrics,
+        Deadline deadline,
+        Future<T> future
+    ) {
+        this.vertx = vertx;
+        this.eventBus = eventBus;
+        this.address = address;
+        this.message = message;
+        this.options = options;
+        this.policy = policy;
+        this.metrics = metrics;
+        this.deadline = deadline;
+        this.future = future;
+    }
+
+    /**
+     * Sends the first attempt, the timer and the replies run in the context of the caller
+     * @param delay The hedge delay in milliseconds
+     */
+    void send(long delay) {
+        attempt();
+        timer = vertx.setTimer(delay, (id) -> {
+            timer = -1;
+            if (!future.isComplete()) {
+                hedge();
+            }
+        });
+    }
+
+    private void hedge() {
+        // a second attempt after the deadline would only be dropped
+        if (!hedged && (deadline == null || !deadline.isExpired()) && policy.hedge()) {
+            hedged = true;
+            attempt();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void attempt() {
+        pending++;
+        long start = metrics.start();
+        eventBus.send(address, message, options, (result) -> {
+            metrics.end(start, result.failed());
+            pending--;
+            if (future.isComplete()) {
+                return;
+            }
+            if (result.succeeded()) {
+                cancelTimer();
+                policy.record(null);
+                Deadline.run(deadline, () -> future.complete((T)result.result().body()));
+                return;
+            }
+            if (pending == 0 && !hedged && AddressPolicy.degraded(result.cause())) {
+                // the first attempt failed before the hedge delay, the second one is sent right away
+                cancelTimer();
+                hedge();
+            }
+            if (pending == 0) {
+                cancelTimer();
+                policy.record(result.cause());
+                Deadline.run(deadline, () -> future.fail(result.cause()));
+            }
+        });
+    }
+
+    private void cancelTimer() {
+        if (timer != -1) {
+            vertx.cancelTimer(timer);
+            timer = -1;
+        }
+    }
+
+}
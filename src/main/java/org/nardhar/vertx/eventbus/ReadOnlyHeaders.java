@@ -0,0 +1,172 @@
+package org.nardhar.vertx.eventbus;
+
+import io.vertx.core.MultiMap;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Read only view of the headers of a DeliveryTemplate, they are shared by every send with the template
+ */
+final class ReadOnlyHeaders implements MultiMap {
+
+    private final MultiMap headers;
+
+    ReadOnlyHeaders(MultiMap headers) {
+        this.headers = headers;
+    }
+
+    @Override
+    public String get(CharSequence name) {
+        return headers.get(name);
+    }
+
+    @Override
+    public String get(String name) {
+        return headers.get(name);
+    }
+
+    @Override
+    public List<String> getAll(String name) {
+        return headers.getAll(name);
+    }
+
+    @Override
+    public List<String> getAll(CharSequence name) {
+        return headers.getAll(name);
+    }
+
+    @Override
+    public List<Map.Entry<String, String>> entries() {
+        List<Map.Entry<String, String>> entries = new ArrayList<>();
+        forEach(entries::add);
+        return entries;
+    }
+
+    @Override
+    public boolean contains(String name) {
+        return headers.contains(name);
+    }
+
+    @Override
+    public boolean contains(CharSequence name) {
+        return headers.contains(name);
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return headers.isEmpty();
+    }
+
+    @Override
+    public Set<String> names() {
+        return headers.names();
+    }
+
+    @Override
+    public int size() {
+        return headers.size();
+    }
+
+    @Override
+    public Iterator<Map.Entry<String, String>> iterator() {
+        Iterator<Map.Entry<String, String>> iterator = headers.iterator();
+        // entries are copied so their values can't be set either
+        return new Iterator<Map.Entry<String, String>>() {
+            @Override
+            public boolean hasNext() {
+                return iterator.hasNext();
+            }
+
+            @Override
+            public Map.Entry<String, String> next() {
+                Map.Entry<String, String> entry = iterator.next();
+                return new AbstractMap.SimpleImmutableEntry<>(entry.getKey(), entry.getValue());
+            }
+        };
+    }
+
+    @Override
+    public MultiMap add(String name, String value) {
+        return unsupported();
+    }
+
+    @Override
+    public MultiMap add(CharSequence name, CharSequence value) {
+        return unsupported();
+    }
+
+    @Override
+    public MultiMap add(String name, Iterable<String> values) {
+        return unsupported();
+    }
+
+    @Override
+    public MultiMap add(CharSequence name, Iterable<CharSequence> values) {
+        return unsupported();
+    }
+
+    @Override
+    public MultiMap addAll(MultiMap map) {
+        return unsupported();
+    }
+
+    @Override
+    public MultiMap addAll(Map<String, String> headers) {
+        return unsupported();
+    }
+
+    @Override
+    public MultiMap set(String name, String value) {
+        return unsupported();
+    }
+
+    @Override
+    public MultiMap set(CharSequence name, CharSequence value) {
+        return unsupported();
+    }
+
+    @Override
+    public MultiMap set(String name, Iterable<String> values) {
+        return unsupported();
+    }
+
+    @Override
+    public MultiMap set(CharSequence name, Iterable<CharSequence> values) {
+        return unsupported();
+    }
+
+    @Override
+    public MultiMap setAll(MultiMap map) {
+        return unsupported();
+    }
+
+    @Override
+    public MultiMap setAll(Map<String, String> headers) {
+        return unsupported();
+    }
+
+    @Override
+    public MultiMap remove(String name) {
+        return unsupported();
+    }
+
+    @Override
+    public MultiMap remove(CharSequence name) {
+        return unsupported();
+    }
+
+    @Override
+    public MultiMap clear() {
+        return unsupported();
+    }
+
+    private MultiMap unsupported() {
+        throw new UnsupportedOperationException("DeliveryTemplate headers can not be modified, copy it with toOptions()");
+    }
+
+}
@@ -0,0 +1,66 @@
+package org.nardhar.vertx.eventbus;
+
+import io.vertx.core.json.JsonObject;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * JVM wide registry of the SendPolicy of the addresses BusSender sends to, configured by address prefix, e.g.
+ * {"repository.": {"timeout": 2000}, "repository.org.app.Book.findAll": {"timeout": 500, "hedge": {}}}
+ * The longest prefix of an address wins, every address gets its own circuit breaker and hedge delay
+ */
+public final class SendPolicies {
+
+    private static volatile Map<String, SendPolicy> policies = Collections.emptyMap();
+    private static volatile JsonObject configured;
+    private static final Map<String, AddressPolicy> addresses = new ConcurrentHashMap<>();
+
+    private SendPolicies() {}
+
+    /**
+     * Replaces the policies with the ones of a configuration, configuring the same one again does nothing
+     * so every verticle instance can configure it
+     * @param config The policies by address prefix
+     */
+    public static synchronized void configure(JsonObject config) {
+        if (config.equals(configured)) {
+            return;
+        }
+        Map<String, SendPolicy> configuredPolicies = new ConcurrentHashMap<>();
+        config.fieldNames().forEach((prefix) -> configuredPolicies.put(
+            prefix,
+            SendPolicy.fromConfig(config.getJsonObject(prefix))
+        ));
+        policies = configuredPolicies;
+        configured = config.copy();
+        addresses.clear();
+    }
+
+    /**
+     * @param address The address
+     * @return The circuit breaker of the address, null if its policy has none
+     */
+    public static CircuitBreaker circuitBreaker(String address) {
+        return of(address).getCircuitBreaker();
+    }
+
+    static AddressPolicy of(String address) {
+        AddressPolicy policy = addresses.get(address);
+        return policy != null ? policy : addresses.computeIfAbsent(address, (key) -> new AddressPolicy(find(key)));
+    }
+
+    private static SendPolicy find(String address) {
+        SendPolicy found = SendPolicy.NONE;
+        int length = -1;
+        for (Map.Entry<String, SendPolicy> policy : policies.entrySet()) {
+            if (address.startsWith(policy.getKey()) && policy.getKey().length() > length) {
+                found = policy.getValue();
+                length = policy.getKey().length();
+            }
+        }
+        return found;
+    }
+
+}
@@ -0,0 +1,96 @@
+package org.nardhar.vertx.eventbus;
+
+import io.vertx.core.json.JsonObject;
+
+/**
+ * How the messages of an address are sent, read from a configuration like
+ * {"timeout": 2000, "hedge": {"percentile": 95, "minDelay": 2, "maxRate": 0.1},
+ * "circuitBreaker": {"errorRate": 0.5, "minCalls": 20, "window": 10000, "openTime": 5000}}
+ * Every part is optional, without them the send is the plain eventBus one
+ */
+public class SendPolicy {
+
+    public static final SendPolicy NONE = new SendPolicy(0, 0, 0, 0, null);
+
+    private final long timeout;
+    private final double hedgePercentile;
+    private final long hedgeMinDelay;
+    private final double hedgeMaxRate;
+    private final JsonObject circuitBreaker;
+
+    public SendPolicy(long timeout, double hedgePercentile, long hedgeMinDelay, double hedgeMaxRate, JsonObject circuitBreaker) {
+        this.timeout = timeout;
+        this.hedgePercentile = hedgePercentile;
+        this.hedgeMinDelay = hedgeMinDelay;
+        this.hedgeMaxRate = hedgeMaxRate;
+        this.circuitBreaker = circuitBreaker;
+    }
+
+    /**
+     * Creates a policy from its configuration
+     * @param config The configuration
+     * @return The policy
+     */
+    public static SendPolicy fromConfig(JsonObject config) {
+        JsonObject hedge = config.getJsonObject("hedge");
+        return new SendPolicy(
+            config.getLong("timeout", 0L),
+            hedge != null ? hedge.getDouble("percentile", 95.0) : 0,
+            hedge != null ? hedge.getLong("minDelay", 1L) : 0,
+            hedge != null ? hedge.getDouble("maxRate", 0.1) : 0,
+            config.getJsonObject("circuitBreaker")
+        );
+    }
+
+    /**
+     * @return The send timeout in milliseconds, 0 for the one of the DeliveryOptions
+     */
+    public long getTimeout() {
+        return timeout;
+    }
+
+    /**
+     * @return If idempotent sends are repeated when the first one takes longer than the hedge percentile
+     */
+    public boolean isHedged() {
+        return hedgePercentile > 0;
+    }
+
+    /**
+     * @return The percentile of the latency of the address after which a second attempt is sent
+     */
+    public double getHedgePercentile() {
+        return hedgePercentile;
+    }
+
+    /**
+     * @return The minimum delay in milliseconds before a second attempt
+     */
+    public long getHedgeMinDelay() {
+        return hedgeMinDelay;
+    }
+
+    /**
+     * @return The maximum rate of sends that get a second attempt, so a slow address doesn't get twice the load
+     */
+    public double getHedgeMaxRate() {
+        return hedgeMaxRate;
+    }
+
+    /**
+     * Creates the circuit breaker of an address with this policy
+     * @return The breaker, null if the policy has none
+     */
+    public CircuitBreaker createCircuitBreaker() {
+        if (circuitBreaker == null) {
+            return null;
+        }
+        return new CircuitBreaker(
+            circuitBreaker.getDouble("errorRate", 0.5),
+            circuitBreaker.getInteger("minCalls", 20),
+            circuitBreaker.getLong("window", 10000L),
+            circuitBreaker.getLong("openTime", 5000L)
+        );
+    }
+
+}
@@ -0,0 +1,97 @@
+package org.nardhar.vertx.eventbus;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Handler;
+import io.vertx.core.MultiMap;
+import io.vertx.core.eventbus.DeliveryOptions;
+import io.vertx.core.eventbus.Message;
+import io.vertx.core.eventbus.ReplyException;
+
+/**
+ * Message that notifies a listener the first time it is replied or failed,
+ * so asynchronous handlers can be tracked until they actually respond
+ * Replies with a ReplyException, like FailureReply, count as failures
+ * @param <T> The type of the body
+ */
+public class TrackedMessage<T> implements Message<T> {
+
+    @FunctionalInterface
+    public interface Listener {
+        /**
+         * @param failed true if the message was failed instead of replied
+         */
+        void done(boolean failed);
+    }
+
+    private final Message<T> message;
+    private final Listener listener;
+    private boolean done;
+
+    public TrackedMessage(Message<T> message, Listener listener) {
+        this.message = message;
+        this.listener = listener;
+    }
+
+    private void done(boolean failed) {
+        if (!done) {
+            done = true;
+            listener.done(failed);
+        }
+    }
+
+    @Override
+    public String address() {
+        return message.address();
+    }
+
+    @Override
+    public MultiMap headers() {
+        return message.headers();
+    }
+
+    @Override
+    public T body() {
+        return message.body();
+    }
+
+    @Override
+    public String replyAddress() {
+        return message.replyAddress();
+    }
+
+    @Override
+    public boolean isSend() {
+        return message.isSend();
+    }
+
+    @Override
+    public void reply(Object reply) {
+        message.reply(reply);
+        done(reply instanceof ReplyException);
+    }
+
+    @Override
+    public <R> void reply(Object reply, Handler<AsyncResult<Message<R>>> replyHandler) {
+        message.reply(reply, replyHandler);
+        done(reply instanceof ReplyException);
+    }
+
+    @Override
+    public void reply(Object reply, DeliveryOptions options) {
+        message.reply(reply, options);
+        done(reply instanceof ReplyException);
+    }
+
+    @Override
+    public <R> void reply(Object reply, DeliveryOptions options, Handler<AsyncResult<Message<R>>> replyHandler) {
+        message.reply(reply, options, replyHandler);
+        done(reply instanceof ReplyException);
+    }
+
+    @Override
+    public void fail(int failureCode, String failureMessage) {
+        message.fail(failureCode, failureMessage);
+        done(true);
+    }
+
+}
@@ -37,18 +37,39 @@ public class ApplicationException extends Exception {
         this.args = args;
     }
 
-    public String encode() {
+    /**
+     * Constructor for subclasses of expected failures, which don't need a stack trace
+     * @param writableStackTrace false for not filling the stack trace, the most expensive part of an exception
+     */
+    protected ApplicationException(String message, Throwable cause, String code, Object[] args, boolean writableStackTrace) {
+        super(message, cause, false, writableStackTrace);
+        this.code = code;
+        this.args = args;
+    }
+
+    public String getCode() {
+        return code;
+    }
+
+    public Object[] getArgs() {
+        return args;
+    }
+
+    /**
+     * @return The failure as it's sent to the caller, see FailureReply
+     */
+    public JsonObject toJsonObject() {
+        JsonObject json = new JsonObject()
+            .put("message", getMessage())
+            .put("code", code);
         if (args != null) {
-            return new JsonObject()
-                .put("message", getMessage())
-                .put("code", code)
-                .put("args", new JsonArray(Arrays.asList(args)))
-                .encode();
+            json.put("args", new JsonArray(Arrays.asList(args)));
         }
-        return new JsonObject()
-            .put("message", getMessage())
-            .put("code", code)
-            .encode();
+        return json;
+    }
+
+    public String encode() {
+        return toJsonObject().encode();
     }
 
 }
@@ -0,0 +1,21 @@
+package org.nardhar.vertx.exception;
+
+/**
+ * Expected failure of an operation, e.g. a model not found or an invalid parameter
+ * It has no stack trace, since it's not a bug and bursts of them shouldn't cost more than the successful calls
+ */
+public class BusinessException extends ApplicationException {
+
+    public BusinessException(String message, String code) {
+        super(message, null, code, null, false);
+    }
+
+    public BusinessException(String message, String code, Object... args) {
+        super(message, null, code, args, false);
+    }
+
+    public BusinessException(Throwable cause, String code) {
+        super(cause.getMessage(), cause, code, null, false);
+    }
+
+}
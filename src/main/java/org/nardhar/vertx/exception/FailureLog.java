@@ -0,0 +1,64 @@
+package org.nardhar.vertx.exception;
+
+import io.vertx.core.eventbus.ReplyException;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Logs failures at most once per interval for each code, counting the ones it skips,
+ * so a burst of the same failure costs a counter increment instead of a line and a stack trace each
+ * Stack traces are printed only for unexpected failures, the ones that have it
+ */
+public final class FailureLog {
+
+    public static final long INTERVAL = 10_000;
+
+    private static final Map<String, Window> windows = new ConcurrentHashMap<>();
+
+    private FailureLog() {}
+
+    /**
+     * Logs a failure unless another one with its code was logged in the last interval
+     * @param cause The failure
+     */
+    public static void log(Throwable cause) {
+        String code = code(cause);
+        Window window = windows.computeIfAbsent(code, (key) -> new Window());
+
+        long now = System.currentTimeMillis();
+        long next = window.next.get();
+        if (now < next || !window.next.compareAndSet(next, now + INTERVAL)) {
+            window.skipped.incrementAndGet();
+            return;
+        }
+
+        long skipped = window.skipped.getAndSet(0);
+        // TODO: add a proper logger
+        System.out.println(
+            "Failure " + code + ": " + cause.getMessage()
+                + (skipped > 0 ? " (" + skipped + " more since the last one)" : "")
+        );
+        if (!(cause instanceof ReplyException) && cause.getStackTrace().length > 0) {
+            cause.printStackTrace();
+        }
+    }
+
+    private static String code(Throwable cause) {
+        if (cause instanceof ApplicationException && ((ApplicationException)cause).getCode() != null) {
+            return ((ApplicationException)cause).getCode();
+        }
+        if (cause instanceof ReplyException) {
+            return "reply." + ((ReplyException)cause).failureCode();
+        }
+        return cause.getClass().getName();
+    }
+
+    private static final class Window {
+        // time from which the next failure is logged
+        private final AtomicLong next = new AtomicLong();
+        private final AtomicLong skipped = new AtomicLong();
+    }
+
+}
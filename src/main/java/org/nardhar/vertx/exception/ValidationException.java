@@ -7,17 +7,20 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.stream.Collectors;
 
+/**
+ * Errors of the fields of a model, an expected failure so it has no stack trace
+ */
 public class ValidationException extends ApplicationException {
 
     private List<FieldError> fieldErrorList;
 
     public ValidationException(String message, String code) {
-        super(message, code);
+        super(message, null, code, null, false);
         fieldErrorList = new ArrayList<>();
     }
 
     public ValidationException(String message, String code, Object... args) {
-        super(message, code, args);
+        super(message, null, code, args, false);
         fieldErrorList = new ArrayList<>();
     }
 
@@ -43,14 +46,13 @@ public class ValidationException extends ApplicationException {
     }
 
     @Override
-    public String encode() {
+    public JsonObject toJsonObject() {
         return new JsonObject()
             .put("errors", new JsonArray(
                 fieldErrorList.stream()
                     .map(FieldError::encodeToJsonObject)
                     .collect(Collectors.toList())
-            ))
-            .encode();
+            ));
     }
 
 }
@@ -0,0 +1,47 @@
+package org.nardhar.vertx.index;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Reads the class indexes written at compile time by the processor module, so the classes of an interface
+ * are found without a configuration list and without scanning the classpath
+ */
+public final class ClassIndex {
+
+    private ClassIndex() {}
+
+    /**
+     * Returns the indexed classes of an interface, from every jar of the classpath
+     * @param clazz The interface, e.g. Model or Controller
+     * @return The class names, in the order of the index, empty if nothing was indexed
+     * @throws IllegalStateException if an index can't be read
+     */
+    public static List<String> names(Class<?> clazz) {
+        Set<String> names = new LinkedHashSet<>();
+        try {
+            Enumeration<URL> indexes = ClassIndex.class.getClassLoader().getResources("META-INF/services/" + clazz.getName());
+            while (indexes.hasMoreElements()) {
+                URL index = indexes.nextElement();
+                try (BufferedReader reader = new BufferedReader(new InputStreamReader(index.openStream(), StandardCharsets.UTF_8))) {
+                    reader.lines()
+                        .map((line) -> line.replaceAll("#.*", "").trim())
+                        .filter((line) -> !line.isEmpty())
+                        .forEach(names::add);
+                }
+            }
+        } catch (IOException ex) {
+            throw new IllegalStateException("Could not read the index of " + clazz.getName(), ex);
+        }
+        return new ArrayList<>(names);
+    }
+
+}
@@ -0,0 +1,76 @@
+package org.nardhar.vertx.metrics;
+
+import io.vertx.core.json.JsonObject;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * JVM wide registry of the eventBus metrics, for consumers (the handling of received messages until they are replied)
+ * and senders (from sending until the reply arrives), by address and by model
+ * Looking up existing metrics doesn't allocate
+ */
+public final class Metrics {
+
+    // metrics without model are stored with this key
+    private static final String ALL = "*";
+
+    private static final Map<String, Map<String, OperationMetrics>> consumers = new ConcurrentHashMap<>();
+    private static final Map<String, Map<String, OperationMetrics>> senders = new ConcurrentHashMap<>();
+
+    private Metrics() {}
+
+    /**
+     * @param address The consumer address
+     * @param model The model header of the message, could be null
+     * @return The metrics of the consumer
+     */
+    public static OperationMetrics consumer(String address, String model) {
+        return get(consumers, address, model);
+    }
+
+    /**
+     * @param address The destination address
+     * @param model The model header of the message, could be null
+     * @return The metrics of the sends
+     */
+    public static OperationMetrics sender(String address, String model) {
+        return get(senders, address, model);
+    }
+
+    /**
+     * Returns every metric as {consumers: {address: {model: metrics}}, senders: {...}}, "*" for messages without model
+     * @return The snapshot
+     */
+    public static JsonObject snapshot() {
+        return new JsonObject()
+            .put("consumers", snapshot(consumers))
+            .put("senders", snapshot(senders));
+    }
+
+    public static void reset() {
+        consumers.clear();
+        senders.clear();
+    }
+
+    private static OperationMetrics get(Map<String, Map<String, OperationMetrics>> registry, String address, String model) {
+        String key = model != null ? model : ALL;
+        Map<String, OperationMetrics> byModel = registry.get(address);
+        if (byModel == null) {
+            byModel = registry.computeIfAbsent(address, (k) -> new ConcurrentHashMap<>());
+        }
+        OperationMetrics metrics = byModel.get(key);
+        return metrics != null ? metrics : byModel.computeIfAbsent(key, (k) -> new OperationMetrics());
+    }
+
+    private static JsonObject snapshot(Map<String, Map<String, OperationMetrics>> registry) {
+        JsonObject snapshot = new JsonObject();
+        registry.forEach((address, byModel) -> {
+            JsonObject models = new JsonObject();
+            byModel.forEach((model, metrics) -> models.put(model, metrics.snapshot()));
+            snapshot.put(address, models);
+        });
+        return snapshot;
+    }
+
+}
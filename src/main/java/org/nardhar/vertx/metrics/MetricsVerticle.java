@@ -0,0 +1,15 @@
+package org.nardhar.vertx.metrics;
+
+import org.nardhar.vertx.eventbus.ConsumerVerticle;
+
+/**
+ * Replies the metrics snapshot of this JVM at the metrics.snapshot address
+ */
+public class MetricsVerticle extends ConsumerVerticle {
+
+    @Override
+    public void registerConsumers() {
+        addConsumer("metrics.snapshot", (message) -> message.reply(Metrics.snapshot()));
+    }
+
+}
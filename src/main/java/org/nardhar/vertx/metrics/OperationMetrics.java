@@ -0,0 +1,48 @@
+package org.nardhar.vertx.metrics;
+
+import io.vertx.core.json.JsonObject;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Latency, in flight and error metrics of an address, optionally for a single model
+ */
+public class OperationMetrics {
+
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final AtomicLong inFlight = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+
+    /**
+     * Marks the start of an operation
+     * @return The start time for end()
+     */
+    public long start() {
+        inFlight.incrementAndGet();
+        return System.nanoTime();
+    }
+
+    /**
+     * Marks the end of an operation started with start()
+     * @param start The start time
+     * @param failed If the operation failed
+     */
+    public void end(long start, boolean failed) {
+        latency.record(System.nanoTime() - start);
+        inFlight.decrementAndGet();
+        if (failed) {
+            errors.incrementAndGet();
+        }
+    }
+
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+
+    public JsonObject snapshot() {
+        return latency.snapshot()
+            .put("inFlight", inFlight.get())
+            .put("errors", errors.get());
+    }
+
+}
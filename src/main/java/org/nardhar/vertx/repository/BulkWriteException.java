@@ -0,0 +1,27 @@
+package org.nardhar.vertx.repository;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Failure of a bulkWrite with the error of every failed operation, by its index in the bulkWrite
+ * The operations of an unordered bulkWrite without an error were written, an ordered one stops at its first error
+ */
+public class BulkWriteException extends RuntimeException {
+
+    private final Map<Integer, Throwable> errors;
+
+    /**
+     * @param errors The errors by operation index, it must have at least one
+     */
+    public BulkWriteException(Map<Integer, Throwable> errors) {
+        super(new TreeMap<>(errors).firstEntry().getValue().getMessage());
+        this.errors = Collections.unmodifiableMap(new TreeMap<>(errors));
+    }
+
+    public Map<Integer, Throwable> getErrors() {
+        return errors;
+    }
+
+}
@@ -0,0 +1,114 @@
+package org.nardhar.vertx.repository;
+
+import io.vertx.core.Handler;
+import io.vertx.core.eventbus.Message;
+import io.vertx.core.json.JsonObject;
+import org.nardhar.vertx.eventbus.Deadline;
+import org.nardhar.vertx.eventbus.TrackedMessage;
+import org.nardhar.vertx.eventbus.FailureReply;
+import org.nardhar.vertx.exception.ApplicationException;
+import org.nardhar.vertx.exception.BusinessException;
+import org.nardhar.vertx.exception.FailureLog;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Limits the operations of a model that are running at the same time, the rest wait in a bounded queue
+ * and when the queue is full they are rejected right away with repository.overloaded
+ * An operation ends when its message is replied or failed, queued ones whose Deadline passed while they waited
+ * are failed with a 504 instead of run
+ * It must be used from a single verticle context
+ */
+class Bulkhead {
+
+    private final String model;
+    private final int maxConcurrent;
+    private final int maxQueue;
+
+    private final Deque<Runnable> queue = new ArrayDeque<>();
+
+    private int inFlight;
+    private boolean draining;
+
+    private long executed;
+    private long queued;
+    private long rejected;
+    private long expired;
+
+    Bulkhead(String model, int maxConcurrent, int maxQueue) {
+        this.model = model;
+        this.maxConcurrent = maxConcurrent;
+        this.maxQueue = maxQueue;
+    }
+
+    static Bulkhead fromConfig(String model, JsonObject config) {
+        return new Bulkhead(
+            model,
+            config.getInteger("maxConcurrent", 50),
+            config.getInteger("maxQueue", 500)
+        );
+    }
+
+    <T> void execute(Message<T> message, Handler<Message<T>> handler) {
+        if (inFlight < maxConcurrent && queue.isEmpty()) {
+            run(message, handler);
+        } else if (queue.size() < maxQueue) {
+            queued++;
+            Deadline deadline = Deadline.fromHeaders(message.headers());
+            queue.add(() -> {
+                if (deadline != null && deadline.isExpired()) {
+                    expired++;
+                    // it isn't in flight, the draining loop runs the next one in its place
+                    message.reply(Deadline.exceeded());
+                    return;
+                }
+                Deadline.run(deadline, () -> run(message, handler));
+            });
+        } else {
+            rejected++;
+            message.reply(FailureReply.of(503, new BusinessException(
+                "Repository overloaded for model " + model,
+                "repository.overloaded"
+            )));
+        }
+    }
+
+    private <T> void run(Message<T> message, Handler<Message<T>> handler) {
+        inFlight++;
+        executed++;
+        TrackedMessage<T> tracked = new TrackedMessage<>(message, (failed) -> release());
+        try {
+            handler.handle(tracked);
+        } catch (RuntimeException ex) {
+            FailureLog.log(ex);
+            tracked.reply(FailureReply.of(500, new ApplicationException(ex, "repository.error")));
+        }
+    }
+
+    private void release() {
+        inFlight--;
+        // a loop instead of recursion, operations replied synchronously release while draining
+        if (draining) {
+            return;
+        }
+        draining = true;
+        while (inFlight < maxConcurrent && !queue.isEmpty()) {
+            queue.poll().run();
+        }
+        draining = false;
+    }
+
+    JsonObject stats() {
+        return new JsonObject()
+            .put("inFlight", inFlight)
+            .put("queueDepth", queue.size())
+            .put("maxConcurrent", maxConcurrent)
+            .put("maxQueue", maxQueue)
+            .put("executed", executed)
+            .put("queued", queued)
+            .put("rejected", rejected)
+            .put("expired", expired);
+    }
+
+}
@@ -0,0 +1,95 @@
+package org.nardhar.vertx.repository;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.mongo.BulkOperation;
+import io.vertx.ext.mongo.BulkWriteOptions;
+import org.bson.types.ObjectId;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Gathers concurrent single inserts for the same collection and sends them as one unordered bulkWrite
+ * A batch is flushed when it reaches its maximum size or when its time window ends, whatever happens first
+ * Ids are generated before writing, so every caller gets its own id or its own error as with MongoClient.insert,
+ * only a failure of the whole bulkWrite (e.g. a lost connection) is given to every caller of the batch
+ * It must be used from a single verticle context
+ */
+class InsertCoalescer {
+
+    private final Vertx vertx;
+    private final RepositoryBackend backend;
+    private final long window;
+    private final int maxSize;
+
+    private final Map<String, Batch> batches = new HashMap<>();
+
+    private static class Batch {
+        private final List<BulkOperation> operations = new ArrayList<>();
+        private final List<String> ids = new ArrayList<>();
+        private final List<Handler<AsyncResult<String>>> handlers = new ArrayList<>();
+        private long timerId = -1;
+    }
+
+    InsertCoalescer(Vertx vertx, RepositoryBackend backend, long window, int maxSize) {
+        this.vertx = vertx;
+        this.backend = backend;
+        this.window = window;
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Same contract as MongoClient.insert, the handler receives the id of the inserted document
+     * @param collection The collection
+     * @param document The document, an _id is added if it doesn't have one
+     * @param handler The handler
+     */
+    void insert(String collection, JsonObject document, Handler<AsyncResult<String>> handler) {
+        String id = document.getString("_id");
+        if (id == null) {
+            id = new ObjectId().toHexString();
+            document.put("_id", id);
+        }
+
+        Batch batch = batches.computeIfAbsent(collection, (key) -> new Batch());
+        batch.operations.add(BulkOperation.createInsert(document));
+        batch.ids.add(id);
+        batch.handlers.add(handler);
+
+        if (batch.operations.size() >= maxSize) {
+            flush(collection);
+        } else if (batch.timerId < 0) {
+            batch.timerId = vertx.setTimer(window, (timerId) -> flush(collection));
+        }
+    }
+
+    private void flush(String collection) {
+        Batch batch = batches.remove(collection);
+        if (batch == null) {
+            return;
+        }
+        if (batch.timerId >= 0) {
+            vertx.cancelTimer(batch.timerId);
+        }
+
+        backend.bulkWriteWithOptions(collection, batch.operations, new BulkWriteOptions(false), res -> {
+            // the batch is unordered, so only the callers of the failed inserts get an error
+            Map<Integer, Throwable> errors = res.failed() && res.cause() instanceof BulkWriteException
+                ? ((BulkWriteException)res.cause()).getErrors()
+                : null;
+            for (int i = 0; i < batch.handlers.size(); i++) {
+                Throwable error = res.succeeded() ? null : errors != null ? errors.get(i) : res.cause();
+                batch.handlers.get(i).handle(error == null
+                    ? Future.succeededFuture(batch.ids.get(i))
+                    : Future.failedFuture(error));
+            }
+        });
+    }
+
+}
@@ -0,0 +1,119 @@
+package org.nardhar.vertx.repository;
+
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keyset (seek) pagination helpers, a page continues after the sort values of the last record of the previous one
+ * so its cost doesn't depend on how deep it is, unlike skip
+ * Sort keys should be indexed and not null, _id is always appended as a tiebreaker
+ */
+final class Keyset {
+
+    private Keyset() {}
+
+    /**
+     * Returns the sort with _id appended as the last key, in the direction of the previous one
+     * @param sort The requested sort, could be null
+     * @return The complete sort
+     */
+    static JsonObject sortWithId(JsonObject sort) {
+        JsonObject complete = sort != null ? sort.copy() : new JsonObject();
+        if (!complete.containsKey("_id")) {
+            int direction = 1;
+            for (Map.Entry<String, Object> entry : complete) {
+                direction = ((Number)entry.getValue()).intValue();
+            }
+            complete.put("_id", direction);
+        }
+        return complete;
+    }
+
+    /**
+     * Extracts the values of the sort keys of a mongo record, it should be called before replacing its _id
+     * @param record The mongo record
+     * @param sort The complete sort
+     * @return The values in sort order
+     */
+    static JsonArray values(JsonObject record, JsonObject sort) {
+        JsonArray values = new JsonArray();
+        sort.fieldNames().forEach((key) -> values.add(valueAt(record, key)));
+        return values;
+    }
+
+    /**
+     * Restricts a query to the records after the given sort values
+     * For sort keys k1..kn it matches (k1 > v1) or (k1 = v1 and k2 > v2) or ... using $lt for descending keys
+     * @param query The original query
+     * @param sort The complete sort
+     * @param lastValues The sort values of the last record, null for the first page
+     * @return The query for the next page
+     */
+    static JsonObject after(JsonObject query, JsonObject sort, JsonArray lastValues) {
+        if (lastValues == null) {
+            return query;
+        }
+
+        List<String> keys = new ArrayList<>(sort.fieldNames());
+        JsonArray branches = new JsonArray();
+        for (int i = 0; i < keys.size(); i++) {
+            JsonObject branch = new JsonObject();
+            for (int j = 0; j < i; j++) {
+                branch.put(keys.get(j), lastValues.getValue(j));
+            }
+            String operator = sort.getInteger(keys.get(i)) < 0 ? "$lt" : "$gt";
+            branch.put(keys.get(i), new JsonObject().put(operator, lastValues.getValue(i)));
+            branches.add(branch);
+        }
+
+        JsonObject seek = branches.size() == 1 ? branches.getJsonObject(0) : new JsonObject().put("$or", branches);
+        if (query == null || query.isEmpty()) {
+            return seek;
+        }
+        return new JsonObject().put("$and", new JsonArray().add(query).add(seek));
+    }
+
+    /**
+     * Encodes the sort values as an opaque continuation token
+     * @param values The sort values
+     * @return The token
+     */
+    static String encodeCursor(JsonArray values) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(values.encode().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decodes a continuation token
+     * @param cursor The token, null for the first page
+     * @return The sort values, or null for the first page
+     * @throws IllegalArgumentException if the token is not valid
+     */
+    static JsonArray decodeCursor(String cursor) {
+        if (cursor == null || cursor.isEmpty()) {
+            return null;
+        }
+        try {
+            return new JsonArray(new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8));
+        } catch (RuntimeException ex) {
+            throw new IllegalArgumentException("Invalid cursor " + cursor, ex);
+        }
+    }
+
+    private static Object valueAt(JsonObject record, String path) {
+        Object value = record;
+        for (String key : path.split("\\.")) {
+            if (!(value instanceof JsonObject)) {
+                return null;
+            }
+            value = ((JsonObject)value).getValue(key);
+        }
+        return value;
+    }
+
+}
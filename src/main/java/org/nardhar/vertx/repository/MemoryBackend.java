@@ -0,0 +1,211 @@
+package org.nardhar.vertx.repository;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Context;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.shareddata.LocalMap;
+import io.vertx.core.shareddata.Shareable;
+import io.vertx.ext.mongo.BulkOperation;
+import io.vertx.ext.mongo.BulkWriteOptions;
+import io.vertx.ext.mongo.FindOptions;
+import io.vertx.ext.mongo.MongoClientBulkWriteResult;
+import io.vertx.ext.mongo.MongoClientDeleteResult;
+import io.vertx.ext.mongo.MongoClientUpdateResult;
+import io.vertx.ext.mongo.UpdateOptions;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * In-memory backend with hash and sorted secondary indexes, for small, hot and read-mostly collections
+ * and as a fast stand-in of mongo for tests and benchmarks
+ * It supports the queries and updates described in MemoryQuery, the data lives only in this JVM and is lost on exit
+ * Handlers are called on the context of the caller after the call returns, as with MongoClient
+ */
+public class MemoryBackend implements RepositoryBackend, Shareable {
+
+    public enum IndexType {
+        // equality and $in lookups
+        HASH,
+        // equality, $in and ranges
+        SORTED
+    }
+
+    private final Map<String, MemoryCollection> collections = new ConcurrentHashMap<>();
+
+    /**
+     * Returns the backend with a name, shared by every verticle of the vertx instance
+     * @param vertx The vertx instance
+     * @param name The name of the backend
+     * @return The backend, created empty the first time
+     */
+    public static MemoryBackend shared(Vertx vertx, String name) {
+        LocalMap<String, MemoryBackend> backends = vertx.sharedData().getLocalMap("repository.memory");
+        MemoryBackend backend = backends.get(name);
+        if (backend == null) {
+            MemoryBackend created = new MemoryBackend();
+            backend = backends.putIfAbsent(name, created);
+            if (backend == null) {
+                backend = created;
+            }
+        }
+        return backend;
+    }
+
+    /**
+     * Creates an index of a field if it doesn't exist, a sorted index replaces a hash one
+     * @param collection The collection
+     * @param field The field, dotted paths are allowed
+     * @param type The type of the index
+     */
+    public void createIndex(String collection, String field, IndexType type) {
+        collection(collection).createIndex(field, type == IndexType.SORTED);
+    }
+
+    /**
+     * Creates the indexes of a configuration, e.g. {"country": {"code": "hash", "population": "sorted"}}
+     * @param indexes The index types by field by collection
+     */
+    public void createIndexes(JsonObject indexes) {
+        indexes.fieldNames().forEach((collection) -> indexes.getJsonObject(collection).forEach((index) -> createIndex(
+            collection,
+            index.getKey(),
+            IndexType.valueOf(String.valueOf(index.getValue()).toUpperCase())
+        )));
+    }
+
+    @Override
+    public void save(String collection, JsonObject document, Handler<AsyncResult<String>> handler) {
+        complete(handler, () -> collection(collection).save(document));
+    }
+
+    @Override
+    public void insert(String collection, JsonObject document, Handler<AsyncResult<String>> handler) {
+        complete(handler, () -> collection(collection).insert(document));
+    }
+
+    @Override
+    public void bulkWriteWithOptions(
+        String collection,
+        List<BulkOperation> operations,
+        BulkWriteOptions options,
+        Handler<AsyncResult<MongoClientBulkWriteResult>> handler
+    ) {
+        complete(handler, () -> collection(collection).bulkWrite(operations, options.isOrdered()));
+    }
+
+    @Override
+    public void updateCollectionWithOptions(
+        String collection,
+        JsonObject query,
+        JsonObject update,
+        UpdateOptions options,
+        Handler<AsyncResult<MongoClientUpdateResult>> handler
+    ) {
+        complete(handler, () -> collection(collection).update(query, update, options.isUpsert(), options.isMulti()));
+    }
+
+    @Override
+    public void replaceDocuments(
+        String collection,
+        JsonObject query,
+        JsonObject replace,
+        Handler<AsyncResult<MongoClientUpdateResult>> handler
+    ) {
+        complete(handler, () -> {
+            if (!MemoryQuery.isReplacement(replace)) {
+                throw new IllegalArgumentException("Invalid replacement, it can't have update operators");
+            }
+            return collection(collection).update(query, replace, false, false);
+        });
+    }
+
+    @Override
+    public void findWithOptions(String collection, JsonObject query, FindOptions options, Handler<AsyncResult<List<JsonObject>>> handler) {
+        complete(handler, () -> collection(collection).find(
+            query,
+            options.getFields(),
+            options.getSort(),
+            options.getSkip(),
+            options.getLimit()
+        ));
+    }
+
+    @Override
+    public void findOne(String collection, JsonObject query, JsonObject fields, Handler<AsyncResult<JsonObject>> handler) {
+        complete(handler, () -> {
+            List<JsonObject> found = collection(collection).find(query, fields, null, 0, 1);
+            return found.isEmpty() ? null : found.get(0);
+        });
+    }
+
+    @Override
+    public void findOneAndUpdateWithOptions(
+        String collection,
+        JsonObject query,
+        JsonObject update,
+        FindOptions findOptions,
+        UpdateOptions updateOptions,
+        Handler<AsyncResult<JsonObject>> handler
+    ) {
+        complete(handler, () -> collection(collection).findOneAndUpdate(
+            query,
+            update,
+            findOptions.getFields(),
+            findOptions.getSort(),
+            updateOptions.isUpsert(),
+            updateOptions.isReturningNewDocument()
+        ));
+    }
+
+    @Override
+    public void findOneAndDelete(String collection, JsonObject query, Handler<AsyncResult<JsonObject>> handler) {
+        complete(handler, () -> collection(collection).findOneAndDelete(query));
+    }
+
+    @Override
+    public void removeDocument(String collection, JsonObject query, Handler<AsyncResult<MongoClientDeleteResult>> handler) {
+        complete(handler, () -> new MongoClientDeleteResult(collection(collection).remove(query, false)));
+    }
+
+    @Override
+    public void removeDocuments(String collection, JsonObject query, Handler<AsyncResult<MongoClientDeleteResult>> handler) {
+        complete(handler, () -> new MongoClientDeleteResult(collection(collection).remove(query, true)));
+    }
+
+    @Override
+    public void count(String collection, JsonObject query, Handler<AsyncResult<Long>> handler) {
+        complete(handler, () -> collection(collection).count(query));
+    }
+
+    private MemoryCollection collection(String name) {
+        return collections.computeIfAbsent(name, MemoryCollection::new);
+    }
+
+    /**
+     * Executes an operation and hands its result to the handler in a later task of the current context
+     * Outside of a vertx context the handler is called right away
+     */
+    private <T> void complete(Handler<AsyncResult<T>> handler, Supplier<T> operation) {
+        AsyncResult<T> result;
+        try {
+            result = Future.succeededFuture(operation.get());
+        } catch (RuntimeException ex) {
+            result = Future.failedFuture(ex);
+        }
+
+        Context context = Vertx.currentContext();
+        if (context == null) {
+            handler.handle(result);
+        } else {
+            AsyncResult<T> completed = result;
+            context.runOnContext((v) -> handler.handle(completed));
+        }
+    }
+
+}
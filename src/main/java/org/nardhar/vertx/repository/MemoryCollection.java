@@ -0,0 +1,553 @@
+package org.nardhar.vertx.repository;
+
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.mongo.BulkOperation;
+import io.vertx.ext.mongo.MongoClientBulkWriteResult;
+import io.vertx.ext.mongo.MongoClientUpdateResult;
+import org.bson.types.ObjectId;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+
+/**
+ * Documents of a MemoryBackend collection with their secondary indexes
+ * Documents are kept in _id order, so finds sorted by _id (or without sort) and _id ranges need no extra index
+ * Queries use the most selective equality or $in lookup of an indexed field, or else a range of a sorted index,
+ * and every candidate is matched against the whole query; without usable indexes the collection is scanned
+ * Reads share a lock and writes are exclusive, stored documents are never handed out, only copies
+ */
+class MemoryCollection {
+
+    private final String name;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // documents by the key of their _id
+    private final NavigableMap<Object, JsonObject> documents = new TreeMap<>(MemoryQuery.VALUES);
+
+    private final Map<String, Index> indexes = new HashMap<>();
+
+    /**
+     * Ids of the documents by the key of a field, every element of an array is indexed
+     */
+    private static class Index {
+        private final String field;
+        private final Map<Object, Set<Object>> entries;
+        private final boolean sorted;
+        // once an array is indexed, ranges can't use both bounds, different elements could match each one
+        private boolean multikey;
+
+        private Index(String field, boolean sorted) {
+            this.field = field;
+            this.sorted = sorted;
+            this.entries = sorted ? new TreeMap<>(MemoryQuery.VALUES) : new HashMap<>();
+        }
+
+        private Collection<Object> keys(JsonObject document) {
+            Object value = MemoryQuery.get(document, field);
+            if (value == MemoryQuery.MISSING) {
+                return Collections.singletonList(null);
+            }
+            if (value instanceof JsonArray && !((JsonArray)value).isEmpty()) {
+                multikey = true;
+                return ((JsonArray)value).stream().map(MemoryQuery::key).collect(Collectors.toList());
+            }
+            return Collections.singletonList(MemoryQuery.key(value));
+        }
+
+        private void add(Object id, JsonObject document) {
+            keys(document).forEach((key) -> entries.computeIfAbsent(key, (k) -> new HashSet<>()).add(id));
+        }
+
+        private void remove(Object id, JsonObject document) {
+            keys(document).forEach((key) -> {
+                Set<Object> ids = entries.get(key);
+                if (ids != null && ids.remove(id) && ids.isEmpty()) {
+                    entries.remove(key);
+                }
+            });
+        }
+    }
+
+    /**
+     * Ids that could match a query, with an estimate of how many they are
+     */
+    private static class Candidates {
+        private final Collection<Object> ids;
+        private final long estimate;
+
+        private Candidates(Collection<Object> ids, long estimate) {
+            this.ids = ids;
+            this.estimate = estimate;
+        }
+    }
+
+    MemoryCollection(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Creates an index of a field if it doesn't exist, indexing the current documents
+     * @param field The field, dotted paths are allowed
+     * @param sorted If it should also serve ranges, otherwise it is a hash index
+     */
+    void createIndex(String field, boolean sorted) {
+        lock.writeLock().lock();
+        try {
+            Index current = indexes.get(field);
+            if (current != null && (current.sorted || !sorted)) {
+                return;
+            }
+            Index index = new Index(field, sorted);
+            documents.forEach(index::add);
+            indexes.put(field, index);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    List<JsonObject> find(JsonObject query, JsonObject fields, JsonObject sort, int skip, int limit) {
+        lock.readLock().lock();
+        try {
+            return matching(query, sort, skip, limit).stream()
+                .map((document) -> MemoryQuery.project(document, fields))
+                .collect(Collectors.toList());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    long count(JsonObject query) {
+        lock.readLock().lock();
+        try {
+            return matching(query, null, 0, 0).size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Inserts a document, an _id is added to it if it doesn't have one
+     * @param document The document
+     * @return The generated id, null if the document had one
+     */
+    String insert(JsonObject document) {
+        lock.writeLock().lock();
+        try {
+            return insertDocument(document);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Inserts a document without _id or replaces the one with its _id, upserting it
+     * @param document The document, an _id is added to it if it doesn't have one
+     * @return The generated id, null if the document had one
+     */
+    String save(JsonObject document) {
+        lock.writeLock().lock();
+        try {
+            if (document.getValue("_id") == null) {
+                return insertDocument(document);
+            }
+            Object key = MemoryQuery.key(document.getValue("_id"));
+            JsonObject current = documents.get(key);
+            if (current != null) {
+                replaceDocument(key, current, document.copy());
+            } else {
+                store(key, document.copy());
+            }
+            return null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    MongoClientUpdateResult update(JsonObject query, JsonObject update, boolean upsert, boolean multi) {
+        lock.writeLock().lock();
+        try {
+            return updateDocuments(query, update, upsert, multi);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Updates the first document matching a query, in the given sort
+     * @return The document before or after the update, projected, null if none matched and it wasn't upserted
+     */
+    JsonObject findOneAndUpdate(JsonObject query, JsonObject update, JsonObject fields, JsonObject sort, boolean upsert, boolean returnNew) {
+        lock.writeLock().lock();
+        try {
+            List<JsonObject> found = matching(query, sort, 0, 1);
+            if (found.isEmpty()) {
+                if (!upsert) {
+                    return null;
+                }
+                JsonObject inserted = upsertDocument(query, update);
+                return returnNew ? MemoryQuery.project(inserted, fields) : null;
+            }
+            JsonObject current = found.get(0);
+            JsonObject before = MemoryQuery.project(current, fields);
+            JsonObject updated = replaceDocument(MemoryQuery.key(current.getValue("_id")), current, MemoryQuery.update(current.copy(), update, false));
+            return returnNew ? MemoryQuery.project(updated, fields) : before;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    JsonObject findOneAndDelete(JsonObject query) {
+        lock.writeLock().lock();
+        try {
+            List<JsonObject> found = matching(query, null, 0, 1);
+            if (found.isEmpty()) {
+                return null;
+            }
+            return delete(found.get(0));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    long remove(JsonObject query, boolean multi) {
+        lock.writeLock().lock();
+        try {
+            List<JsonObject> found = matching(query, null, 0, multi ? 0 : 1);
+            found.forEach(this::delete);
+            return found.size();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Executes the operations of a bulkWrite, an unordered one keeps going after a failed operation
+     * The writes done before a failure are kept, as in mongo
+     * @param operations The operations
+     * @param ordered If it should stop at the first failure
+     * @return The counters of the bulkWrite
+     * @throws BulkWriteException with the failed operations, after every possible operation was executed
+     */
+    MongoClientBulkWriteResult bulkWrite(List<BulkOperation> operations, boolean ordered) {
+        long inserted = 0;
+        long matched = 0;
+        long modified = 0;
+        long deleted = 0;
+        List<JsonObject> upserts = new ArrayList<>();
+        Map<Integer, Throwable> errors = new HashMap<>();
+
+        lock.writeLock().lock();
+        try {
+            for (int i = 0; i < operations.size(); i++) {
+                BulkOperation operation = operations.get(i);
+                try {
+                    switch (operation.getType()) {
+                        case INSERT:
+                            insertDocument(operation.getDocument().copy());
+                            inserted++;
+                            break;
+                        case UPDATE:
+                        case REPLACE:
+                            MongoClientUpdateResult result = updateDocuments(
+                                operation.getFilter(),
+                                operation.getDocument(),
+                                operation.isUpsert(),
+                                operation.getType() == BulkOperation.BulkOperationType.UPDATE && operation.isMulti()
+                            );
+                            matched += result.getDocMatched();
+                            modified += result.getDocModified();
+                            if (result.getDocUpsertedId() != null) {
+                                upserts.add(result.getDocUpsertedId().copy().put(MongoClientBulkWriteResult.INDEX, i));
+                            }
+                            break;
+                        case DELETE:
+                            List<JsonObject> found = matching(operation.getFilter(), null, 0, operation.isMulti() ? 0 : 1);
+                            found.forEach(this::delete);
+                            deleted += found.size();
+                            break;
+                        default:
+                            throw new IllegalArgumentException("Unsupported bulk operation " + operation.getType());
+                    }
+                } catch (RuntimeException ex) {
+                    errors.put(i, ex);
+                    if (ordered) {
+                        break;
+                    }
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        if (!errors.isEmpty()) {
+            throw new BulkWriteException(errors);
+        }
+        return new MongoClientBulkWriteResult(inserted, matched, deleted, modified, upserts);
+    }
+
+    private MongoClientUpdateResult updateDocuments(JsonObject query, JsonObject update, boolean upsert, boolean multi) {
+        if (multi && MemoryQuery.isReplacement(update)) {
+            throw new IllegalArgumentException("Invalid update, a replacement can't update multiple documents");
+        }
+        List<JsonObject> found = matching(query, null, 0, multi ? 0 : 1);
+        if (found.isEmpty() && upsert) {
+            JsonObject inserted = upsertDocument(query, update);
+            return new MongoClientUpdateResult(0, new JsonObject().put("_id", inserted.getValue("_id")), 0);
+        }
+
+        long modified = 0;
+        for (JsonObject current : found) {
+            JsonObject updated = MemoryQuery.update(current.copy(), update, false);
+            if (!updated.equals(current)) {
+                replaceDocument(MemoryQuery.key(current.getValue("_id")), current, updated);
+                modified++;
+            }
+        }
+        return new MongoClientUpdateResult(found.size(), null, modified);
+    }
+
+    private JsonObject upsertDocument(JsonObject query, JsonObject update) {
+        JsonObject document = MemoryQuery.isReplacement(update)
+            ? MemoryQuery.update(new JsonObject(), update, true)
+            : MemoryQuery.update(MemoryQuery.upsertDocument(query), update, true);
+        if (document.getValue("_id") == null && query != null && query.getValue("_id") != null
+            && !MemoryQuery.isOperators(query.getValue("_id"))) {
+            document.put("_id", query.getValue("_id"));
+        }
+        insertDocument(document);
+        return document;
+    }
+
+    private String insertDocument(JsonObject document) {
+        String generated = null;
+        if (document.getValue("_id") == null) {
+            generated = new ObjectId().toHexString();
+            document.put("_id", generated);
+        }
+        Object key = MemoryQuery.key(document.getValue("_id"));
+        if (documents.containsKey(key)) {
+            throw new IllegalStateException("E11000 duplicate key error collection: " + name + " index: _id_ dup key: " + key);
+        }
+        store(key, document.copy());
+        return generated;
+    }
+
+    private void store(Object key, JsonObject document) {
+        documents.put(key, document);
+        indexes.values().forEach((index) -> index.add(key, document));
+    }
+
+    private JsonObject replaceDocument(Object key, JsonObject current, JsonObject updated) {
+        indexes.values().forEach((index) -> index.remove(key, current));
+        store(key, updated);
+        return updated;
+    }
+
+    private JsonObject delete(JsonObject document) {
+        Object key = MemoryQuery.key(document.getValue("_id"));
+        indexes.values().forEach((index) -> index.remove(key, document));
+        documents.remove(key);
+        return document;
+    }
+
+    /**
+     * Returns the stored documents matching a query, it should be called with the lock held
+     * Without sort, or sorting only by _id, the documents are visited in order and it stops as soon as it has enough
+     * @param query The query
+     * @param sort The sort, null for _id order
+     * @param skip The documents to skip
+     * @param limit The maximum amount of documents, 0 or less for all of them
+     * @return The matching documents, they must not be modified
+     */
+    private List<JsonObject> matching(JsonObject query, JsonObject sort, int skip, int limit) {
+        Candidates candidates = candidates(query);
+        long wanted = limit > 0 ? (long)skip + limit : Long.MAX_VALUE;
+        int direction = idDirection(sort);
+
+        List<JsonObject> found = new ArrayList<>();
+        for (Object key : ordered(candidates, direction)) {
+            JsonObject document = documents.get(key);
+            if (document != null && MemoryQuery.matches(document, query)) {
+                found.add(document);
+                if (direction != 0 && found.size() >= wanted) {
+                    break;
+                }
+            }
+        }
+        if (direction == 0) {
+            found.sort(MemoryQuery.comparator(sort));
+        }
+
+        int from = (int)Math.min(skip, found.size());
+        int to = (int)Math.min(wanted, found.size());
+        return from == 0 && to == found.size() ? found : found.subList(from, to);
+    }
+
+    // 1 or -1 if the documents are returned in _id order, 0 if they have to be sorted
+    private int idDirection(JsonObject sort) {
+        if (sort == null || sort.isEmpty()) {
+            return 1;
+        }
+        if (sort.size() == 1 && sort.containsKey("_id")) {
+            return ((Number)sort.getValue("_id")).intValue() < 0 ? -1 : 1;
+        }
+        return 0;
+    }
+
+    private Iterable<Object> ordered(Candidates candidates, int direction) {
+        if (candidates == null) {
+            return direction < 0 ? documents.descendingKeySet() : documents.keySet();
+        }
+        if (candidates.ids instanceof NavigableSet) {
+            return direction < 0 ? ((NavigableSet<Object>)candidates.ids).descendingSet() : candidates.ids;
+        }
+        if (direction == 0) {
+            return candidates.ids;
+        }
+        List<Object> keys = new ArrayList<>(candidates.ids);
+        keys.sort(direction < 0 ? MemoryQuery.VALUES.reversed() : MemoryQuery.VALUES);
+        return keys;
+    }
+
+    /**
+     * Returns the ids that could match a query using the indexes, null if every document has to be scanned
+     */
+    private Candidates candidates(JsonObject query) {
+        if (query == null) {
+            return null;
+        }
+        Candidates best = null;
+        for (Map.Entry<String, Object> condition : query) {
+            String key = condition.getKey();
+            Candidates candidates = null;
+            if (key.equals("$and")) {
+                for (Object branch : (JsonArray)condition.getValue()) {
+                    candidates = smallest(candidates, candidates((JsonObject)branch));
+                }
+            } else if (key.equals("$or")) {
+                candidates = union((JsonArray)condition.getValue());
+            } else if (!key.startsWith("$")) {
+                candidates = lookup(key, condition.getValue());
+            }
+            best = smallest(best, candidates);
+        }
+        return best;
+    }
+
+    private Candidates smallest(Candidates a, Candidates b) {
+        if (a == null) {
+            return b;
+        }
+        return b == null || a.estimate <= b.estimate ? a : b;
+    }
+
+    // every branch of an $or should use an index, otherwise the collection is scanned anyway
+    private Candidates union(JsonArray branches) {
+        Set<Object> ids = new LinkedHashSet<>();
+        for (Object branch : branches) {
+            Candidates candidates = candidates((JsonObject)branch);
+            if (candidates == null) {
+                return null;
+            }
+            ids.addAll(candidates.ids);
+        }
+        return new Candidates(ids, ids.size());
+    }
+
+    private Candidates lookup(String field, Object expected) {
+        Index index = indexes.get(field);
+        boolean id = field.equals("_id");
+        if (index == null && !id) {
+            return null;
+        }
+
+        JsonObject operators = MemoryQuery.isOperators(expected) ? (JsonObject)expected : null;
+        if (operators == null || operators.containsKey("$eq")) {
+            Object value = operators == null ? expected : operators.getValue("$eq");
+            return isScalar(value) ? equal(index, id, new JsonArray().add(value)) : null;
+        }
+        if (operators.containsKey("$in")) {
+            JsonArray values = operators.getJsonArray("$in");
+            return values.stream().allMatch(this::isScalar) ? equal(index, id, values) : null;
+        }
+        if (id || index.sorted) {
+            return range(index, id, operators);
+        }
+        return null;
+    }
+
+    // null, arrays and embedded documents are matched by scanning, missing fields and arrays complicate their lookups
+    private boolean isScalar(Object value) {
+        return value != null && !(value instanceof JsonObject) && !(value instanceof JsonArray);
+    }
+
+    private Candidates equal(Index index, boolean id, JsonArray values) {
+        Set<Object> ids = new HashSet<>();
+        for (Object value : values) {
+            Object key = MemoryQuery.key(value);
+            if (id) {
+                if (documents.containsKey(key)) {
+                    ids.add(key);
+                }
+            } else {
+                ids.addAll(index.entries.getOrDefault(key, Collections.emptySet()));
+            }
+        }
+        return new Candidates(ids, ids.size());
+    }
+
+    @SuppressWarnings("unchecked")
+    private Candidates range(Index index, boolean id, JsonObject operators) {
+        Object lower = null;
+        Object upper = null;
+        boolean lowerInclusive = false;
+        boolean upperInclusive = false;
+        if (operators.containsKey("$gte")) {
+            lower = MemoryQuery.key(operators.getValue("$gte"));
+            lowerInclusive = true;
+        } else if (operators.containsKey("$gt")) {
+            lower = MemoryQuery.key(operators.getValue("$gt"));
+        }
+        if (operators.containsKey("$lte")) {
+            upper = MemoryQuery.key(operators.getValue("$lte"));
+            upperInclusive = true;
+        } else if (operators.containsKey("$lt")) {
+            upper = MemoryQuery.key(operators.getValue("$lt"));
+        }
+        if ((lower == null && upper == null) || (lower != null && upper != null && MemoryQuery.compare(lower, upper) > 0)) {
+            return null;
+        }
+        if (!id && index.multikey && lower != null) {
+            upper = null;
+        }
+
+        NavigableMap<Object, ?> map = id ? documents : (NavigableMap<Object, Set<Object>>)index.entries;
+        NavigableMap<Object, ?> bounded = lower != null && upper != null
+            ? map.subMap(lower, lowerInclusive, upper, upperInclusive)
+            : lower != null ? map.tailMap(lower, lowerInclusive) : map.headMap(upper, upperInclusive);
+
+        if (id) {
+            // a view in _id order, its size is not known without walking it so it is preferred only over a scan
+            return new Candidates(bounded.navigableKeySet(), Long.MAX_VALUE - 1);
+        }
+        Set<Object> ids = new HashSet<>();
+        bounded.values().forEach((entry) -> ids.addAll((Set<Object>)entry));
+        return new Candidates(ids, ids.size());
+    }
+
+}
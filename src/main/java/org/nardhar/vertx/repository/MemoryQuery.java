@@ -0,0 +1,493 @@
+package org.nardhar.vertx.repository;
+
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.function.IntPredicate;
+
+/**
+ * Mongo query semantics for the MemoryBackend: matching, ordering, projections and updates
+ * Supported queries are field equality, $eq, $ne, $in, $nin, $gt, $gte, $lt, $lte, $exists, $and, $or and $nor,
+ * supported updates are $set, $unset, $inc, $setOnInsert and whole document replacements
+ * Values of different types are ordered as mongo does (null, numbers, strings, objects, arrays, booleans)
+ * and ranges only match values of the same type
+ */
+final class MemoryQuery {
+
+    /**
+     * Value of a path that is not present in a document, unlike a present null
+     */
+    static final Object MISSING = new Object();
+
+    static final Comparator<Object> VALUES = MemoryQuery::compare;
+
+    private MemoryQuery() {}
+
+    /**
+     * Verifies if a document matches a query
+     * @param document The document
+     * @param query The query, null or empty matches every document
+     * @return If it matches
+     * @throws IllegalArgumentException if the query uses an unsupported operator
+     */
+    static boolean matches(JsonObject document, JsonObject query) {
+        if (query == null) {
+            return true;
+        }
+        for (Map.Entry<String, Object> condition : query) {
+            String key = condition.getKey();
+            switch (key) {
+                case "$and":
+                    for (Object branch : (JsonArray)condition.getValue()) {
+                        if (!matches(document, (JsonObject)branch)) {
+                            return false;
+                        }
+                    }
+                    break;
+                case "$or":
+                    if (!matchesAny(document, (JsonArray)condition.getValue())) {
+                        return false;
+                    }
+                    break;
+                case "$nor":
+                    if (matchesAny(document, (JsonArray)condition.getValue())) {
+                        return false;
+                    }
+                    break;
+                default:
+                    if (key.startsWith("$")) {
+                        throw new IllegalArgumentException("Unsupported query operator " + key);
+                    }
+                    if (!matchesField(get(document, key), condition.getValue())) {
+                        return false;
+                    }
+            }
+        }
+        return true;
+    }
+
+    private static boolean matchesAny(JsonObject document, JsonArray branches) {
+        for (Object branch : branches) {
+            if (matches(document, (JsonObject)branch)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean matchesField(Object value, Object expected) {
+        if (!isOperators(expected)) {
+            return equalsAny(value, expected);
+        }
+        for (Map.Entry<String, Object> operator : (JsonObject)expected) {
+            if (!matchesOperator(value, operator.getKey(), operator.getValue())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean matchesOperator(Object value, String operator, Object operand) {
+        switch (operator) {
+            case "$eq":
+                return equalsAny(value, operand);
+            case "$ne":
+                return !equalsAny(value, operand);
+            case "$in":
+                return in(value, (JsonArray)operand);
+            case "$nin":
+                return !in(value, (JsonArray)operand);
+            case "$gt":
+                return compareAny(value, operand, (result) -> result > 0);
+            case "$gte":
+                return compareAny(value, operand, (result) -> result >= 0);
+            case "$lt":
+                return compareAny(value, operand, (result) -> result < 0);
+            case "$lte":
+                return compareAny(value, operand, (result) -> result <= 0);
+            case "$exists":
+                return (value != MISSING) == isTrue(operand);
+            default:
+                throw new IllegalArgumentException("Unsupported query operator " + operator);
+        }
+    }
+
+    /**
+     * Verifies if a query value is an object of operators, e.g. {"$gt": 5}
+     * @param expected The query value
+     * @return If it has operators instead of being an embedded document
+     */
+    static boolean isOperators(Object expected) {
+        if (!(expected instanceof JsonObject) || ((JsonObject)expected).isEmpty()) {
+            return false;
+        }
+        return ((JsonObject)expected).fieldNames().iterator().next().startsWith("$");
+    }
+
+    private static boolean in(Object value, JsonArray operands) {
+        for (Object operand : operands) {
+            if (equalsAny(value, operand)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // missing fields are equal to null and arrays match if any of their elements does
+    private static boolean equalsAny(Object value, Object expected) {
+        if (value == MISSING) {
+            return expected == null;
+        }
+        if (same(value, expected)) {
+            return true;
+        }
+        if (value instanceof JsonArray) {
+            for (Object element : (JsonArray)value) {
+                if (same(element, expected)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static boolean compareAny(Object value, Object operand, IntPredicate test) {
+        if (value == MISSING) {
+            return false;
+        }
+        if (rank(value) == rank(operand) && test.test(compare(value, operand))) {
+            return true;
+        }
+        if (value instanceof JsonArray) {
+            for (Object element : (JsonArray)value) {
+                if (rank(element) == rank(operand) && test.test(compare(element, operand))) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static boolean same(Object value, Object expected) {
+        return rank(value) == rank(expected) && compare(value, expected) == 0;
+    }
+
+    private static boolean isTrue(Object operand) {
+        if (operand instanceof Boolean) {
+            return (Boolean)operand;
+        }
+        if (operand instanceof Number) {
+            return ((Number)operand).doubleValue() != 0;
+        }
+        return operand != null;
+    }
+
+    /**
+     * Mongo order of two values, first by type and then by value
+     * @param a A value
+     * @param b Another value
+     * @return The comparison result
+     */
+    static int compare(Object a, Object b) {
+        int rankA = rank(a);
+        int rankB = rank(b);
+        if (rankA != rankB) {
+            return Integer.compare(rankA, rankB);
+        }
+        if (a == null || a == MISSING || b == null || b == MISSING) {
+            return 0;
+        }
+        if (a instanceof Number) {
+            if (isIntegral(a) && isIntegral(b)) {
+                return Long.compare(((Number)a).longValue(), ((Number)b).longValue());
+            }
+            return Double.compare(((Number)a).doubleValue(), ((Number)b).doubleValue());
+        }
+        if (a instanceof CharSequence) {
+            return a.toString().compareTo(b.toString());
+        }
+        if (a instanceof JsonArray) {
+            JsonArray arrayA = (JsonArray)a;
+            JsonArray arrayB = (JsonArray)b;
+            for (int i = 0; i < Math.min(arrayA.size(), arrayB.size()); i++) {
+                int result = compare(arrayA.getValue(i), arrayB.getValue(i));
+                if (result != 0) {
+                    return result;
+                }
+            }
+            return Integer.compare(arrayA.size(), arrayB.size());
+        }
+        if (a instanceof JsonObject) {
+            return ((JsonObject)a).encode().compareTo(((JsonObject)b).encode());
+        }
+        if (a instanceof byte[]) {
+            byte[] bytesA = (byte[])a;
+            byte[] bytesB = (byte[])b;
+            return bytesA.length != bytesB.length
+                ? Integer.compare(bytesA.length, bytesB.length)
+                : Arrays.toString(bytesA).compareTo(Arrays.toString(bytesB));
+        }
+        if (a instanceof Boolean) {
+            return Boolean.compare((Boolean)a, (Boolean)b);
+        }
+        return a.toString().compareTo(b.toString());
+    }
+
+    private static int rank(Object value) {
+        if (value == null || value == MISSING) return 1;
+        if (value instanceof Number) return 2;
+        if (value instanceof CharSequence) return 3;
+        if (value instanceof JsonObject) return 4;
+        if (value instanceof JsonArray) return 5;
+        if (value instanceof byte[]) return 6;
+        if (value instanceof Boolean) return 8;
+        return 9;
+    }
+
+    private static boolean isIntegral(Object number) {
+        return number instanceof Long || number instanceof Integer || number instanceof Short || number instanceof Byte;
+    }
+
+    /**
+     * Returns a value usable as a key of hash and sorted indexes, numbers equal for mongo get the same key
+     * @param value The value
+     * @return The key
+     */
+    static Object key(Object value) {
+        if (value instanceof Number && !isIntegral(value)) {
+            double number = ((Number)value).doubleValue();
+            if (number == Math.rint(number) && Math.abs(number) < 0x1p53) {
+                return (long)number;
+            }
+            return number;
+        }
+        if (value instanceof Number) {
+            return ((Number)value).longValue();
+        }
+        if (value instanceof CharSequence) {
+            return value.toString();
+        }
+        return value;
+    }
+
+    /**
+     * Returns the order of a find sort
+     * @param sort The sort, e.g. {"name": 1, "_id": -1}
+     * @return The comparator of documents
+     */
+    static Comparator<JsonObject> comparator(JsonObject sort) {
+        return (a, b) -> {
+            for (Map.Entry<String, Object> key : sort) {
+                int result = compare(get(a, key.getKey()), get(b, key.getKey()));
+                if (result != 0) {
+                    return ((Number)key.getValue()).intValue() < 0 ? -result : result;
+                }
+            }
+            return 0;
+        };
+    }
+
+    /**
+     * Returns the value of a dotted path of a document
+     * @param document The document
+     * @param path The path, e.g. "address.city" or "tags.0"
+     * @return The value, MISSING if it is not present
+     */
+    static Object get(JsonObject document, String path) {
+        if (path.indexOf('.') < 0) {
+            return document.containsKey(path) ? document.getValue(path) : MISSING;
+        }
+        Object value = document;
+        for (String key : path.split("\\.")) {
+            if (value instanceof JsonObject && ((JsonObject)value).containsKey(key)) {
+                value = ((JsonObject)value).getValue(key);
+            } else if (value instanceof JsonArray && isIndex(key, ((JsonArray)value).size())) {
+                value = ((JsonArray)value).getValue(Integer.parseInt(key));
+            } else {
+                return MISSING;
+            }
+        }
+        return value;
+    }
+
+    private static boolean isIndex(String key, int size) {
+        if (key.isEmpty() || key.length() > 9 || !key.chars().allMatch(Character::isDigit)) {
+            return false;
+        }
+        return Integer.parseInt(key) < size;
+    }
+
+    /**
+     * Sets the value of a dotted path, creating the missing embedded documents
+     */
+    private static void put(JsonObject document, String path, Object value) {
+        String[] keys = path.split("\\.");
+        JsonObject parent = document;
+        for (int i = 0; i < keys.length - 1; i++) {
+            Object child = parent.getValue(keys[i]);
+            if (!(child instanceof JsonObject)) {
+                if (child != null) {
+                    throw new IllegalArgumentException("Cannot create field " + keys[i + 1] + " in element " + keys[i]);
+                }
+                child = new JsonObject();
+                parent.put(keys[i], child);
+            }
+            parent = (JsonObject)child;
+        }
+        parent.put(keys[keys.length - 1], value);
+    }
+
+    private static void remove(JsonObject document, String path) {
+        int dot = path.lastIndexOf('.');
+        Object parent = dot < 0 ? document : get(document, path.substring(0, dot));
+        if (parent instanceof JsonObject) {
+            ((JsonObject)parent).remove(path.substring(dot + 1));
+        }
+    }
+
+    /**
+     * Returns a copy of a document with only the fields of a projection
+     * @param document The document
+     * @param fields The projection, inclusive ({"name": 1}) or exclusive ({"name": 0}), null for the whole document
+     * @return The projected copy
+     */
+    static JsonObject project(JsonObject document, JsonObject fields) {
+        if (fields == null || fields.isEmpty()) {
+            return document.copy();
+        }
+        boolean inclusive = false;
+        for (Map.Entry<String, Object> field : fields) {
+            if (!field.getKey().equals("_id") && isTrue(field.getValue())) {
+                inclusive = true;
+            }
+        }
+
+        if (!inclusive) {
+            JsonObject projected = document.copy();
+            fields.fieldNames().forEach((path) -> remove(projected, path));
+            return projected;
+        }
+
+        JsonObject projected = new JsonObject();
+        if (!fields.containsKey("_id") || isTrue(fields.getValue("_id"))) {
+            projected.put("_id", document.getValue("_id"));
+        }
+        for (Map.Entry<String, Object> field : fields) {
+            Object value = get(document, field.getKey());
+            if (!field.getKey().equals("_id") && isTrue(field.getValue()) && value != MISSING) {
+                put(projected, field.getKey(), copy(value));
+            }
+        }
+        return projected;
+    }
+
+    private static Object copy(Object value) {
+        if (value instanceof JsonObject) {
+            return ((JsonObject)value).copy();
+        }
+        if (value instanceof JsonArray) {
+            return ((JsonArray)value).copy();
+        }
+        return value;
+    }
+
+    /**
+     * Verifies if an update is a replacement document instead of a set of update operators
+     * @param update The update
+     * @return If it replaces the whole document
+     */
+    static boolean isReplacement(JsonObject update) {
+        return update.isEmpty() || !update.fieldNames().iterator().next().startsWith("$");
+    }
+
+    /**
+     * Applies an update or a replacement to a document, the _id can't be modified
+     * @param document The document, it is modified
+     * @param update The update operators or the replacement document
+     * @param inserting If the document is being inserted by an upsert, for $setOnInsert
+     * @return The updated document, a new one for replacements
+     * @throws IllegalArgumentException if the update is not supported or modifies the _id
+     */
+    static JsonObject update(JsonObject document, JsonObject update, boolean inserting) {
+        Object id = document.getValue("_id");
+
+        JsonObject updated;
+        if (isReplacement(update)) {
+            updated = update.copy();
+            if (id != null) {
+                updated.put("_id", id);
+            }
+        } else {
+            updated = document;
+            for (Map.Entry<String, Object> operator : update) {
+                JsonObject values = (JsonObject)operator.getValue();
+                switch (operator.getKey()) {
+                    case "$set":
+                        values.forEach((entry) -> put(updated, entry.getKey(), copy(entry.getValue())));
+                        break;
+                    case "$setOnInsert":
+                        if (inserting) {
+                            values.forEach((entry) -> put(updated, entry.getKey(), copy(entry.getValue())));
+                        }
+                        break;
+                    case "$unset":
+                        values.fieldNames().forEach((path) -> remove(updated, path));
+                        break;
+                    case "$inc":
+                        values.forEach((entry) -> put(updated, entry.getKey(), add(get(updated, entry.getKey()), entry.getValue())));
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Unsupported update operator " + operator.getKey());
+                }
+            }
+        }
+
+        if (id != null && compare(id, updated.getValue("_id")) != 0) {
+            throw new IllegalArgumentException("Performing an update on the path '_id' would modify the immutable field '_id'");
+        }
+        return updated;
+    }
+
+    private static Number add(Object value, Object increment) {
+        if (!(increment instanceof Number) || !(value == MISSING || value == null || value instanceof Number)) {
+            throw new IllegalArgumentException("Cannot apply $inc to a non-numeric value");
+        }
+        Number current = value instanceof Number ? (Number)value : 0;
+        if (isIntegral(current) && isIntegral(increment)) {
+            return current.longValue() + ((Number)increment).longValue();
+        }
+        return current.doubleValue() + ((Number)increment).doubleValue();
+    }
+
+    /**
+     * Returns the document an upsert inserts before applying its update, with the equality conditions of the query
+     * @param query The query
+     * @return The new document
+     */
+    static JsonObject upsertDocument(JsonObject query) {
+        JsonObject document = new JsonObject();
+        if (query == null) {
+            return document;
+        }
+        for (Map.Entry<String, Object> condition : query) {
+            String key = condition.getKey();
+            Object value = condition.getValue();
+            if (key.equals("$and")) {
+                for (Object branch : (JsonArray)value) {
+                    upsertDocument((JsonObject)branch).forEach((entry) -> put(document, entry.getKey(), entry.getValue()));
+                }
+            } else if (!key.startsWith("$")) {
+                if (!isOperators(value)) {
+                    put(document, key, copy(value));
+                } else if (((JsonObject)value).containsKey("$eq")) {
+                    put(document, key, copy(((JsonObject)value).getValue("$eq")));
+                }
+            }
+        }
+        return document;
+    }
+
+}
@@ -2,6 +2,7 @@ package org.nardhar.vertx.repository;
 
 import io.vertx.core.Future;
 import org.nardhar.vertx.exception.ValidationException;
+import org.nardhar.vertx.validation.Validator;
 
 public interface Model {
 
@@ -9,8 +10,14 @@ public interface Model {
 
     void setId(String id);
 
+    /**
+     * Validates the constraint annotations of the fields of the model, see Validator
+     * Models can override it for other validations, adding their errors to the exception of Model.super.validate()
+     * @return A future of the validation errors, check them with hasErrors()
+     */
     default Future<ValidationException> validate() {
-        return Future.succeededFuture(new ValidationException("", ""));
+        ValidationException errors = Validator.of(getClass()).validate(this);
+        return Future.succeededFuture(errors != null ? errors : new ValidationException("", ""));
     };
 
 }
@@ -0,0 +1,168 @@
+package org.nardhar.vertx.repository;
+
+import io.vertx.core.json.JsonObject;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * LRU cache of mongo documents by id for a single model, with TTL and stale-while-revalidate
+ * Entries older than ttl are still served until ttl + staleTtl while they are fetched again
+ * It must be used from a single verticle context
+ */
+class ModelCache {
+
+    enum State { FRESH, STALE }
+
+    static class Entry {
+        private final JsonObject document;
+        private final long storedAt;
+        private boolean refreshing;
+
+        private Entry(JsonObject document, long storedAt) {
+            this.document = document;
+            this.storedAt = storedAt;
+        }
+
+        JsonObject getDocument() {
+            return document;
+        }
+    }
+
+    private final int maxSize;
+    private final long ttl;
+    private final long staleTtl;
+
+    private final LinkedHashMap<String, Entry> entries;
+
+    // incremented on every invalidation, so reads started before it don't store old documents
+    private long generation;
+
+    private long hits;
+    private long staleHits;
+    private long misses;
+    private long evictions;
+    private long invalidations;
+
+    ModelCache(int maxSize, long ttl, long staleTtl) {
+        this.maxSize = maxSize;
+        this.ttl = ttl;
+        this.staleTtl = staleTtl;
+        this.entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                if (size() > ModelCache.this.maxSize) {
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    static ModelCache fromConfig(JsonObject config) {
+        return new ModelCache(
+            config.getInteger("size", 1000),
+            config.getLong("ttl", 60000L),
+            config.getLong("staleTtl", 0L)
+        );
+    }
+
+    /**
+     * Returns the entry of an id if it is fresh or stale, counting the hit or miss
+     * @param id The id
+     * @param now The current time in milliseconds
+     * @return The entry, or null if it is missing or expired
+     */
+    Entry get(String id, long now) {
+        Entry entry = entries.get(id);
+        if (entry != null) {
+            long age = now - entry.storedAt;
+            if (age <= ttl) {
+                hits++;
+                return entry;
+            }
+            if (age <= ttl + staleTtl) {
+                staleHits++;
+                return entry;
+            }
+            entries.remove(id);
+            evictions++;
+        }
+        misses++;
+        return null;
+    }
+
+    State state(Entry entry, long now) {
+        return now - entry.storedAt <= ttl ? State.FRESH : State.STALE;
+    }
+
+    /**
+     * Marks a stale entry as being revalidated
+     * @param entry The entry
+     * @return true if nobody else is revalidating it
+     */
+    boolean startRefresh(Entry entry) {
+        if (entry.refreshing) {
+            return false;
+        }
+        entry.refreshing = true;
+        return true;
+    }
+
+    long generation() {
+        return generation;
+    }
+
+    /**
+     * Stores a document if there were no invalidations since the read started
+     * @param id The id
+     * @param document The mongo document, it must not be modified afterwards
+     * @param readGeneration The generation when the read started
+     * @param now The current time in milliseconds
+     */
+    void put(String id, JsonObject document, long readGeneration, long now) {
+        if (readGeneration == generation) {
+            entries.put(id, new Entry(document, now));
+        }
+    }
+
+    void invalidate(String id) {
+        generation++;
+        if (entries.remove(id) != null) {
+            invalidations++;
+        }
+    }
+
+    void invalidateAll() {
+        generation++;
+        invalidations += entries.size();
+        entries.clear();
+    }
+
+    /**
+     * Removes the expired entries, so they don't take space until they are evicted
+     * @param now The current time in milliseconds
+     */
+    void purge(long now) {
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (iterator.hasNext()) {
+            if (now - iterator.next().storedAt > ttl + staleTtl) {
+                iterator.remove();
+                evictions++;
+            }
+        }
+    }
+
+    JsonObject stats() {
+        return new JsonObject()
+            .put("size", entries.size())
+            .put("hits", hits)
+            .put("staleHits", staleHits)
+            .put("misses", misses)
+            .put("evictions", evictions)
+            .put("invalidations", invalidations);
+    }
+
+}
@@ -0,0 +1,104 @@
+package org.nardhar.vertx.repository;
+
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.eventbus.EventBus;
+import io.vertx.core.eventbus.MessageCodec;
+import io.vertx.core.json.DecodeException;
+import io.vertx.core.json.JsonObject;
+import org.nardhar.vertx.converter.Converter;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * EventBus codec for Model instances
+ * Local deliveries hand over the same reference, so the sender must not modify the model after sending it,
+ * only clustered deliveries are encoded to JSON (prefixed with the model class name)
+ */
+public class ModelCodec implements MessageCodec<Model, Model> {
+
+    public static final String NAME = "model";
+
+    private static final Map<String, Class<?>> classCache = new ConcurrentHashMap<>();
+
+    /**
+     * Registers the Model and List of Model codecs in the eventBus, ignoring them if they were already registered
+     * It should be called in every Vertx instance that sends or receives models
+     * @param eventBus The eventBus
+     */
+    public static void register(EventBus eventBus) {
+        try {
+            eventBus.registerCodec(new ModelCodec());
+        } catch (IllegalStateException ex) {
+            // already registered by another verticle
+        }
+        try {
+            eventBus.registerCodec(new ModelListCodec());
+        } catch (IllegalStateException ex) {
+            // already registered by another verticle
+        }
+    }
+
+    @Override
+    public void encodeToWire(Buffer buffer, Model model) {
+        writeModel(buffer, model);
+    }
+
+    @Override
+    public Model decodeFromWire(int pos, Buffer buffer) {
+        return readModel(new int[] {pos}, buffer);
+    }
+
+    @Override
+    public Model transform(Model model) {
+        // same JVM, no conversion needed
+        return model;
+    }
+
+    @Override
+    public String name() {
+        return NAME;
+    }
+
+    @Override
+    public byte systemCodecID() {
+        return -1;
+    }
+
+    static void writeModel(Buffer buffer, Model model) {
+        writeString(buffer, model.getClass().getName());
+        writeString(buffer, Converter.toJsonObject(model).encode());
+    }
+
+    static Model readModel(int[] pos, Buffer buffer) {
+        String className = readString(pos, buffer);
+        String json = readString(pos, buffer);
+        return (Model)Converter.fromJsonObject(new JsonObject(json), modelClass(className));
+    }
+
+    private static void writeString(Buffer buffer, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        buffer.appendInt(bytes.length);
+        buffer.appendBytes(bytes);
+    }
+
+    private static String readString(int[] pos, Buffer buffer) {
+        int length = buffer.getInt(pos[0]);
+        pos[0] += 4;
+        String value = buffer.getString(pos[0], pos[0] + length, "UTF-8");
+        pos[0] += length;
+        return value;
+    }
+
+    private static Class<?> modelClass(String className) {
+        return classCache.computeIfAbsent(className, (name) -> {
+            try {
+                return Class.forName(name);
+            } catch (ClassNotFoundException ex) {
+                throw new DecodeException("Could not find model " + name);
+            }
+        });
+    }
+
+}
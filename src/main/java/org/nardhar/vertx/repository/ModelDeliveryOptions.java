@@ -0,0 +1,75 @@
+package org.nardhar.vertx.repository;
+
+import org.nardhar.vertx.eventbus.DeliveryTemplate;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Prebuilt DeliveryOptions for every model class, so sending to the repository doesn't allocate headers on every call
+ */
+public final class ModelDeliveryOptions {
+
+    private static final Map<Class<?>, ModelDeliveryOptions> cache = new ConcurrentHashMap<>();
+
+    // headers only, for jsonObject messages
+    private final DeliveryTemplate json;
+    // for sending a model as is with the ModelCodec
+    private final DeliveryTemplate model;
+    // for sending a list of models as is with the ModelListCodec
+    private final DeliveryTemplate modelList;
+    // for jsonObject messages whose reply should be a model or a list of models
+    private final DeliveryTemplate modelReply;
+
+    // per model address of every repository operation
+    private final Map<String, String> addresses;
+
+    private ModelDeliveryOptions(Class<?> clazz) {
+        Map<String, String> headers = Collections.singletonMap("model", clazz.getName());
+        Map<String, String> replyHeaders = new HashMap<>(headers);
+        replyHeaders.put("reply", "model");
+
+        json = DeliveryTemplate.of(headers, null);
+        model = DeliveryTemplate.of(headers, ModelCodec.NAME);
+        modelList = DeliveryTemplate.of(headers, ModelListCodec.NAME);
+        modelReply = DeliveryTemplate.of(replyHeaders, null);
+
+        Map<String, String> modelAddresses = new HashMap<>();
+        RepositoryAddress.OPERATIONS.forEach((operation) -> modelAddresses.put(operation, RepositoryAddress.of(clazz.getName(), operation)));
+        addresses = Collections.unmodifiableMap(modelAddresses);
+    }
+
+    public static ModelDeliveryOptions of(Class<? extends Model> clazz) {
+        // plain get first, computeIfAbsent locks even when the key is present
+        ModelDeliveryOptions options = cache.get(clazz);
+        return options != null ? options : cache.computeIfAbsent(clazz, ModelDeliveryOptions::new);
+    }
+
+    /**
+     * Returns the address of an operation for this model
+     * @param operation The operation, one of RepositoryAddress.OPERATIONS
+     * @return The address
+     */
+    public String address(String operation) {
+        return addresses.get(operation);
+    }
+
+    public DeliveryTemplate getJson() {
+        return json;
+    }
+
+    public DeliveryTemplate getModel() {
+        return model;
+    }
+
+    public DeliveryTemplate getModelList() {
+        return modelList;
+    }
+
+    public DeliveryTemplate getModelReply() {
+        return modelReply;
+    }
+
+}
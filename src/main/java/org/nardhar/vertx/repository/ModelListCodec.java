@@ -0,0 +1,49 @@
+package org.nardhar.vertx.repository;
+
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.eventbus.MessageCodec;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * EventBus codec for Lists of Model instances
+ * Local deliveries hand over the same list reference, clustered deliveries encode every model with ModelCodec's format
+ */
+public class ModelListCodec implements MessageCodec<List<Model>, List<Model>> {
+
+    public static final String NAME = "modelList";
+
+    @Override
+    public void encodeToWire(Buffer buffer, List<Model> models) {
+        buffer.appendInt(models.size());
+        models.forEach((model) -> ModelCodec.writeModel(buffer, model));
+    }
+
+    @Override
+    public List<Model> decodeFromWire(int pos, Buffer buffer) {
+        int size = buffer.getInt(pos);
+        int[] position = new int[] {pos + 4};
+        List<Model> models = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            models.add(ModelCodec.readModel(position, buffer));
+        }
+        return models;
+    }
+
+    @Override
+    public List<Model> transform(List<Model> models) {
+        return models;
+    }
+
+    @Override
+    public String name() {
+        return NAME;
+    }
+
+    @Override
+    public byte systemCodecID() {
+        return -1;
+    }
+
+}
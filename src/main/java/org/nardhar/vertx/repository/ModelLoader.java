@@ -0,0 +1,159 @@
+package org.nardhar.vertx.repository;
+
+import io.vertx.core.Context;
+import io.vertx.core.Future;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import org.nardhar.vertx.converter.Converter;
+import org.nardhar.vertx.eventbus.Deadline;
+import org.nardhar.vertx.eventbus.FailureReply;
+import org.nardhar.vertx.exception.BusinessException;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Batches the id lookups requested in the same event loop task into a single findAll with $in
+ * Repeated ids are fetched once, every caller gets its own model instance so they can modify it
+ * Every caller is completed with its own Deadline, a batch is sent with the latest deadline of its callers
+ * or without one if any of them has none
+ * There is one loader per Vertx context, so it is only used from its own thread
+ */
+class ModelLoader {
+
+    private static final String CONTEXT_KEY = ModelLoader.class.getName();
+
+    // maximum amount of ids per $in query
+    static final int MAX_BATCH_SIZE = 500;
+
+    private final Context context;
+    private final RepositorySender sender;
+
+    // pending ids by model, in request order
+    private Map<Class<? extends Model>, Map<String, List<Waiter>>> pending = new LinkedHashMap<>();
+    private boolean scheduled;
+
+    /**
+     * A caller waiting for a model, with the deadline it was running with
+     */
+    private static class Waiter {
+        private final Future<Model> future = Future.future();
+        private final Deadline deadline = Deadline.current();
+
+        private void complete(Model model) {
+            Deadline.run(deadline, () -> future.complete(model));
+        }
+
+        private void fail(Throwable cause) {
+            Deadline.run(deadline, () -> future.fail(cause));
+        }
+    }
+
+    private ModelLoader(Context context, RepositorySender sender) {
+        this.context = context;
+        this.sender = sender;
+    }
+
+    /**
+     * Returns the loader of the context, creating it with the given sender if there is none
+     * @param context The current context
+     * @param sender The sender for the batched queries
+     * @return The loader
+     */
+    static ModelLoader of(Context context, RepositorySender sender) {
+        ModelLoader loader = context.get(CONTEXT_KEY);
+        if (loader == null) {
+            loader = new ModelLoader(context, sender);
+            context.put(CONTEXT_KEY, loader);
+        }
+        return loader;
+    }
+
+    @SuppressWarnings("unchecked")
+    <T extends Model> Future<T> load(Class<T> clazz, String id) {
+        Waiter waiter = new Waiter();
+
+        pending.computeIfAbsent(clazz, (key) -> new LinkedHashMap<>())
+            .computeIfAbsent(id, (key) -> new ArrayList<>(1))
+            .add(waiter);
+
+        if (!scheduled) {
+            // dispatching after the current task, so every lookup of this tick is in the batch
+            scheduled = true;
+            context.runOnContext((v) -> dispatch());
+        }
+
+        return (Future<T>)(Future<?>)waiter.future;
+    }
+
+    private void dispatch() {
+        Map<Class<? extends Model>, Map<String, List<Waiter>>> batch = pending;
+        pending = new LinkedHashMap<>();
+        scheduled = false;
+
+        batch.forEach((clazz, waiting) -> {
+            List<String> ids = new ArrayList<>(waiting.keySet());
+            for (int from = 0; from < ids.size(); from += MAX_BATCH_SIZE) {
+                List<String> chunk = ids.subList(from, Math.min(from + MAX_BATCH_SIZE, ids.size()));
+                fetch(clazz, chunk, waiting);
+            }
+        });
+    }
+
+    /**
+     * The deadline of a batch, the query must not be dropped before any of its callers stops waiting for it
+     * @param waiters The callers of the batch
+     * @return The latest deadline, null if a caller has none
+     */
+    private Deadline latest(List<Waiter> waiters) {
+        Deadline latest = null;
+        for (Waiter waiter : waiters) {
+            if (waiter.deadline == null) {
+                return null;
+            }
+            if (latest == null || waiter.deadline.getAt() > latest.getAt()) {
+                latest = waiter.deadline;
+            }
+        }
+        return latest;
+    }
+
+    private void fetch(Class<? extends Model> clazz, List<String> ids, Map<String, List<Waiter>> waiting) {
+        JsonObject query = new JsonObject()
+            .put("_id", new JsonObject().put("$in", new JsonArray(new ArrayList<>(ids))));
+        Deadline deadline = latest(ids.stream().flatMap((id) -> waiting.get(id).stream()).collect(Collectors.toList()));
+
+        Deadline.run(deadline, () -> sender.dbFindAll(clazz, query).setHandler((result) -> {
+            if (result.failed()) {
+                ids.forEach((id) -> waiting.get(id).forEach((waiter) -> waiter.fail(result.cause())));
+                return;
+            }
+
+            Map<String, Model> found = new HashMap<>();
+            result.result().forEach((model) -> found.put(model.getId(), model));
+
+            ids.forEach((id) -> {
+                Model model = found.get(id);
+                List<Waiter> waiters = waiting.get(id);
+                for (int i = 0; i < waiters.size(); i++) {
+                    Waiter waiter = waiters.get(i);
+                    if (model != null) {
+                        // the first caller gets the found model, the others a copy of it
+                        waiter.complete(i == 0 ? model : Converter.fromJsonObject(Converter.toJsonObject(model), clazz));
+                    } else {
+                        // same failure as repository.findOne
+                        waiter.fail(FailureReply.of(404, new BusinessException(
+                            clazz.getSimpleName() + " Not Found",
+                            "repository.notFound.error"
+                        )));
+                    }
+                }
+            });
+        }));
+    }
+
+}
@@ -0,0 +1,73 @@
+package org.nardhar.vertx.repository;
+
+import io.vertx.core.json.JsonObject;
+import org.nardhar.vertx.converter.JsonMapper;
+import org.nardhar.vertx.converter.JsonMappers;
+
+import java.lang.reflect.Field;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Metadata of the model classes, resolved once per JVM and shared by every RepositoryVerticle instance
+ */
+final class ModelRegistry {
+
+    static final class ModelInfo {
+        private final Class<? extends Model> clazz;
+        private final String collection;
+        private final JsonObject projection;
+
+        private ModelInfo(Class<? extends Model> clazz, String collection, JsonMapper<?> mapper) {
+            this.clazz = clazz;
+            this.collection = collection;
+            this.projection = mapper != null ? Projection.of(mapper.fields(), mapper.idField()) : Projection.of(clazz);
+        }
+
+        Class<? extends Model> getClazz() {
+            return clazz;
+        }
+
+        String getCollection() {
+            return collection;
+        }
+
+        /**
+         * @return The projection of the declared fields, it must not be modified
+         */
+        JsonObject getProjection() {
+            return projection;
+        }
+    }
+
+    private static final Map<String, ModelInfo> models = new ConcurrentHashMap<>();
+
+    private ModelRegistry() {}
+
+    /**
+     * Returns the metadata of a model class, taken from its generated JsonMapper when it has one
+     * or reading its static collection property the first time
+     * @param clazz The class of the model
+     * @return The metadata
+     * @throws IllegalArgumentException if the model has no readable collection property
+     */
+    static ModelInfo register(Class<? extends Model> clazz) {
+        ModelInfo info = models.get(clazz.getName());
+        return info != null ? info : models.computeIfAbsent(clazz.getName(), (name) -> {
+            JsonMapper<?> mapper = JsonMappers.get(clazz);
+            if (mapper != null && mapper.collection() != null) {
+                return new ModelInfo(clazz, mapper.collection(), mapper);
+            }
+            try {
+                Field field = clazz.getDeclaredField("collection");
+                field.setAccessible(true);
+                return new ModelInfo(clazz, (String)field.get(null), mapper);
+            } catch (NoSuchFieldException ex) {
+                throw new IllegalArgumentException("No collection property for model " + clazz.getName());
+            } catch (IllegalAccessException ex) {
+                throw new IllegalArgumentException("Collection property not readable for model " + clazz.getName());
+            }
+        });
+    }
+
+}
@@ -0,0 +1,67 @@
+package org.nardhar.vertx.repository;
+
+import io.vertx.core.CompositeFuture;
+import io.vertx.core.Future;
+import org.nardhar.vertx.exception.FieldError;
+import org.nardhar.vertx.exception.ValidationException;
+import org.nardhar.vertx.validation.Validator;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Validation of models for RepositorySender, models that don't override Model.validate are checked
+ * with their compiled Validator directly, without the ValidationException of the valid ones
+ */
+final class ModelValidation {
+
+    // if the class overrides Model.validate, so it must be called
+    private static final ClassValue<Boolean> customValidate = new ClassValue<Boolean>() {
+        @Override
+        protected Boolean computeValue(Class<?> type) {
+            try {
+                return type.getMethod("validate").getDeclaringClass() != Model.class;
+            } catch (NoSuchMethodException ex) {
+                return false;
+            }
+        }
+    };
+
+    private ModelValidation() {}
+
+    static <T extends Model> Future<T> validate(T model) {
+        if (customValidate.get(model.getClass())) {
+            return model.validate().compose((errors) -> errors.hasErrors()
+                ? Future.failedFuture(errors)
+                : Future.succeededFuture(model));
+        }
+        ValidationException errors = Validator.of(model.getClass()).validate(model);
+        return errors == null ? Future.succeededFuture(model) : Future.failedFuture(errors);
+    }
+
+    @SuppressWarnings("unchecked")
+    static <T extends Model> Future<List<T>> validateAll(List<T> models) {
+        if (models.stream().noneMatch((model) -> customValidate.get(model.getClass()))) {
+            ValidationException errors = Validator.validateAll(models);
+            return errors == null ? Future.succeededFuture(models) : Future.failedFuture(errors);
+        }
+
+        List<Future> validated = models.stream().map(Model::validate).collect(Collectors.toList());
+        return CompositeFuture.all(validated).compose((all) -> {
+            ValidationException errors = null;
+            for (int i = 0; i < validated.size(); i++) {
+                ValidationException modelErrors = (ValidationException)validated.get(i).result();
+                if (modelErrors.hasErrors()) {
+                    if (errors == null) {
+                        errors = new ValidationException("Models are not valid", "validation.error");
+                    }
+                    for (FieldError error : modelErrors.getErrors()) {
+                        errors.addError(i + "." + error.getField(), error.getCode(), error.getArgs());
+                    }
+                }
+            }
+            return errors == null ? Future.succeededFuture(models) : Future.failedFuture(errors);
+        });
+    }
+
+}
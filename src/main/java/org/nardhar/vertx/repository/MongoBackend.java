@@ -0,0 +1,252 @@
+package org.nardhar.vertx.repository;
+
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.MongoWriteException;
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.mongo.BulkOperation;
+import io.vertx.ext.mongo.BulkWriteOptions;
+import io.vertx.ext.mongo.FindOptions;
+import io.vertx.ext.mongo.MongoClient;
+import io.vertx.ext.mongo.MongoClientBulkWriteResult;
+import io.vertx.ext.mongo.MongoClientDeleteResult;
+import io.vertx.ext.mongo.MongoClientUpdateResult;
+import io.vertx.ext.mongo.UpdateOptions;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The default backend, every call goes as is to a MongoClient
+ * but the reads with a maxTime, the MongoClient options don't have it so they are sent as find and count commands
+ * Commands always run on the primary, so with another read preference the reads go as is and the maxTime is ignored
+ */
+public class MongoBackend implements RepositoryBackend {
+
+    private final MongoClient mongoClient;
+    private final boolean primaryReads;
+
+    /**
+     * @param mongoClient A client that reads from the primary
+     */
+    public MongoBackend(MongoClient mongoClient) {
+        this(mongoClient, true);
+    }
+
+    /**
+     * @param mongoClient The client
+     * @param primaryReads If the client reads from the primary, only then the reads with a maxTime are sent as commands
+     */
+    public MongoBackend(MongoClient mongoClient, boolean primaryReads) {
+        this.mongoClient = mongoClient;
+        this.primaryReads = primaryReads;
+    }
+
+    @Override
+    public void save(String collection, JsonObject document, Handler<AsyncResult<String>> handler) {
+        mongoClient.save(collection, document, handler);
+    }
+
+    @Override
+    public void insert(String collection, JsonObject document, Handler<AsyncResult<String>> handler) {
+        mongoClient.insert(collection, document, handler);
+    }
+
+    @Override
+    public void bulkWriteWithOptions(
+        String collection,
+        List<BulkOperation> operations,
+        BulkWriteOptions options,
+        Handler<AsyncResult<MongoClientBulkWriteResult>> handler
+    ) {
+        mongoClient.bulkWriteWithOptions(collection, operations, options, (res) -> {
+            if (res.failed() && res.cause() instanceof MongoBulkWriteException) {
+                // the failed operations are reported as a single insert or update would fail
+                MongoBulkWriteException failure = (MongoBulkWriteException)res.cause();
+                Map<Integer, Throwable> errors = new HashMap<>();
+                failure.getWriteErrors().forEach((error) -> errors.put(
+                    error.getIndex(),
+                    new MongoWriteException(error, failure.getServerAddress())
+                ));
+                if (!errors.isEmpty()) {
+                    handler.handle(Future.failedFuture(new BulkWriteException(errors)));
+                    return;
+                }
+            }
+            handler.handle(res);
+        });
+    }
+
+    @Override
+    public void updateCollectionWithOptions(
+        String collection,
+        JsonObject query,
+        JsonObject update,
+        UpdateOptions options,
+        Handler<AsyncResult<MongoClientUpdateResult>> handler
+    ) {
+        mongoClient.updateCollectionWithOptions(collection, query, update, options, handler);
+    }
+
+    @Override
+    public void replaceDocuments(
+        String collection,
+        JsonObject query,
+        JsonObject replace,
+        Handler<AsyncResult<MongoClientUpdateResult>> handler
+    ) {
+        mongoClient.replaceDocuments(collection, query, replace, handler);
+    }
+
+    @Override
+    public void findWithOptions(String collection, JsonObject query, FindOptions options, Handler<AsyncResult<List<JsonObject>>> handler) {
+        mongoClient.findWithOptions(collection, query, options, handler);
+    }
+
+    @Override
+    public void findWithOptions(
+        String collection,
+        JsonObject query,
+        FindOptions options,
+        long maxTime,
+        Handler<AsyncResult<List<JsonObject>>> handler
+    ) {
+        if (maxTime <= 0 || !primaryReads) {
+            findWithOptions(collection, query, options, handler);
+            return;
+        }
+        JsonObject command = new JsonObject()
+            .put("find", collection)
+            .put("filter", query)
+            .put("maxTimeMS", maxTime);
+        if (options.getFields() != null && !options.getFields().isEmpty()) {
+            command.put("projection", options.getFields());
+        }
+        if (options.getSort() != null && !options.getSort().isEmpty()) {
+            command.put("sort", options.getSort());
+        }
+        if (options.getSkip() > 0) {
+            command.put("skip", options.getSkip());
+        }
+        if (options.getLimit() > 0) {
+            command.put("limit", options.getLimit());
+        }
+        mongoClient.runCommand("find", command, (res) -> {
+            if (res.failed()) {
+                handler.handle(Future.failedFuture(res.cause()));
+                return;
+            }
+            List<JsonObject> documents = new ArrayList<>();
+            nextBatch(collection, res.result().getJsonObject("cursor"), "firstBatch", documents, handler);
+        });
+    }
+
+    /**
+     * Adds a batch of a find command cursor to the documents and gets the next one until the cursor is exhausted
+     * The maxTimeMS of the find applies to all of its batches
+     */
+    private void nextBatch(
+        String collection,
+        JsonObject cursor,
+        String batch,
+        List<JsonObject> documents,
+        Handler<AsyncResult<List<JsonObject>>> handler
+    ) {
+        JsonArray batchDocuments = cursor.getJsonArray(batch);
+        for (int i = 0; i < batchDocuments.size(); i++) {
+            documents.add(batchDocuments.getJsonObject(i));
+        }
+        long id = cursor.getLong("id", 0L);
+        if (id == 0) {
+            handler.handle(Future.succeededFuture(documents));
+            return;
+        }
+        JsonObject getMore = new JsonObject()
+            .put("getMore", id)
+            .put("collection", collection);
+        mongoClient.runCommand("getMore", getMore, (res) -> {
+            if (res.succeeded()) {
+                nextBatch(collection, res.result().getJsonObject("cursor"), "nextBatch", documents, handler);
+            } else {
+                handler.handle(Future.failedFuture(res.cause()));
+            }
+        });
+    }
+
+    @Override
+    public void findOne(String collection, JsonObject query, JsonObject fields, Handler<AsyncResult<JsonObject>> handler) {
+        mongoClient.findOne(collection, query, fields, handler);
+    }
+
+    @Override
+    public void findOne(
+        String collection,
+        JsonObject query,
+        JsonObject fields,
+        long maxTime,
+        Handler<AsyncResult<JsonObject>> handler
+    ) {
+        if (maxTime <= 0 || !primaryReads) {
+            findOne(collection, query, fields, handler);
+            return;
+        }
+        FindOptions options = new FindOptions().setLimit(1);
+        if (fields != null) {
+            options.setFields(fields);
+        }
+        findWithOptions(collection, query, options, maxTime, (res) -> handler.handle(
+            res.map((documents) -> documents.isEmpty() ? null : documents.get(0))
+        ));
+    }
+
+    @Override
+    public void findOneAndUpdateWithOptions(
+        String collection,
+        JsonObject query,
+        JsonObject update,
+        FindOptions findOptions,
+        UpdateOptions updateOptions,
+        Handler<AsyncResult<JsonObject>> handler
+    ) {
+        mongoClient.findOneAndUpdateWithOptions(collection, query, update, findOptions, updateOptions, handler);
+    }
+
+    @Override
+    public void findOneAndDelete(String collection, JsonObject query, Handler<AsyncResult<JsonObject>> handler) {
+        mongoClient.findOneAndDelete(collection, query, handler);
+    }
+
+    @Override
+    public void removeDocument(String collection, JsonObject query, Handler<AsyncResult<MongoClientDeleteResult>> handler) {
+        mongoClient.removeDocument(collection, query, handler);
+    }
+
+    @Override
+    public void removeDocuments(String collection, JsonObject query, Handler<AsyncResult<MongoClientDeleteResult>> handler) {
+        mongoClient.removeDocuments(collection, query, handler);
+    }
+
+    @Override
+    public void count(String collection, JsonObject query, Handler<AsyncResult<Long>> handler) {
+        mongoClient.count(collection, query, handler);
+    }
+
+    @Override
+    public void count(String collection, JsonObject query, long maxTime, Handler<AsyncResult<Long>> handler) {
+        if (maxTime <= 0 || !primaryReads) {
+            count(collection, query, handler);
+            return;
+        }
+        JsonObject command = new JsonObject()
+            .put("count", collection)
+            .put("query", query)
+            .put("maxTimeMS", maxTime);
+        mongoClient.runCommand("count", command, (res) -> handler.handle(res.map((result) -> result.getLong("n"))));
+    }
+
+}
@@ -0,0 +1,34 @@
+package org.nardhar.vertx.repository;
+
+import java.util.List;
+
+/**
+ * A page of models with the opaque cursor for fetching the next one
+ * @param <T> The type of the model
+ */
+public class Page<T extends Model> {
+
+    private final List<T> items;
+    private final String cursor;
+
+    public Page(List<T> items, String cursor) {
+        this.items = items;
+        this.cursor = cursor;
+    }
+
+    public List<T> getItems() {
+        return items;
+    }
+
+    /**
+     * @return The cursor for the next page, null if this is the last one
+     */
+    public String getCursor() {
+        return cursor;
+    }
+
+    public boolean hasNext() {
+        return cursor != null;
+    }
+
+}
@@ -0,0 +1,83 @@
+package org.nardhar.vertx.repository;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.vertx.core.json.JsonObject;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.List;
+
+/**
+ * Builds mongo projections from the declared fields of a model class
+ */
+final class Projection {
+
+    private Projection() {}
+
+    /**
+     * Creates an inclusion projection with every serializable field of the class and its superclasses
+     * id is mapped to _id, static, transient and @JsonIgnore fields are skipped
+     * @param clazz The class of the model
+     * @return The projection
+     */
+    static JsonObject of(Class<?> clazz) {
+        JsonObject projection = new JsonObject().put("_id", 1);
+        for (Class<?> current = clazz; current != null && current != Object.class; current = current.getSuperclass()) {
+            for (Field field : current.getDeclaredFields()) {
+                int modifiers = field.getModifiers();
+                if (Modifier.isStatic(modifiers) || Modifier.isTransient(modifiers) || field.isSynthetic()) {
+                    continue;
+                }
+                JsonIgnore ignore = field.getAnnotation(JsonIgnore.class);
+                if (ignore != null && ignore.value()) {
+                    continue;
+                }
+                JsonProperty property = field.getAnnotation(JsonProperty.class);
+                String name = property != null && !property.value().isEmpty() ? property.value() : field.getName();
+                if (!"id".equals(name)) {
+                    projection.put(name, 1);
+                }
+            }
+        }
+        return projection;
+    }
+
+    /**
+     * Creates an inclusion projection with the json names of the properties of a generated JsonMapper
+     * @param fields The json names of the properties
+     * @param idField The json name of the id property, it's mapped to _id
+     * @return The projection
+     */
+    static JsonObject of(List<String> fields, String idField) {
+        JsonObject projection = new JsonObject().put("_id", 1);
+        fields.stream().filter((name) -> !name.equals(idField)).forEach((name) -> projection.put(name, 1));
+        return projection;
+    }
+
+    /**
+     * Adds the sort keys to an inclusion projection, so keyset cursors can be built from the projected records
+     * @param projection The projection, could be null
+     * @param sort The sort
+     * @return The projection including the sort keys, or null if there was no projection
+     */
+    static JsonObject withSortKeys(JsonObject projection, JsonObject sort) {
+        if (projection == null || isExclusion(projection)) {
+            return projection;
+        }
+        JsonObject complete = projection.copy();
+        sort.fieldNames().forEach((key) -> complete.put(key, 1));
+        return complete;
+    }
+
+    private static boolean isExclusion(JsonObject projection) {
+        for (String key : projection.fieldNames()) {
+            Object value = projection.getValue(key);
+            if (!"_id".equals(key) && (Boolean.FALSE.equals(value) || (value instanceof Number && ((Number)value).intValue() == 0))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+}
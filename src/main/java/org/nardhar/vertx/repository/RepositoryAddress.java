@@ -0,0 +1,59 @@
+package org.nardhar.vertx.repository;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * EventBus addresses of the repository operations
+ * Every model has its own address per operation, repository.{model class name}.{operation},
+ * so hot models can be served by their own RepositoryVerticle instances
+ */
+public final class RepositoryAddress {
+
+    public static final List<String> OPERATIONS = Collections.unmodifiableList(Arrays.asList(
+        "save",
+        "insert",
+        "insertMany",
+        "saveAll",
+        "update",
+        "updateMulti",
+        "replace",
+        "findAll",
+        "findOne",
+        "stream",
+        "findPage",
+        "findOneAndUpdate",
+        "findOneAndDelete",
+        "delete",
+        "deleteAll",
+        "count"
+    ));
+
+    /**
+     * Address where the repository publishes {"model": name} after writes to a model, for invalidating caches outside it
+     */
+    public static final String WRITTEN = "repository.written";
+
+    private RepositoryAddress() {}
+
+    /**
+     * Address shared by all the models, the model is taken from the model header
+     * @param operation The operation
+     * @return The address
+     */
+    public static String of(String operation) {
+        return "repository." + operation;
+    }
+
+    /**
+     * Address of an operation for a single model
+     * @param model The model class name
+     * @param operation The operation
+     * @return The address
+     */
+    public static String of(String model, String operation) {
+        return "repository." + model + "." + operation;
+    }
+
+}
@@ -0,0 +1,106 @@
+package org.nardhar.vertx.repository;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Handler;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.mongo.BulkOperation;
+import io.vertx.ext.mongo.BulkWriteOptions;
+import io.vertx.ext.mongo.FindOptions;
+import io.vertx.ext.mongo.MongoClientBulkWriteResult;
+import io.vertx.ext.mongo.MongoClientDeleteResult;
+import io.vertx.ext.mongo.MongoClientUpdateResult;
+import io.vertx.ext.mongo.UpdateOptions;
+
+import java.util.List;
+
+/**
+ * Storage behind the repository consumers, the subset of the MongoClient contract that RepositoryVerticle uses
+ * Every method behaves as the MongoClient method with the same name, documents are stored with _id
+ * but a bulkWrite with failed write operations fails with a BulkWriteException, telling which ones failed
+ * The reads with a maxTime are aborted by the server once they run longer, backends without a limit ignore it
+ * MongoBackend only limits them when it reads from the primary: the limit is sent with a command, which always
+ * runs on the primary, so with secondary reads it keeps their read preference and the reads run without a limit
+ */
+public interface RepositoryBackend {
+
+    void save(String collection, JsonObject document, Handler<AsyncResult<String>> handler);
+
+    void insert(String collection, JsonObject document, Handler<AsyncResult<String>> handler);
+
+    void bulkWriteWithOptions(
+        String collection,
+        List<BulkOperation> operations,
+        BulkWriteOptions options,
+        Handler<AsyncResult<MongoClientBulkWriteResult>> handler
+    );
+
+    void updateCollectionWithOptions(
+        String collection,
+        JsonObject query,
+        JsonObject update,
+        UpdateOptions options,
+        Handler<AsyncResult<MongoClientUpdateResult>> handler
+    );
+
+    void replaceDocuments(
+        String collection,
+        JsonObject query,
+        JsonObject replace,
+        Handler<AsyncResult<MongoClientUpdateResult>> handler
+    );
+
+    void findWithOptions(String collection, JsonObject query, FindOptions options, Handler<AsyncResult<List<JsonObject>>> handler);
+
+    void findOne(String collection, JsonObject query, JsonObject fields, Handler<AsyncResult<JsonObject>> handler);
+
+    /**
+     * @param maxTime The time limit in milliseconds, 0 for none
+     */
+    default void findWithOptions(
+        String collection,
+        JsonObject query,
+        FindOptions options,
+        long maxTime,
+        Handler<AsyncResult<List<JsonObject>>> handler
+    ) {
+        findWithOptions(collection, query, options, handler);
+    }
+
+    /**
+     * @param maxTime The time limit in milliseconds, 0 for none
+     */
+    default void findOne(
+        String collection,
+        JsonObject query,
+        JsonObject fields,
+        long maxTime,
+        Handler<AsyncResult<JsonObject>> handler
+    ) {
+        findOne(collection, query, fields, handler);
+    }
+
+    void findOneAndUpdateWithOptions(
+        String collection,
+        JsonObject query,
+        JsonObject update,
+        FindOptions findOptions,
+        UpdateOptions updateOptions,
+        Handler<AsyncResult<JsonObject>> handler
+    );
+
+    void findOneAndDelete(String collection, JsonObject query, Handler<AsyncResult<JsonObject>> handler);
+
+    void removeDocument(String collection, JsonObject query, Handler<AsyncResult<MongoClientDeleteResult>> handler);
+
+    void removeDocuments(String collection, JsonObject query, Handler<AsyncResult<MongoClientDeleteResult>> handler);
+
+    void count(String collection, JsonObject query, Handler<AsyncResult<Long>> handler);
+
+    /**
+     * @param maxTime The time limit in milliseconds, 0 for none
+     */
+    default void count(String collection, JsonObject query, long maxTime, Handler<AsyncResult<Long>> handler) {
+        count(collection, query, handler);
+    }
+
+}
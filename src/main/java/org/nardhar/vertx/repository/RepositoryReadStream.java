@@ -0,0 +1,158 @@
+package org.nardhar.vertx.repository;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Handler;
+import io.vertx.core.eventbus.DeliveryOptions;
+import io.vertx.core.eventbus.Message;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.streams.ReadStream;
+import org.nardhar.vertx.eventbus.BusSender;
+import org.nardhar.vertx.eventbus.Deadline;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * ReadStream of models fetched in chunks from the repository.stream address
+ * Every chunk is a reply to the previous credit message, so RepositoryVerticle only reads the next chunk
+ * when this stream asks for it, and at most one chunk of models is kept in memory at any time
+ * Its handlers run with the Deadline that was current when it was created, and every chunk is asked for with it
+ * and the SendPolicy of the address, as busSend does
+ * @param <T> The type of the model
+ */
+public class RepositoryReadStream<T extends Model> implements ReadStream<T> {
+
+    private final BusSender sender;
+    private final String address;
+    private final DeliveryOptions deliveryOptions;
+    private final JsonObject query;
+    private final int batchSize;
+    private final Function<Object, List<T>> converter;
+    private final Deadline deadline = Deadline.current();
+
+    private final Deque<T> buffer = new ArrayDeque<>();
+
+    private Handler<T> handler;
+    private Handler<Void> endHandler;
+    private Handler<Throwable> exceptionHandler;
+
+    // last chunk received, replying to it asks the repository for the next one
+    private Message<Object> lastChunk;
+    private boolean started;
+    private boolean paused;
+    private boolean requesting;
+    private boolean delivering;
+    private boolean lastChunkReceived;
+    private boolean ended;
+
+    public RepositoryReadStream(
+        BusSender sender,
+        String address,
+        DeliveryOptions deliveryOptions,
+        JsonObject query,
+        int batchSize,
+        Function<Object, List<T>> converter
+    ) {
+        this.sender = sender;
+        this.address = address;
+        this.deliveryOptions = deliveryOptions;
+        this.query = query;
+        this.batchSize = batchSize;
+        this.converter = converter;
+    }
+
+    @Override
+    public RepositoryReadStream<T> exceptionHandler(Handler<Throwable> handler) {
+        this.exceptionHandler = handler;
+        return this;
+    }
+
+    @Override
+    public RepositoryReadStream<T> handler(Handler<T> handler) {
+        this.handler = handler;
+        // the stream starts flowing once it has a handler
+        if (handler != null && !started) {
+            started = true;
+            requesting = true;
+            Deadline.run(deadline, () -> sender.<Object>busRequest(
+                address,
+                deliveryOptions,
+                new JsonObject().put("query", query).put("credit", batchSize)
+            ).setHandler(this::handleChunk));
+        }
+        return this;
+    }
+
+    @Override
+    public RepositoryReadStream<T> pause() {
+        paused = true;
+        return this;
+    }
+
+    @Override
+    public RepositoryReadStream<T> resume() {
+        paused = false;
+        deliver();
+        return this;
+    }
+
+    @Override
+    public RepositoryReadStream<T> endHandler(Handler<Void> endHandler) {
+        this.endHandler = endHandler;
+        return this;
+    }
+
+    private void handleChunk(AsyncResult<Message<Object>> result) {
+        requesting = false;
+        if (result.failed()) {
+            ended = true;
+            buffer.clear();
+            if (exceptionHandler != null) {
+                exceptionHandler.handle(result.cause());
+            }
+            return;
+        }
+
+        lastChunk = result.result();
+        lastChunkReceived = "true".equals(lastChunk.headers().get("end"));
+        buffer.addAll(converter.apply(lastChunk.body()));
+
+        deliver();
+    }
+
+    private void deliver() {
+        // avoiding reentrant calls from resume() inside the handler
+        if (delivering || ended) {
+            return;
+        }
+        delivering = true;
+        while (!paused && !buffer.isEmpty()) {
+            T model = buffer.poll();
+            if (handler != null) {
+                handler.handle(model);
+            }
+        }
+        delivering = false;
+
+        if (!buffer.isEmpty() || paused || requesting) {
+            return;
+        }
+        if (lastChunkReceived) {
+            ended = true;
+            if (endHandler != null) {
+                endHandler.handle(null);
+            }
+        } else if (lastChunk != null) {
+            // the buffer is drained, giving the repository credit for the next chunk
+            requesting = true;
+            Deadline.run(deadline, () -> sender.<Object>busRequest(
+                address,
+                deliveryOptions,
+                (options, replyHandler) -> lastChunk.reply(new JsonObject().put("credit", batchSize), options, replyHandler)
+            ).setHandler(this::handleChunk));
+        }
+    }
+
+}
@@ -1,7 +1,13 @@
 package org.nardhar.vertx.repository;
 
+import io.vertx.core.Context;
 import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.eventbus.DeliveryOptions;
+import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
+import io.vertx.core.streams.ReadStream;
+import org.nardhar.vertx.converter.Converter;
 import org.nardhar.vertx.eventbus.BusSender;
 import org.nardhar.vertx.exception.ValidationException;
 
@@ -21,20 +27,96 @@ public interface RepositorySender extends BusSender {
         return headers;
     }
 
+    /**
+     * Creates the deliveryOptions for sending a model as is with the ModelCodec
+     * @param headers The headers for the repository
+     * @return The deliveryOptions
+     */
+    default DeliveryOptions dbModelOptions(Map<String, String> headers) {
+        DeliveryOptions deliveryOptions = new DeliveryOptions().setCodecName(ModelCodec.NAME);
+        headers.forEach(deliveryOptions::addHeader);
+        return deliveryOptions;
+    }
+
+    /**
+     * Returns the prebuilt deliveryOptions of a model, they should be copied before being modified
+     * @param clazz The class of the model
+     * @param <T> The type of the model
+     * @return The cached deliveryOptions of the model
+     */
+    default <T extends Model> ModelDeliveryOptions dbOptions(Class<T> clazz) {
+        return ModelDeliveryOptions.of(clazz);
+    }
+
+    /**
+     * Converts a reply body to a model, local replies are already an instance of the model
+     * @param clazz The class of the model
+     * @param body The reply body
+     * @param <T> The type of the model
+     * @return The model
+     */
+    default <T extends Model> T dbToModel(Class<T> clazz, Object body) {
+        if (clazz.isInstance(body)) {
+            return clazz.cast(body);
+        }
+        return Converter.fromJsonObject((JsonObject)body, clazz);
+    }
+
+    /**
+     * Converts a reply body to a list of models, local replies are already a list of instances of the model
+     * @param clazz The class of the model
+     * @param body The reply body
+     * @param <T> The type of the model
+     * @return The list of models
+     */
+    @SuppressWarnings("unchecked")
+    default <T extends Model> List<T> dbToModelList(Class<T> clazz, Object body) {
+        if (body instanceof List) {
+            return (List<T>)body;
+        }
+        return ((JsonArray)body).stream()
+            .map(row -> Converter.fromJsonObject((JsonObject)row, clazz))
+            .collect(Collectors.toList());
+    }
+
     default <T extends Model> Function<T, Future<T>> dbSave(Class<T> clazz) {
         // we get the class of the model
         return (model) -> dbSave(clazz, model);
     }
 
     default <T extends Model> Future<T> dbSave(Class<T> clazz, T model) {
-        // sends to databaseVerticle converting the model to a jsonObject
-        return busGetObject("repository.save", dbHeaders(clazz), JsonObject.mapFrom(model))
-            .compose((savedModel) -> Future.succeededFuture(savedModel.mapTo(clazz)));
+        // sends the model as is to databaseVerticle, it is only converted to a jsonObject if it crosses the cluster
+        return busSend(dbOptions(clazz).address("save"), dbOptions(clazz).getModel(), model)
+            .compose((savedModel) -> Future.succeededFuture(dbToModel(clazz, savedModel)));
     }
 
     default <T extends Model> Future<T> dbInsert(Class<T> clazz, T model) {
-        return busGetObject("repository.insert", dbHeaders(clazz), JsonObject.mapFrom(model))
-            .compose((savedModel) -> Future.succeededFuture(savedModel.mapTo(clazz)));
+        return busSend(dbOptions(clazz).address("insert"), dbOptions(clazz).getModel(), model)
+            .compose((savedModel) -> Future.succeededFuture(dbToModel(clazz, savedModel)));
+    }
+
+    /**
+     * Inserts a list of models with a single bulk write
+     * @param clazz The class of the model
+     * @param models The models, they are returned with their ids
+     * @param <T> The type of the model
+     * @return The inserted models
+     */
+    default <T extends Model> Future<List<T>> dbInsertMany(Class<T> clazz, List<T> models) {
+        return busSend(dbOptions(clazz).address("insertMany"), dbOptions(clazz).getModelList(), models)
+            .compose((savedModels) -> Future.succeededFuture(dbToModelList(clazz, savedModels)));
+    }
+
+    /**
+     * Saves a list of models with a single bulk write, behaving as dbSave for every one of them
+     * @param clazz The class of the model
+     * @param models The models, they are returned with their ids
+     * @param <T> The type of the model
+     * @return The saved models
+     */
+    default <T extends Model> Future<List<T>> dbSaveAll(Class<T> clazz, List<T> models) {
+        return busSend(dbOptions(clazz).address("saveAll"), dbOptions(clazz).getModelList(), models)
+            .compose((savedModels) -> Future.succeededFuture(dbToModelList(clazz, savedModels)));
     }
 
     default <T extends Model> Future<T> dbUpdate(Class<T> clazz, T model) {
@@ -42,12 +124,17 @@ public interface RepositorySender extends BusSender {
     }
 
     default <T extends Model> Future<T> dbUpdate(Class<T> clazz, T model, JsonObject options) {
+        if (options.isEmpty()) {
+            return busSend(dbOptions(clazz).address("update"), dbOptions(clazz).getModel(), model)
+                .compose((updatedModel) -> Future.succeededFuture(dbToModel(clazz, updatedModel)));
+        }
+
         Map<String, String> headers = dbHeaders(clazz);
-        if (options.containsKey("upsert")) headers.put("upsert", "true");
+        if (options.containsKey("upsert")) headers.put("upsert", String.valueOf(options.getValue("upsert")));
         if (options.containsKey("writeConcern")) headers.put("writeConcern", options.getString("writeConcern"));
 
-        return busGetObject("repository.update", headers, JsonObject.mapFrom(model))
-            .compose((updatedModel) -> Future.succeededFuture(updatedModel.mapTo(clazz)));
+        return busSend(dbOptions(clazz).address("update"), dbModelOptions(headers), model)
+            .compose((updatedModel) -> Future.succeededFuture(dbToModel(clazz, updatedModel)));
     }
 
     default <T extends Model> Function<T, Future<T>> dbUpdate(Class<T> clazz) {
@@ -58,75 +145,243 @@ public interface RepositorySender extends BusSender {
         return (model) -> dbUpdate(clazz, model, options);
     }
 
-    default <T extends Model> Future<List<T>> dbUpdateMulti(Class<T> clazz, JsonObject query, JsonObject data) {
+    default <T extends Model> Future<WriteResult> dbUpdateMulti(Class<T> clazz, JsonObject query, JsonObject data) {
         return dbUpdateMulti(clazz, query, data, new JsonObject());
     }
 
-    default <T extends Model> Future<List<T>> dbUpdateMulti(Class<T> clazz, JsonObject query, JsonObject data, JsonObject options) {
+    /**
+     * Updates all the models matching a query, the updated models are not fetched again
+     * @param clazz The class of the model
+     * @param query The query
+     * @param data The data to set
+     * @param options multi (true by default), upsert and writeConcern
+     * @param <T> The type of the model
+     * @return The matched and modified counts and the upserted ids
+     */
+    default <T extends Model> Future<WriteResult> dbUpdateMulti(Class<T> clazz, JsonObject query, JsonObject data, JsonObject options) {
         Map<String, String> headers = dbHeaders(clazz);
-        headers.put("multi", options.getString("multi"));
-        if (options.containsKey("upsert")) headers.put("upsert", options.getString("upsert"));
+        if (options.containsKey("multi")) headers.put("multi", String.valueOf(options.getValue("multi")));
+        if (options.containsKey("upsert")) headers.put("upsert", String.valueOf(options.getValue("upsert")));
         if (options.containsKey("writeConcern")) headers.put("writeConcern", options.getString("writeConcern"));
 
         return busGetObject(
-            "repository.updateMulti",
+            dbOptions(clazz).address("updateMulti"),
             headers,
             new JsonObject()
                 .put("query", query)
                 .put("data", data)
         )
-            .compose((result) -> dbFindAll(clazz, query));
+            .compose((result) -> Future.succeededFuture(WriteResult.fromJsonObject(result)));
     }
 
-    default <T extends Model> Future<List<T>> dbReplace(Class<T> clazz, JsonObject query, JsonObject data, JsonObject options) {
-        return busGetArray(
-            "repository.replace",
-            dbHeaders(clazz),
+    default <T extends Model> Future<WriteResult> dbReplace(Class<T> clazz, JsonObject query, JsonObject data, JsonObject options) {
+        return this.<JsonObject>busSend(
+            dbOptions(clazz).address("replace"),
+            dbOptions(clazz).getJson(),
             new JsonObject()
                 .put("query", query)
                 .put("data", data)
         )
-            .compose((result) -> dbFindAll(clazz, query));
+            .compose((result) -> Future.succeededFuture(WriteResult.fromJsonObject(result)));
+    }
+
+    /**
+     * Updates the first model matching a query and returns it as it is after the update
+     * @param clazz The class of the model
+     * @param query The query
+     * @param data The data to set
+     * @param <T> The type of the model
+     * @return The updated model
+     */
+    default <T extends Model> Future<T> dbFindOneAndUpdate(Class<T> clazz, JsonObject query, JsonObject data) {
+        return busSend(
+            dbOptions(clazz).address("findOneAndUpdate"),
+            dbOptions(clazz).getModelReply(),
+            new JsonObject()
+                .put("query", query)
+                .put("data", data)
+        )
+            .compose((updatedModel) -> Future.succeededFuture(dbToModel(clazz, updatedModel)));
     }
 
     default <T extends Model> Future<T> dbFindOne(Class<T> clazz, JsonObject query) {
-        return busGetObject("repository.findOne", dbHeaders(clazz), query)
-            .compose((foundModel) -> Future.succeededFuture(foundModel.mapTo(clazz)));
+        return busSend(dbOptions(clazz).address("findOne"), dbOptions(clazz).getModelReply(), query, true)
+            .compose((foundModel) -> Future.succeededFuture(dbToModel(clazz, foundModel)));
+    }
+
+    /**
+     * Finds a model fetching only the given fields
+     * @param clazz The class of the model
+     * @param query The query
+     * @param fields The mongo projection, e.g. {"name": 1}
+     * @param <T> The type of the model
+     * @return The model with only the projected fields
+     */
+    default <T extends Model> Future<T> dbFindOne(Class<T> clazz, JsonObject query, JsonObject fields) {
+        return busSend(dbOptions(clazz).address("findOne"), dbProjectionOptions(clazz, fields), query, true)
+            .compose((foundModel) -> Future.succeededFuture(dbToModel(clazz, foundModel)));
+    }
+
+    /**
+     * Finds a model by its id, batching all the lookups requested in the same event loop task into a single query
+     * It fails with 404 as dbFindOne if the model is not found,
+     * outside of a Vertx context it falls back to dbFindOne
+     * @param clazz The class of the model
+     * @param id The id
+     * @param <T> The type of the model
+     * @return The model, its own instance even if other callers requested the same id in the same task
+     */
+    default <T extends Model> Future<T> dbLoad(Class<T> clazz, String id) {
+        Context context = Vertx.currentContext();
+        if (context == null) {
+            return dbFindOne(clazz, new JsonObject().put("_id", id));
+        }
+        return ModelLoader.of(context, this).load(clazz, id);
     }
 
     default <T extends Model> Future<List<T>> dbFindAll(Class<T> clazz, JsonObject query) {
-        return busGetArray("repository.findAll", dbHeaders(clazz), query)
-            .compose((foundList) -> Future.succeededFuture(
-                foundList.stream()
-                    .map(row -> ((JsonObject)row).mapTo(clazz))
-                    .collect(Collectors.toList())
-            ));
+        return busSend(dbOptions(clazz).address("findAll"), dbOptions(clazz).getModelReply(), query, true)
+            .compose((foundList) -> Future.succeededFuture(dbToModelList(clazz, foundList)));
+    }
+
+    /**
+     * Finds all the models matching a query fetching only the given fields
+     * @param clazz The class of the model
+     * @param query The query
+     * @param fields The mongo projection, e.g. {"name": 1}
+     * @param <T> The type of the model
+     * @return The models with only the projected fields
+     */
+    default <T extends Model> Future<List<T>> dbFindAll(Class<T> clazz, JsonObject query, JsonObject fields) {
+        return busSend(dbOptions(clazz).address("findAll"), dbProjectionOptions(clazz, fields), query, true)
+            .compose((foundList) -> Future.succeededFuture(dbToModelList(clazz, foundList)));
+    }
+
+    /**
+     * Creates the deliveryOptions for a find with an explicit projection
+     * @param clazz The class of the model
+     * @param fields The mongo projection, null for the default one
+     * @param <T> The type of the model
+     * @return The deliveryOptions
+     */
+    default <T extends Model> DeliveryOptions dbProjectionOptions(Class<T> clazz, JsonObject fields) {
+        if (fields == null) {
+            return dbOptions(clazz).getModelReply();
+        }
+        return dbOptions(clazz).getModelReply().toOptions().addHeader("fields", fields.encode());
+    }
+
+    /**
+     * Finds a page of models with keyset pagination, so every page costs the same no matter how deep it is
+     * @param clazz The class of the model
+     * @param query The query
+     * @param sort The sort, it should use indexed keys, _id is added as tiebreaker
+     * @param pageSize The maximum amount of models in the page
+     * @param cursor The cursor returned with the previous page, null for the first one
+     * @param <T> The type of the model
+     * @return The page with the cursor for the next one
+     */
+    default <T extends Model> Future<Page<T>> dbFindPage(Class<T> clazz, JsonObject query, JsonObject sort, int pageSize, String cursor) {
+        // the cursor of the next page comes in the headers of the reply
+        return this.<Object>busRequest(
+            dbOptions(clazz).address("findPage"),
+            dbOptions(clazz).getModelReply(),
+            new JsonObject()
+                .put("query", query)
+                .put("sort", sort)
+                .put("pageSize", pageSize)
+                .put("cursor", cursor)
+        ).map((reply) -> new Page<>(dbToModelList(clazz, reply.body()), reply.headers().get("cursor")));
+    }
+
+    default <T extends Model> ReadStream<T> dbStream(Class<T> clazz, JsonObject query) {
+        return dbStream(clazz, query, 100);
+    }
+
+    /**
+     * Streams the models matching a query, fetching them in chunks so memory stays bounded no matter the result size
+     * @param clazz The class of the model
+     * @param query The query
+     * @param batchSize The maximum amount of models fetched per chunk
+     * @param <T> The type of the model
+     * @return The stream of models, it starts flowing when its handler is set
+     */
+    default <T extends Model> ReadStream<T> dbStream(Class<T> clazz, JsonObject query, int batchSize) {
+        return new RepositoryReadStream<>(
+            this,
+            dbOptions(clazz).address("stream"),
+            dbOptions(clazz).getModelReply(),
+            query,
+            batchSize,
+            (chunk) -> dbToModelList(clazz, chunk)
+        );
     }
 
     default <T extends Model> Future<T> dbDelete(Class<T> clazz, JsonObject query) {
-        return busGetObject("repository.delete", dbHeaders(clazz), query)
-            .compose((foundModel) -> Future.succeededFuture(foundModel.mapTo(clazz)));
+        return this.<JsonObject>busSend(dbOptions(clazz).address("delete"), dbOptions(clazz).getJson(), query)
+            .compose((foundModel) -> Future.succeededFuture(Converter.fromJsonObject(foundModel, clazz)));
     }
 
     default <T extends Model> Future<T> dbDelete(Class<T> clazz, T model) {
-        return dbDelete(clazz, JsonObject.mapFrom(model));
+        return busSend(dbOptions(clazz).address("delete"), dbOptions(clazz).getModel(), model)
+            .compose((deletedModel) -> Future.succeededFuture(dbToModel(clazz, deletedModel)));
     }
 
     default <T extends Model> Function<T, Future<T>> dbDelete(Class<T> clazz) {
         return (model) -> dbDelete(clazz, model);
     }
 
-    default <T extends Model> Future<List<T>> dbDeleteAll(Class<T> clazz, JsonObject query) {
-        // sends to databaseVerticle converting the model to a jsonObject
-        return busGetObject("repository.deleteAll", dbHeaders(clazz), query)
-            .compose((result) -> dbFindAll(clazz, query));
+    /**
+     * Deletes the first model matching a query and returns it
+     * @param clazz The class of the model
+     * @param query The query
+     * @param <T> The type of the model
+     * @return The deleted model
+     */
+    default <T extends Model> Future<T> dbFindOneAndDelete(Class<T> clazz, JsonObject query) {
+        return busSend(dbOptions(clazz).address("findOneAndDelete"), dbOptions(clazz).getModelReply(), query)
+            .compose((deletedModel) -> Future.succeededFuture(dbToModel(clazz, deletedModel)));
+    }
+
+    /**
+     * Deletes all the models matching a query, the deleted models are not returned
+     * @param clazz The class of the model
+     * @param query The query
+     * @param <T> The type of the model
+     * @return The deleted count
+     */
+    default <T extends Model> Future<WriteResult> dbDeleteAll(Class<T> clazz, JsonObject query) {
+        return this.<JsonObject>busSend(dbOptions(clazz).address("deleteAll"), dbOptions(clazz).getJson(), query)
+            .compose((result) -> Future.succeededFuture(WriteResult.fromJsonObject(result)));
     }
 
     default <T extends Model> Future<Long> dbCount(Class<T> clazz, JsonObject query) {
-        return busGetObject("repository.count", dbHeaders(clazz), query)
+        return this.<JsonObject>busSend(dbOptions(clazz).address("count"), dbOptions(clazz).getJson(), query, true)
             .compose((result) -> Future.succeededFuture(result.getLong("count")));
     }
 
+    /**
+     * Validates a model, with its constraint annotations or its own validate method
+     * Models that don't override validate are checked without creating anything when they are valid
+     * @param model The model
+     * @param <T> The type of the model
+     * @return A future of the model, failed with the ValidationException if it has errors
+     */
+    default <T extends Model> Future<T> dbValidate(T model) {
+        return ModelValidation.validate(model);
+    }
+
+    /**
+     * Validates a list of models in one call, e.g. before dbInsertMany or dbSaveAll
+     * @param models The models
+     * @param <T> The type of the models
+     * @return A future of the models, failed with the errors of all of them, their fields prefixed with the index
+     * of their model (e.g. "2.title")
+     */
+    default <T extends Model> Future<List<T>> dbValidateAll(List<T> models) {
+        return ModelValidation.validateAll(models);
+    }
+
     /**
      * Returns a function which in turn verifies if a ValidationException has any errors or if should continue with the validated model
      * @param modelInstance The model to respond
@@ -1,131 +1,446 @@
 package org.nardhar.vertx.repository;
 
+import com.mongodb.ConnectionString;
+import com.mongodb.ReadPreference;
+import io.vertx.core.AsyncResult;
 import io.vertx.core.CompositeFuture;
 import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.eventbus.DeliveryOptions;
 import io.vertx.core.eventbus.Message;
 import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
+import io.vertx.ext.mongo.BulkOperation;
+import io.vertx.ext.mongo.BulkWriteOptions;
+import io.vertx.ext.mongo.FindOptions;
 import io.vertx.ext.mongo.MongoClient;
+import io.vertx.ext.mongo.MongoClientDeleteResult;
+import io.vertx.ext.mongo.MongoClientUpdateResult;
 import io.vertx.ext.mongo.UpdateOptions;
 import io.vertx.ext.mongo.WriteOption;
+import org.nardhar.vertx.converter.Converter;
 import org.nardhar.vertx.eventbus.ConsumerVerticle;
+import org.nardhar.vertx.eventbus.Deadline;
+import org.nardhar.vertx.eventbus.DeliveryTemplate;
+import org.nardhar.vertx.eventbus.FailureReply;
+import org.nardhar.vertx.index.ClassIndex;
+import org.bson.types.ObjectId;
 import org.nardhar.vertx.exception.ApplicationException;
+import org.nardhar.vertx.exception.BusinessException;
 
-import java.lang.reflect.Field;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 public class RepositoryVerticle extends ConsumerVerticle {
 
-    private MongoClient mongoClient;
+    // distinct explicit projections kept parsed, they usually come from a few constants of the callers
+    private static final int MAX_PARSED_PROJECTIONS = 256;
+
+    private RepositoryBackend backend;
 
     private Map<String, Class<? extends Model>> modelClass;
     private Map<String, String> modelCollection;
+    // projections built from the declared fields of every model, used when autoProjection is enabled
+    private Map<String, JsonObject> modelProjection;
+    private boolean autoProjection;
+    // explicit projections of the fields header parsed by its value, so each one is decoded once
+    private final Map<String, JsonObject> parsedProjection = new HashMap<>();
+    // read-through caches of findOne by id, only for the models configured in cache
+    private Map<String, ModelCache> modelCache;
+
+    // limits of running operations per model, empty if bulkhead is not configured
+    private Map<String, Bulkhead> modelBulkhead;
+
+    // models served by the per model addresses of this instance
+    private List<String> servedModels;
+    // if this instance also serves the shared repository.* addresses
+    private boolean sharedAddresses;
+
+    private int maxPageSize;
+
+    // models already published in the current event loop task
+    private final Set<String> writtenModels = new HashSet<>();
+
+    // gathers concurrent single inserts in bulk writes, null if insertBatching is not configured
+    private InsertCoalescer insertCoalescer;
+
+    private final DeliveryOptions modelReplyOptions = DeliveryTemplate.of(null, ModelCodec.NAME);
+    private final DeliveryOptions modelListReplyOptions = DeliveryTemplate.of(null, ModelListCodec.NAME);
+
+    // replies for repository.stream chunks, created on start because of the configurable timeout
+    private DeliveryOptions streamChunkOptions;
+    private DeliveryOptions streamEndOptions;
+    private DeliveryOptions streamModelChunkOptions;
+    private DeliveryOptions streamModelEndOptions;
 
+    /**
+     * Registers the consumers of the configured models, or of the ones indexed at compile time without a models configuration,
+     * it is safe to deploy many instances of this verticle, they share the model metadata and the mongo pool
+     * Every served model gets its own addresses (see RepositoryAddress), the optional serve configuration
+     * restricts them to a subset of the models, so hot models can be deployed separately with more instances
+     * The shared repository.* addresses are only registered when serving every model, unless sharedAddresses says otherwise
+     */
     @Override
     @SuppressWarnings("unchecked")
     public void registerConsumers() {
-        mongoClient = MongoClient.createShared(vertx, new JsonObject()
-            .put("connection_string", config().getString("mongoConnectionString"))
-        );
+        ModelCodec.register(vertx.eventBus());
 
-        List<Class<? extends Model>> clazzModels = new ArrayList<>();
+        backend = createBackend();
 
-        // TODO: we could get all @Model annotated classes instead of passing a configuration variable
-        config().getJsonArray("models")
-            .forEach((clazz) -> {
-                try {
-                    clazzModels.add((Class<Model>)Class.forName((String)clazz));
-                } catch (ClassNotFoundException ex) {
-                    System.out.println("Could not find model " + clazz);
-                }
+        maxPageSize = config().getInteger("maxPageSize", 1000);
+
+        // e.g. "insertBatching": {"window": 5, "size": 100}, window in milliseconds
+        JsonObject insertBatching = config().getJsonObject("insertBatching");
+        if (insertBatching != null) {
+            insertCoalescer = new InsertCoalescer(
+                vertx,
+                backend,
+                insertBatching.getLong("window", 5L),
+                insertBatching.getInteger("size", 100)
+            );
+        }
+
+        // a paused stream must ask for its next chunk before this timeout
+        long streamTimeout = config().getLong("streamTimeout", DeliveryOptions.DEFAULT_TIMEOUT);
+        streamChunkOptions = streamOptions(null, false, streamTimeout);
+        streamEndOptions = streamOptions(null, true, streamTimeout);
+        streamModelChunkOptions = streamOptions(ModelListCodec.NAME, false, streamTimeout);
+        streamModelEndOptions = streamOptions(ModelListCodec.NAME, true, streamTimeout);
+
+        // registering model caches, e.g. "cache": {"org.app.Country": {"size": 1000, "ttl": 60000, "staleTtl": 10000}}
+        modelCache = new HashMap<>();
+        JsonObject cacheConfig = config().getJsonObject("cache", new JsonObject());
+        cacheConfig.fieldNames().forEach((model) -> modelCache.put(model, ModelCache.fromConfig(cacheConfig.getJsonObject(model))));
+        if (!modelCache.isEmpty()) {
+            vertx.setPeriodic(config().getLong("cachePurgeInterval", 60000L), (timerId) -> {
+                long now = System.currentTimeMillis();
+                modelCache.values().forEach((cache) -> cache.purge(now));
             });
+        }
+
+        // projections are used only with autoProjection, so documents are fetched only with the fields the models declare
+        autoProjection = config().getBoolean("autoProjection", false);
 
-        // registering model classes
         modelClass = new HashMap<>();
+        modelCollection = new HashMap<>();
+        modelProjection = new HashMap<>();
+        modelBulkhead = new HashMap<>();
 
-        clazzModels.forEach((clazz) -> modelClass.put(clazz.getName(), clazz));
+        // the models of the configuration or, without it, the ones indexed at compile time
+        JsonArray models = config().getJsonArray("models");
+        List<String> modelNames = models != null
+            ? ((List<Object>)models.getList()).stream().map(String::valueOf).collect(Collectors.toList())
+            : ClassIndex.names(Model.class);
 
-        // registering model collection names for mongodb
-        modelCollection = new HashMap<>();
+        // the operations are added once every model is loaded
+        Future<Void> modelsFuture = loadModels(modelNames).map((infos) -> {
+            registerModels(infos);
+            return null;
+        });
 
-        Future<CompositeFuture> modelsFuture = Future.future();
-        CompositeFuture.all(clazzModels.stream().map((clazz) -> {
-            Future<Void> future = Future.future();
-            try {
-                Field field = clazz.getDeclaredField("collection");
-                field.setAccessible(true);
-                modelCollection.put(clazz.getName(), (String)field.get(null));
-                future.complete();
-            } catch (NoSuchFieldException ex) {
-                future.fail("No collection property for model " + clazz.getName());
-            } catch (IllegalAccessException ex) {
-                future.fail("Collection property not readable for model " + clazz.getName());
-            }
+        addConsumer("repository.cache.invalidate", this::cacheInvalidate);
+        addConsumer("repository.cache.stats", this::cacheStats);
+        addConsumer("repository.bulkhead.stats", this::bulkheadStats);
+        addDeployFuture(modelsFuture);
+    }
+
+    /**
+     * Loads the model classes and their metadata concurrently in worker threads, since class loading
+     * and reading the metadata of the models without a generated JsonMapper is what makes the start slow
+     * Models whose class is not found are skipped
+     * @param modelNames The class names of the models
+     * @return A future with the metadata of the models in the given order, failed if a model has no collection property
+     */
+    @SuppressWarnings("unchecked")
+    private Future<List<ModelRegistry.ModelInfo>> loadModels(List<String> modelNames) {
+        List<Future> loaded = modelNames.stream().map((name) -> {
+            Future<ModelRegistry.ModelInfo> future = Future.future();
+            vertx.<ModelRegistry.ModelInfo>executeBlocking((blocking) -> {
+                try {
+                    blocking.complete(ModelRegistry.register((Class<? extends Model>)Class.forName(name)));
+                } catch (ClassNotFoundException ex) {
+                    System.out.println("Could not find model " + name);
+                    blocking.complete();
+                } catch (IllegalArgumentException ex) {
+                    blocking.fail(ex.getMessage());
+                }
+            }, false, future.completer());
             return future;
-        }).collect(Collectors.toList()))
-        .setHandler(modelsFuture.completer());
+        }).collect(Collectors.toList());
+
+        return CompositeFuture.all(loaded).map((all) -> loaded.stream()
+            .map((future) -> (ModelRegistry.ModelInfo)future.result())
+            .filter((info) -> info != null)
+            .collect(Collectors.toList()));
+    }
+
+    /**
+     * Registers the loaded models and adds the operations of the served ones, in the event loop of this verticle
+     * @param infos The metadata of the models
+     */
+    @SuppressWarnings("unchecked")
+    private void registerModels(List<ModelRegistry.ModelInfo> infos) {
+        // registering model classes and collection names for mongodb, from the registry shared by all the instances
+        infos.forEach((info) -> {
+            String model = info.getClazz().getName();
+            modelClass.put(model, info.getClazz());
+            modelCollection.put(model, info.getCollection());
+            if (autoProjection) {
+                modelProjection.put(model, info.getProjection());
+            }
+        });
+
+        JsonArray serve = config().getJsonArray("serve");
+        servedModels = serve != null
+            ? ((List<Object>)serve.getList()).stream().map(String::valueOf).collect(Collectors.toList())
+            : new ArrayList<>(modelClass.keySet());
+        sharedAddresses = config().getBoolean("sharedAddresses", serve == null);
+
+        // registering model bulkheads, e.g. "bulkhead": {"maxConcurrent": 50, "maxQueue": 500, "models": {"org.app.Book": {"maxConcurrent": 10}}}
+        JsonObject bulkheadConfig = config().getJsonObject("bulkhead");
+        if (bulkheadConfig != null) {
+            JsonObject bulkheadModels = bulkheadConfig.getJsonObject("models", new JsonObject());
+            modelClass.keySet().forEach((model) -> modelBulkhead.put(model, Bulkhead.fromConfig(
+                model,
+                bulkheadConfig.copy().mergeIn(bulkheadModels.getJsonObject(model, new JsonObject()))
+            )));
+        }
 
         // adding endpoints
-        addConsumer("repository.save", this::save);
-        addConsumer("repository.insert", this::insert);
-        addConsumer("repository.update", this::update);
-        addConsumer("repository.updateMulti", this::updateMulti);
-        addConsumer("repository.replace", this::replace);
-        addConsumer("repository.findAll", this::findAll);
-        addConsumer("repository.findOne", this::findOne);
-        addConsumer("repository.delete", this::delete);
-        addConsumer("repository.deleteAll", this::deleteAll);
-        addConsumer("repository.count", this::count);
-        addDeployFuture(modelsFuture);
+        addOperation("save", this::save);
+        addOperation("insert", this::insert);
+        addOperation("insertMany", this::insertMany);
+        addOperation("saveAll", this::saveAll);
+        addOperation("update", this::update);
+        addOperation("updateMulti", this::updateMulti);
+        addOperation("replace", this::replace);
+        addOperation("findAll", this::findAll);
+        addOperation("findOne", this::findOne);
+        addOperation("stream", this::stream);
+        addOperation("findPage", this::findPage);
+        addOperation("findOneAndUpdate", this::findOneAndUpdate);
+        addOperation("findOneAndDelete", this::findOneAndDelete);
+        addOperation("delete", this::delete);
+        addOperation("deleteAll", this::deleteAll);
+        addOperation("count", this::count);
+    }
+
+    /**
+     * Creates the backend of this verticle, mongo unless the backend configuration is "memory"
+     * Every instance with the same configuration gets the same mongo pool or the same memory backend,
+     * the memory one is configured with e.g. "memory": {"name": "default", "indexes": {"country": {"code": "hash"}}}
+     * It can be overridden for using another backend
+     * @return The backend
+     */
+    protected RepositoryBackend createBackend() {
+        if ("memory".equals(config().getString("backend", "mongo"))) {
+            JsonObject memory = config().getJsonObject("memory", new JsonObject());
+            MemoryBackend memoryBackend = MemoryBackend.shared(vertx, memory.getString("name", "default"));
+            memoryBackend.createIndexes(memory.getJsonObject("indexes", new JsonObject()));
+            return memoryBackend;
+        }
+        String connectionString = config().getString("mongoConnectionString");
+        // the reads with a maxTime are commands, which ignore the read preference of the connection string
+        ReadPreference readPreference = connectionString != null
+            ? new ConnectionString(connectionString).getReadPreference()
+            : null;
+        return new MongoBackend(
+            MongoClient.createShared(vertx, new JsonObject().put("connection_string", connectionString)),
+            readPreference == null || ReadPreference.primary().equals(readPreference)
+        );
+    }
+
+    /**
+     * Registers an operation handler at the address of every served model and at the shared address if enabled
+     * @param operation The operation
+     * @param handler The handler
+     */
+    private <T> void addOperation(String operation, Handler<Message<T>> handler) {
+        Handler<Message<T>> limited = modelBulkhead.isEmpty() ? handler : (message) -> {
+            Bulkhead bulkhead = modelBulkhead.get(message.headers().get("model"));
+            if (bulkhead != null) {
+                bulkhead.execute(message, handler);
+            } else {
+                handler.handle(message);
+            }
+        };
+        if (sharedAddresses) {
+            addConsumer(RepositoryAddress.of(operation), limited);
+        }
+        servedModels.forEach((model) -> addConsumer(RepositoryAddress.of(model, operation), limited));
     }
 
-    public void save(Message<JsonObject> message) {
+    public void save(Message<Object> message) {
         String model = message.headers().get("model");
+        JsonObject document = toDocument(message.body());
 
-        mongoClient.save(modelCollection.get(model), message.body(), res -> {
+        backend.save(modelCollection.get(model), document, res -> {
             if (res.succeeded()) {
+                // mongo returns the id only when it inserted the document, a replaced one keeps its _id
+                String id = res.result() != null ? res.result() : document.getString("_id");
+                invalidate(model, id);
+                if (message.body() instanceof Model) {
+                    // the model was sent as is, so it is returned with its id modified
+                    Model record = (Model)message.body();
+                    record.setId(id);
+
+                    message.reply(record, modelReplyOptions);
+                    return;
+                }
                 // returning an object copy with its id modified and removing the _id from mongo
-                JsonObject record = message.body().copy();
-                record.put("id", res.result())
+                JsonObject record = document.copy();
+                record.put("id", id)
                     .remove("_id");
 
                 message.reply(record);
             } else {
-                message.fail(400, new ApplicationException(
+                message.reply(FailureReply.of(400, new ApplicationException(
                     res.cause(),
                     "repository.save.error"
-                ).encode());
+                )));
             }
         });
     }
 
-    public void insert(Message<JsonObject> message) {
+    public void insert(Message<Object> message) {
         String model = message.headers().get("model");
+        JsonObject document = toDocument(message.body());
 
-        mongoClient.insert(modelCollection.get(model), message.body(), res -> {
+        Handler<AsyncResult<String>> handler = res -> {
             if (res.succeeded()) {
-                JsonObject record = message.body().copy();
+                written(model);
+                if (message.body() instanceof Model) {
+                    Model record = (Model)message.body();
+                    record.setId(res.result());
+
+                    message.reply(record, modelReplyOptions);
+                    return;
+                }
+                JsonObject record = document.copy();
                 record.put("id", res.result())
                         .remove("_id");
 
                 message.reply(record);
             } else {
-                message.fail(400, new ApplicationException(
+                message.reply(FailureReply.of(400, new ApplicationException(
                         res.cause(),
                         "repository.save.error"
-                ).encode());
+                )));
+            }
+        };
+
+        if (insertCoalescer != null) {
+            insertCoalescer.insert(modelCollection.get(model), document, handler);
+        } else {
+            backend.insert(modelCollection.get(model), document, handler);
+        }
+    }
+
+    public void insertMany(Message<Object> message) {
+        bulkWrite(message, false);
+    }
+
+    public void saveAll(Message<Object> message) {
+        bulkWrite(message, true);
+    }
+
+    /**
+     * Writes a list of models or jsonObjects with a single unordered bulkWrite
+     * Ids are generated before writing so every record is replied with its own id,
+     * when saving, records that already have an id (or an _id) replace the existing ones
+     * @param message The message with the list
+     * @param save If it should behave as save instead of insert
+     */
+    @SuppressWarnings("unchecked")
+    private void bulkWrite(Message<Object> message, boolean save) {
+        String model = message.headers().get("model");
+
+        List<Object> records = message.body() instanceof List
+            ? (List<Object>)message.body()
+            : ((JsonArray)message.body()).getList();
+
+        List<JsonObject> documents = new ArrayList<>(records.size());
+        List<BulkOperation> operations = new ArrayList<>(records.size());
+        records.forEach((record) -> {
+            JsonObject document = record instanceof Map
+                ? new JsonObject((Map<String, Object>)record)
+                : toDocument(record);
+            // records come with their id, stored as _id
+            Object id = document.remove("id");
+            if (id != null && document.getValue("_id") == null) {
+                document.put("_id", id);
+            }
+            if (save && document.getValue("_id") != null) {
+                operations.add(BulkOperation.createReplace(
+                    new JsonObject().put("_id", document.getValue("_id")),
+                    document,
+                    true
+                ));
+            } else {
+                if (document.getValue("_id") == null) {
+                    document.put("_id", new ObjectId().toHexString());
+                }
+                operations.add(BulkOperation.createInsert(document));
+            }
+            documents.add(document);
+        });
+
+        if (operations.isEmpty()) {
+            if (message.body() instanceof List) {
+                message.reply(records, modelListReplyOptions);
+            } else {
+                message.reply(new JsonArray());
+            }
+            return;
+        }
+
+        backend.bulkWriteWithOptions(modelCollection.get(model), operations, new BulkWriteOptions(false), res -> {
+            if (res.failed()) {
+                message.reply(FailureReply.of(400, new ApplicationException(
+                    res.cause(),
+                    save ? "repository.saveAll.error" : "repository.insertMany.error"
+                )));
+                return;
+            }
+
+            if (save) {
+                invalidateAll(model);
+            } else {
+                written(model);
+            }
+            if (message.body() instanceof List) {
+                // the models were sent as are, so they are returned with their ids modified
+                for (int i = 0; i < records.size(); i++) {
+                    ((Model)records.get(i)).setId(documents.get(i).getString("_id"));
+                }
+                message.reply(records, modelListReplyOptions);
+            } else {
+                message.reply(new JsonArray(
+                    documents.stream()
+                        .map((document) -> {
+                            JsonObject record = document.copy();
+                            record.put("id", record.remove("_id"));
+                            return record;
+                        })
+                        .collect(Collectors.toList())
+                ));
             }
         });
     }
 
-    public void update(Message<JsonObject> message) {
+    public void update(Message<Object> message) {
         String model = message.headers().get("model");
 
-        JsonObject modelData = message.body().copy();
+        // a model sent as is gets converted only once, so there is no need for copying it
+        JsonObject modelData = message.body() instanceof Model
+            ? toDocument(message.body())
+            : ((JsonObject)message.body()).copy();
 
         // remove the id from the modelData and put it in the query
         JsonObject query = new JsonObject()
@@ -134,32 +449,32 @@ public class RepositoryVerticle extends ConsumerVerticle {
         JsonObject update = new JsonObject().put("$set", modelData);
 
         if (message.headers().contains("upsert") || message.headers().contains("writeConcern")) {
-            UpdateOptions options = new UpdateOptions();
-            if (message.headers().contains("upsert")) {
-                options.setUpsert(true);
-            }
+            UpdateOptions options = new UpdateOptions()
+                .setUpsert("true".equals(message.headers().get("upsert")));
             if (message.headers().contains("writeConcern")) {
                 options.setWriteOption(WriteOption.valueOf(message.headers().get("writeConcern").toUpperCase()));
             }
-            mongoClient.updateCollectionWithOptions(modelCollection.get(model), query, update, options, res -> {
+            backend.updateCollectionWithOptions(modelCollection.get(model), query, update, options, res -> {
                 if (res.succeeded()) {
-                    message.reply(modelData.put("id", query.getString("_id")));
+                    invalidate(model, query.getString("_id"));
+                    replyUpdated(message, modelData, query);
                 } else {
-                    message.fail(400, new ApplicationException(
+                    message.reply(FailureReply.of(400, new ApplicationException(
                         res.cause(),
                         "repository.update.error"
-                    ).encode());
+                    )));
                 }
             });
         } else {
-            mongoClient.updateCollection(modelCollection.get(model), query, update, res -> {
+            backend.updateCollectionWithOptions(modelCollection.get(model), query, update, new UpdateOptions(), res -> {
                 if (res.succeeded()) {
-                    message.reply(modelData.put("id", query.getString("_id")));
+                    invalidate(model, query.getString("_id"));
+                    replyUpdated(message, modelData, query);
                 } else {
-                    message.fail(400, new ApplicationException(
+                    message.reply(FailureReply.of(400, new ApplicationException(
                         res.cause(),
                         "repository.update.error"
-                    ).encode());
+                    )));
                 }
             });
         }
@@ -175,21 +490,22 @@ public class RepositoryVerticle extends ConsumerVerticle {
         // update with the current modelData, id is removed so only updates the other data
         JsonObject update = new JsonObject().put("$set", modelData);
 
-        UpdateOptions options = new UpdateOptions();
-        if (message.headers().contains("upsert")) {
-            options.setUpsert(true);
-        }
+        // updates every matching document unless multi is explicitly false, upserts only if it's explicitly true
+        UpdateOptions options = new UpdateOptions()
+            .setMulti(!"false".equals(message.headers().get("multi")))
+            .setUpsert("true".equals(message.headers().get("upsert")));
         if (message.headers().contains("writeConcern")) {
             options.setWriteOption(WriteOption.valueOf(message.headers().get("writeConcern").toUpperCase()));
         }
-        mongoClient.updateCollectionWithOptions(modelCollection.get(model), query, update, options, res -> {
+        backend.updateCollectionWithOptions(modelCollection.get(model), query, update, options, res -> {
             if (res.succeeded()) {
-                message.reply(new JsonObject().put("success", true));
+                invalidateAll(model);
+                message.reply(updateResult(res.result()));
             } else {
-                message.fail(400, new ApplicationException(
+                message.reply(FailureReply.of(400, new ApplicationException(
                     res.cause(),
                     "repository.update.error"
-                ).encode());
+                )));
             }
         });
     }
@@ -199,19 +515,18 @@ public class RepositoryVerticle extends ConsumerVerticle {
 
         JsonObject modelData = message.body().getJsonObject("data").copy();
 
-        // remove the id from the modelData and put it in the query
         JsonObject query = message.body().getJsonObject("query");
-        // update with the current modelData, id is removed so only updates the other data
-        JsonObject replace = new JsonObject().put("$set", modelData);
 
-        mongoClient.replaceDocuments(modelCollection.get(model), query, replace, res -> {
+        // the data is the whole replacement, update operators are not allowed in it
+        backend.replaceDocuments(modelCollection.get(model), query, modelData, res -> {
             if (res.succeeded()) {
-                message.reply(new JsonObject().put("success", true));
+                invalidateAll(model);
+                message.reply(updateResult(res.result()));
             } else {
-                message.fail(400, new ApplicationException(
+                message.reply(FailureReply.of(400, new ApplicationException(
                     res.cause(),
                     "repository.replace.error"
-                ).encode());
+                )));
             }
         });
     }
@@ -220,8 +535,25 @@ public class RepositoryVerticle extends ConsumerVerticle {
         String model = message.headers().get("model");
         JsonObject query = message.body() != null ? message.body() : new JsonObject();
 
-        mongoClient.find(modelCollection.get(model), query, res -> {
+        JsonObject fields = projection(message, model);
+        FindOptions options = new FindOptions();
+        if (fields != null) {
+            options.setFields(fields);
+        }
+
+        backend.findWithOptions(modelCollection.get(model), query, options, maxTime(message), res -> {
             if (res.succeeded()) {
+                if (repliesModel(message)) {
+                    Class<? extends Model> clazz = modelClass.get(model);
+                    message.reply(
+                        res.result()
+                            .stream()
+                            .map((record) -> toModel(clazz, record))
+                            .collect(Collectors.toList()),
+                        modelListReplyOptions
+                    );
+                    return;
+                }
                 message.reply(new JsonArray(
                     res.result()
                         .stream()
@@ -229,10 +561,7 @@ public class RepositoryVerticle extends ConsumerVerticle {
                         .collect(Collectors.toList())
                 ));
             } else {
-                message.fail(400, new ApplicationException(
-                    res.cause(),
-                    "repository.findAll.error"
-                ).encode());
+                message.reply(readFailure(message, res.cause(), "repository.findAll.error"));
             }
         });
     }
@@ -241,48 +570,380 @@ public class RepositoryVerticle extends ConsumerVerticle {
         String model = message.headers().get("model");
         JsonObject query = message.body() != null ? message.body() : new JsonObject();
 
-        mongoClient.findOne(modelCollection.get(model), query, null, res -> {
-            if (res.succeeded()) {
-                if (res.result() == null) {
-                    message.fail(
-                        404,
-                        new ApplicationException(
-                            modelClass.get(model).getSimpleName() + " Not Found",
-                            "repository.notFound.error"
-                        ).encode()
-                    );
-                } else {
-                    JsonObject object = res.result().copy();
-                    object.put("id", object.remove("_id"));
+        ModelCache cache = modelCache.get(model);
+        String cacheId = cache != null ? cacheId(message, query) : null;
+        if (cacheId != null) {
+            findOneCached(message, model, cache, cacheId, query);
+            return;
+        }
 
-                    message.reply(object);
-                }
+        backend.findOne(modelCollection.get(model), query, projection(message, model), maxTime(message), res -> {
+            if (res.succeeded()) {
+                replyFound(message, model, res.result());
             } else {
-                message.fail(400, new ApplicationException(
+                message.reply(readFailure(message, res.cause(), "repository.findOne.error"));
+            }
+        });
+    }
+
+    /**
+     * Starts streaming the documents matching a query, the body has the query and the credit for the first chunk
+     * Every chunk is replied to the previous credit message, ordered by _id so each one continues where the last ended
+     * @param message The message with the query and the credit
+     */
+    public void stream(Message<JsonObject> message) {
+        String model = message.headers().get("model");
+        JsonObject query = message.body().getJsonObject("query", new JsonObject());
+
+        // the credit messages of the next chunks have no headers, so every chunk uses the projection of the first
+        streamChunk(
+            message,
+            model,
+            repliesModel(message),
+            projection(message, model),
+            query,
+            null,
+            message.body().getInteger("credit", 100)
+        );
+    }
+
+    private void streamChunk(
+        Message<JsonObject> message,
+        String model,
+        boolean replyModel,
+        JsonObject fields,
+        JsonObject query,
+        JsonArray lastId,
+        int credit
+    ) {
+        if (credit <= 0) {
+            // the stream was cancelled
+            message.reply(replyModel ? Collections.emptyList() : new JsonArray(), replyModel ? streamModelEndOptions : streamEndOptions);
+            return;
+        }
+
+        JsonObject sort = new JsonObject().put("_id", 1);
+        JsonObject chunkQuery = Keyset.after(query, sort, lastId);
+        FindOptions options = new FindOptions()
+            .setSort(sort)
+            .setLimit(credit);
+        if (fields != null) {
+            options.setFields(fields);
+        }
+
+        backend.findWithOptions(modelCollection.get(model), chunkQuery, options, res -> {
+            if (res.failed()) {
+                message.reply(FailureReply.of(400, new ApplicationException(
                     res.cause(),
-                    "repository.findOne.error"
-                ).encode());
+                    "repository.stream.error"
+                )));
+                return;
+            }
+
+            List<JsonObject> records = res.result();
+            boolean end = records.size() < credit;
+            JsonArray nextId = records.isEmpty() ? lastId : Keyset.values(records.get(records.size() - 1), sort);
+
+            Object chunk;
+            if (replyModel) {
+                Class<? extends Model> clazz = modelClass.get(model);
+                chunk = records.stream()
+                    .map((record) -> toModel(clazz, record))
+                    .collect(Collectors.toList());
+            } else {
+                chunk = new JsonArray(
+                    records.stream()
+                        .map((record) -> record.put("id", record.remove("_id")))
+                        .collect(Collectors.toList())
+                );
+            }
+
+            if (end) {
+                message.reply(chunk, replyModel ? streamModelEndOptions : streamEndOptions);
+            } else {
+                message.<JsonObject>reply(chunk, replyModel ? streamModelChunkOptions : streamChunkOptions, (next) -> {
+                    // if the reader went away the reply times out and nothing else is kept
+                    if (next.succeeded()) {
+                        streamChunk(
+                            next.result(),
+                            model,
+                            replyModel,
+                            fields,
+                            query,
+                            nextId,
+                            next.result().body().getInteger("credit", credit)
+                        );
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Finds a page of documents with keyset pagination, the body has the query, sort, pageSize and cursor
+     * The cursor of the next page is replied in the cursor header, it is missing on the last page
+     * @param message The message with the page request
+     */
+    public void findPage(Message<JsonObject> message) {
+        String model = message.headers().get("model");
+        JsonObject query = message.body().getJsonObject("query", new JsonObject());
+        JsonObject sort = Keyset.sortWithId(message.body().getJsonObject("sort"));
+        int pageSize = message.body().getInteger("pageSize", 0);
+
+        if (pageSize <= 0 || pageSize > maxPageSize) {
+            message.reply(FailureReply.of(400, new BusinessException(
+                "Page size should be between 1 and " + maxPageSize,
+                "repository.findPage.pageSize.error",
+                maxPageSize
+            )));
+            return;
+        }
+
+        JsonObject pageQuery;
+        try {
+            pageQuery = Keyset.after(query, sort, Keyset.decodeCursor(message.body().getString("cursor")));
+        } catch (IllegalArgumentException ex) {
+            message.reply(FailureReply.of(400, new BusinessException(ex, "repository.findPage.cursor.error")));
+            return;
+        }
+
+        // fetching one more record to know if there is a next page
+        FindOptions options = new FindOptions()
+            .setSort(sort)
+            .setLimit(pageSize + 1);
+        JsonObject fields = Projection.withSortKeys(projection(message, model), sort);
+        if (fields != null) {
+            options.setFields(fields);
+        }
+
+        backend.findWithOptions(modelCollection.get(model), pageQuery, options, maxTime(message), res -> {
+            if (res.failed()) {
+                message.reply(readFailure(message, res.cause(), "repository.findPage.error"));
+                return;
+            }
+
+            List<JsonObject> records = res.result();
+            DeliveryOptions replyOptions = new DeliveryOptions();
+            if (records.size() > pageSize) {
+                records = records.subList(0, pageSize);
+                replyOptions.addHeader("cursor", Keyset.encodeCursor(Keyset.values(records.get(pageSize - 1), sort)));
+            }
+
+            if (repliesModel(message)) {
+                Class<? extends Model> clazz = modelClass.get(model);
+                message.reply(
+                    records.stream()
+                        .map((record) -> toModel(clazz, record))
+                        .collect(Collectors.toList()),
+                    replyOptions.setCodecName(ModelListCodec.NAME)
+                );
+            } else {
+                message.reply(new JsonArray(
+                    records.stream()
+                        .map((record) -> record.put("id", record.remove("_id")))
+                        .collect(Collectors.toList())
+                ), replyOptions);
             }
         });
     }
 
-    public void delete(Message<JsonObject> message) {
+    public void delete(Message<Object> message) {
         String model = message.headers().get("model");
 
-        JsonObject modelData = message.body().copy();
+        // a model sent as is only needs its id for the query
+        JsonObject modelData = message.body() instanceof Model
+            ? null
+            : ((JsonObject)message.body()).copy();
+        String id = modelData != null ? modelData.getString("id") : ((Model)message.body()).getId();
 
         // remove the id from the modelData and put it in the query
         JsonObject query = new JsonObject()
-            .put("_id", modelData.getString("id"));
+            .put("_id", id);
 
-        mongoClient.removeDocument(modelCollection.get(model), query, res -> {
+        backend.removeDocument(modelCollection.get(model), query, res -> {
             if (res.succeeded()) {
-                message.reply(modelData);
+                invalidate(model, id);
+                if (modelData == null) {
+                    message.reply(message.body(), modelReplyOptions);
+                } else {
+                    message.reply(modelData);
+                }
             } else {
-                message.fail(400, new ApplicationException(
+                message.reply(FailureReply.of(400, new ApplicationException(
                     res.cause(),
                     "repository.delete.error"
-                ).encode());
+                )));
+            }
+        });
+    }
+
+    /**
+     * findOne through the model cache, the cached documents are fetched without projection so they serve every caller
+     */
+    private void findOneCached(Message<JsonObject> message, String model, ModelCache cache, String id, JsonObject query) {
+        long now = System.currentTimeMillis();
+        ModelCache.Entry entry = cache.get(id, now);
+        if (entry != null) {
+            if (cache.state(entry, now) == ModelCache.State.STALE && cache.startRefresh(entry)) {
+                // stale-while-revalidate, the stale document is replied while it is fetched again
+                long generation = cache.generation();
+                backend.findOne(modelCollection.get(model), query, null, res -> {
+                    if (res.succeeded() && res.result() != null) {
+                        cache.put(id, res.result(), generation, System.currentTimeMillis());
+                    } else {
+                        cache.invalidate(id);
+                    }
+                });
+            }
+            replyFound(message, model, entry.getDocument().copy());
+            return;
+        }
+
+        long generation = cache.generation();
+        backend.findOne(modelCollection.get(model), query, null, maxTime(message), res -> {
+            if (res.succeeded()) {
+                if (res.result() != null) {
+                    cache.put(id, res.result().copy(), generation, System.currentTimeMillis());
+                }
+                replyFound(message, model, res.result());
+            } else {
+                message.reply(readFailure(message, res.cause(), "repository.findOne.error"));
+            }
+        });
+    }
+
+    /**
+     * Returns the id of a findOne that can be served by the cache, only queries by _id without explicit fields
+     */
+    private String cacheId(Message<JsonObject> message, JsonObject query) {
+        if (query.size() != 1 || message.headers().contains("fields")) {
+            return null;
+        }
+        Object id = query.getValue("_id");
+        return id instanceof String ? (String)id : null;
+    }
+
+    /**
+     * Removes an id from the local cache of a model and publishes it for the other repository instances
+     * @param model The model name
+     * @param id The id, nothing is done if it is null
+     */
+    protected void invalidate(String model, String id) {
+        ModelCache cache = modelCache.get(model);
+        if (cache != null && id != null) {
+            cache.invalidate(id);
+            vertx.eventBus().publish("repository.cache.invalidate", new JsonObject().put("model", model).put("id", id));
+        }
+        written(model);
+    }
+
+    protected void invalidateAll(String model) {
+        ModelCache cache = modelCache.get(model);
+        if (cache != null) {
+            cache.invalidateAll();
+            vertx.eventBus().publish("repository.cache.invalidate", new JsonObject().put("model", model));
+        }
+        written(model);
+    }
+
+    /**
+     * Publishes a write to a model at RepositoryAddress.WRITTEN, for the response caches of the WebVerticles
+     * It's published right away, before the write is replied, and once per model in the same event loop task
+     * @param model The model name
+     */
+    protected void written(String model) {
+        if (writtenModels.isEmpty()) {
+            vertx.runOnContext((v) -> writtenModels.clear());
+        }
+        if (writtenModels.add(model)) {
+            vertx.eventBus().publish(RepositoryAddress.WRITTEN, new JsonObject().put("model", model));
+        }
+    }
+
+    /**
+     * Invalidations published by any repository instance, including this one, without id it clears the whole model
+     * @param message The message with the model and the id
+     */
+    public void cacheInvalidate(Message<JsonObject> message) {
+        ModelCache cache = modelCache.get(message.body().getString("model"));
+        if (cache != null) {
+            String id = message.body().getString("id");
+            if (id != null) {
+                cache.invalidate(id);
+            } else {
+                cache.invalidateAll();
+            }
+        }
+    }
+
+    /**
+     * Replies the hit, miss and eviction counters of every model cache
+     * @param message The message
+     */
+    public void cacheStats(Message<JsonObject> message) {
+        JsonObject stats = new JsonObject();
+        modelCache.forEach((model, cache) -> stats.put(model, cache.stats()));
+        message.reply(stats);
+    }
+
+    /**
+     * Replies the in flight operations, queue depth and rejection counters of every model bulkhead
+     * @param message The message
+     */
+    public void bulkheadStats(Message<JsonObject> message) {
+        JsonObject stats = new JsonObject();
+        modelBulkhead.forEach((model, bulkhead) -> stats.put(model, bulkhead.stats()));
+        message.reply(stats);
+    }
+
+    /**
+     * Updates the first document matching the query and replies it as it is after the update
+     * The body has the query and the data to set
+     * @param message The message
+     */
+    public void findOneAndUpdate(Message<JsonObject> message) {
+        String model = message.headers().get("model");
+
+        JsonObject query = message.body().getJsonObject("query");
+        JsonObject update = new JsonObject().put("$set", message.body().getJsonObject("data").copy());
+
+        UpdateOptions options = new UpdateOptions()
+            .setReturningNewDocument(true)
+            .setUpsert("true".equals(message.headers().get("upsert")));
+
+        backend.findOneAndUpdateWithOptions(modelCollection.get(model), query, update, new FindOptions(), options, res -> {
+            if (res.succeeded()) {
+                if (res.result() != null) {
+                    invalidate(model, res.result().getString("_id"));
+                }
+                replyFound(message, model, res.result());
+            } else {
+                message.reply(FailureReply.of(400, new ApplicationException(
+                    res.cause(),
+                    "repository.update.error"
+                )));
+            }
+        });
+    }
+
+    /**
+     * Deletes the first document matching the query in the body and replies it
+     * @param message The message
+     */
+    public void findOneAndDelete(Message<JsonObject> message) {
+        String model = message.headers().get("model");
+
+        backend.findOneAndDelete(modelCollection.get(model), message.body(), res -> {
+            if (res.succeeded()) {
+                if (res.result() != null) {
+                    invalidate(model, res.result().getString("_id"));
+                }
+                replyFound(message, model, res.result());
+            } else {
+                message.reply(FailureReply.of(400, new ApplicationException(
+                    res.cause(),
+                    "repository.delete.error"
+                )));
             }
         });
     }
@@ -292,14 +953,15 @@ public class RepositoryVerticle extends ConsumerVerticle {
 
         JsonObject query = message.body().copy();
 
-        mongoClient.removeDocuments(modelCollection.get(model), query, res -> {
+        backend.removeDocuments(modelCollection.get(model), query, res -> {
             if (res.succeeded()) {
-                message.reply(new JsonObject().put("success", true));
+                invalidateAll(model);
+                message.reply(deleteResult(res.result()));
             } else {
-                message.fail(400, new ApplicationException(
+                message.reply(FailureReply.of(400, new ApplicationException(
                     res.cause(),
                     "repository.deleteAll.error"
-                ).encode());
+                )));
             }
         });
     }
@@ -309,16 +971,156 @@ public class RepositoryVerticle extends ConsumerVerticle {
 
         JsonObject query = message.body().copy();
 
-        mongoClient.count(modelCollection.get(model), query, res -> {
+        backend.count(modelCollection.get(model), query, maxTime(message), res -> {
             if (res.succeeded()) {
                 message.reply(new JsonObject().put("count", res.result()));
             } else {
-                message.fail(400, new ApplicationException(
-                    res.cause(),
-                    "repository.count.error"
-                ).encode());
+                message.reply(readFailure(message, res.cause(), "repository.count.error"));
             }
         });
     }
 
+    /**
+     * Converts a message body to a document for mongo, a model sent with the ModelCodec is converted only here
+     * @param body The message body
+     * @return The document
+     */
+    protected JsonObject toDocument(Object body) {
+        return body instanceof Model ? Converter.toJsonObject(body) : (JsonObject)body;
+    }
+
+    /**
+     * Converts a mongo document to a model instance, replacing its _id with id
+     * @param clazz The class of the model
+     * @param record The mongo document
+     * @return The model instance
+     */
+    protected Model toModel(Class<? extends Model> clazz, JsonObject record) {
+        record.put("id", record.remove("_id"));
+        return Converter.fromJsonObject(record, clazz);
+    }
+
+    /**
+     * Verifies if the sender asked for model instances instead of jsonObjects as reply
+     * @param message The message
+     * @return If it should reply models
+     */
+    protected boolean repliesModel(Message<?> message) {
+        return "model".equals(message.headers().get("reply"));
+    }
+
+    /**
+     * Returns the projection for a find, either the one sent in the fields header
+     * or the one of the model if autoProjection is enabled and the reply is a model
+     * @param message The message
+     * @param model The model name
+     * @return The projection, shared between calls so it must not be modified, or null for whole documents
+     */
+    protected JsonObject projection(Message<?> message, String model) {
+        String fields = message.headers().get("fields");
+        if (fields != null) {
+            JsonObject projection = parsedProjection.get(fields);
+            if (projection == null) {
+                if (parsedProjection.size() >= MAX_PARSED_PROJECTIONS) {
+                    // callers building projections per request shouldn't grow it forever
+                    parsedProjection.clear();
+                }
+                projection = new JsonObject(fields);
+                parsedProjection.put(fields, projection);
+            }
+            return projection;
+        }
+        if (autoProjection && repliesModel(message)) {
+            return modelProjection.get(model);
+        }
+        return null;
+    }
+
+    /**
+     * Returns the time left to the Deadline of a message, used as the maxTimeMS of its query
+     * @param message The message
+     * @return The milliseconds, 0 if the message has no deadline
+     */
+    protected long maxTime(Message<?> message) {
+        Deadline deadline = Deadline.fromHeaders(message.headers());
+        // a deadline that passed since the message arrived still limits the query, to the minimum
+        return deadline != null ? Math.max(1, deadline.remaining()) : 0;
+    }
+
+    /**
+     * Returns the failure of a read, a 504 if the Deadline of the message passed (the query was aborted by then)
+     * @param message The message
+     * @param cause The failure of the backend
+     * @param code The code of the failure
+     * @return The failure to reply
+     */
+    protected FailureReply readFailure(Message<?> message, Throwable cause, String code) {
+        Deadline deadline = Deadline.fromHeaders(message.headers());
+        if (deadline != null && deadline.isExpired()) {
+            return Deadline.exceeded();
+        }
+        return FailureReply.of(400, new ApplicationException(cause, code));
+    }
+
+    /**
+     * Replies a found document as a model or a jsonObject, failing with 404 if there is none
+     * @param message The message
+     * @param model The model name
+     * @param record The mongo document, could be null
+     */
+    protected void replyFound(Message<JsonObject> message, String model, JsonObject record) {
+        if (record == null) {
+            message.reply(FailureReply.of(
+                404,
+                new BusinessException(
+                    modelClass.get(model).getSimpleName() + " Not Found",
+                    "repository.notFound.error"
+                )
+            ));
+        } else if (repliesModel(message)) {
+            message.reply(toModel(modelClass.get(model), record), modelReplyOptions);
+        } else {
+            JsonObject object = record.copy();
+            object.put("id", object.remove("_id"));
+
+            message.reply(object);
+        }
+    }
+
+    protected JsonObject updateResult(MongoClientUpdateResult result) {
+        JsonArray upsertedIds = new JsonArray();
+        if (result.getDocUpsertedId() != null) {
+            upsertedIds.add(String.valueOf(result.getDocUpsertedId().getValue("_id")));
+        }
+        return new JsonObject()
+            .put("success", true)
+            .put("matched", result.getDocMatched())
+            .put("modified", result.getDocModified())
+            .put("upsertedIds", upsertedIds);
+    }
+
+    protected JsonObject deleteResult(MongoClientDeleteResult result) {
+        return new JsonObject()
+            .put("success", true)
+            .put("deleted", result.getRemovedCount());
+    }
+
+    private void replyUpdated(Message<Object> message, JsonObject modelData, JsonObject query) {
+        if (message.body() instanceof Model) {
+            message.reply(message.body(), modelReplyOptions);
+        } else {
+            message.reply(modelData.put("id", query.getString("_id")));
+        }
+    }
+
+    private DeliveryOptions streamOptions(String codecName, boolean end, long timeout) {
+        DeliveryOptions options = new DeliveryOptions()
+            .setCodecName(codecName)
+            .setSendTimeout(timeout);
+        if (end) {
+            options.addHeader("end", "true");
+        }
+        return options;
+    }
+
 }
@@ -0,0 +1,41 @@
+package org.nardhar.vertx.repository;
+
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Result of a write that affects many documents, so they don't have to be fetched again after writing
+ */
+@Data
+@Builder
+public class WriteResult {
+
+    private long matched;
+    private long modified;
+    private long deleted;
+    private List<String> upsertedIds;
+
+    public JsonObject encodeToJsonObject() {
+        return new JsonObject()
+            .put("matched", matched)
+            .put("modified", modified)
+            .put("deleted", deleted)
+            .put("upsertedIds", new JsonArray(upsertedIds != null ? upsertedIds : new ArrayList<>()));
+    }
+
+    @SuppressWarnings("unchecked")
+    public static WriteResult fromJsonObject(JsonObject json) {
+        return WriteResult.builder()
+            .matched(json.getLong("matched", 0L))
+            .modified(json.getLong("modified", 0L))
+            .deleted(json.getLong("deleted", 0L))
+            .upsertedIds(json.getJsonArray("upsertedIds", new JsonArray()).getList())
+            .build();
+    }
+
+}
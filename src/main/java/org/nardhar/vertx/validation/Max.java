@@ -0,0 +1,19 @@
+package org.nardhar.vertx.validation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * The number field must be less than or equal to the value, null is valid
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.FIELD)
+public @interface Max {
+
+    long value();
+
+    String code() default "validation.max.error";
+
+}
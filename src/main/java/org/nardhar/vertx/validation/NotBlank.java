@@ -0,0 +1,17 @@
+package org.nardhar.vertx.validation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * The string field can't be null, empty or only whitespace
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.FIELD)
+public @interface NotBlank {
+
+    String code() default "validation.notBlank.error";
+
+}
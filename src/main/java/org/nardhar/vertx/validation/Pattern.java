@@ -0,0 +1,19 @@
+package org.nardhar.vertx.validation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * The string field must match the regular expression entirely, null is valid
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.FIELD)
+public @interface Pattern {
+
+    String regexp();
+
+    String code() default "validation.pattern.error";
+
+}
@@ -0,0 +1,21 @@
+package org.nardhar.vertx.validation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * The length of a string, collection, map or array field must be between min and max, null is valid
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.FIELD)
+public @interface Size {
+
+    int min() default 0;
+
+    int max() default Integer.MAX_VALUE;
+
+    String code() default "validation.size.error";
+
+}
@@ -0,0 +1,268 @@
+package org.nardhar.vertx.validation;
+
+import org.nardhar.vertx.exception.ValidationException;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntPredicate;
+import java.util.function.Predicate;
+
+/**
+ * Validates the constraint annotations of the fields of a class (NotNull, NotBlank, Size, Min, Max and Pattern),
+ * compiled once per class into a list of checks
+ * Valid objects don't allocate anything (but the Matcher of a Pattern), the ValidationException is created
+ * on the first failed check and has the errors of every failed one
+ */
+public final class Validator {
+
+    private static final ClassValue<Validator> validators = new ClassValue<Validator>() {
+        @Override
+        protected Validator computeValue(Class<?> type) {
+            return new Validator(type);
+        }
+    };
+
+    private final Class<?> type;
+    private final Check[] checks;
+
+    private Validator(Class<?> type) {
+        this.type = type;
+
+        // fields of the superclasses first
+        Deque<Class<?>> hierarchy = new ArrayDeque<>();
+        for (Class<?> current = type; current != null && current != Object.class; current = current.getSuperclass()) {
+            hierarchy.push(current);
+        }
+        List<Check> compiled = new ArrayList<>();
+        hierarchy.forEach((current) -> {
+            for (Field field : current.getDeclaredFields()) {
+                if (!Modifier.isStatic(field.getModifiers())) {
+                    compile(field, compiled);
+                }
+            }
+        });
+        this.checks = compiled.toArray(new Check[0]);
+    }
+
+    /**
+     * Returns the validator of a class, compiled the first time
+     * @param type The class
+     * @return The validator
+     * @throws IllegalArgumentException If a constraint is on a field of a type it doesn't support
+     */
+    public static Validator of(Class<?> type) {
+        return validators.get(type);
+    }
+
+    /**
+     * Validates a list of objects in one call, the fields of the errors are prefixed with the index of their object,
+     * e.g. "2.title"
+     * @param objects The objects, each one is validated with the validator of its class
+     * @return The errors of every object, null if all of them are valid
+     */
+    public static ValidationException validateAll(List<?> objects) {
+        ValidationException errors = null;
+        for (int i = 0; i < objects.size(); i++) {
+            Object object = objects.get(i);
+            errors = of(object.getClass()).validate(object, i, errors);
+        }
+        return errors;
+    }
+
+    /**
+     * @return If the class has no constraints
+     */
+    public boolean isEmpty() {
+        return checks.length == 0;
+    }
+
+    /**
+     * Validates an object
+     * @param object The object, an instance of the class of the validator
+     * @return The errors, null if the object is valid
+     */
+    public ValidationException validate(Object object) {
+        return validate(object, -1, null);
+    }
+
+    private ValidationException validate(Object object, int index, ValidationException errors) {
+        for (Check check : checks) {
+            if (!check.test.test(object)) {
+                if (errors == null) {
+                    errors = new ValidationException(type.getSimpleName() + " is not valid", "validation.error");
+                }
+                errors.addError(index < 0 ? check.field : index + "." + check.field, check.code, check.args);
+            }
+        }
+        return errors;
+    }
+
+    private static void compile(Field field, List<Check> checks) {
+        field.setAccessible(true);
+        Class<?> fieldType = field.getType();
+        String name = field.getName();
+
+        NotNull notNull = field.getAnnotation(NotNull.class);
+        if (notNull != null && !fieldType.isPrimitive()) {
+            checks.add(new Check(name, notNull.code(), new Object[0], (object) -> value(field, object) != null));
+        }
+
+        NotBlank notBlank = field.getAnnotation(NotBlank.class);
+        if (notBlank != null) {
+            requireType(field, NotBlank.class, CharSequence.class.isAssignableFrom(fieldType));
+            checks.add(new Check(name, notBlank.code(), new Object[0], (object) -> {
+                CharSequence value = (CharSequence)value(field, object);
+                return value != null && !isBlank(value);
+            }));
+        }
+
+        Size size = field.getAnnotation(Size.class);
+        if (size != null) {
+            requireType(field, Size.class, CharSequence.class.isAssignableFrom(fieldType)
+                || Collection.class.isAssignableFrom(fieldType)
+                || Map.class.isAssignableFrom(fieldType)
+                || fieldType.isArray());
+            int min = size.min();
+            int max = size.max();
+            checks.add(new Check(name, size.code(), new Object[] {min, max}, (object) -> {
+                Object value = value(field, object);
+                if (value == null) {
+                    return true;
+                }
+                int length = length(value);
+                return length >= min && length <= max;
+            }));
+        }
+
+        Min min = field.getAnnotation(Min.class);
+        if (min != null) {
+            long limit = min.value();
+            checks.add(new Check(name, min.code(), new Object[] {limit}, number(field, Min.class, (compared) -> compared >= 0, limit)));
+        }
+
+        Max max = field.getAnnotation(Max.class);
+        if (max != null) {
+            long limit = max.value();
+            checks.add(new Check(name, max.code(), new Object[] {limit}, number(field, Max.class, (compared) -> compared <= 0, limit)));
+        }
+
+        Pattern pattern = field.getAnnotation(Pattern.class);
+        if (pattern != null) {
+            requireType(field, Pattern.class, CharSequence.class.isAssignableFrom(fieldType));
+            java.util.regex.Pattern regexp = java.util.regex.Pattern.compile(pattern.regexp());
+            checks.add(new Check(name, pattern.code(), new Object[] {pattern.regexp()}, (object) -> {
+                CharSequence value = (CharSequence)value(field, object);
+                return value == null || regexp.matcher(value).matches();
+            }));
+        }
+    }
+
+    /**
+     * Compiles the comparison of a number field with a limit, primitive fields are read without boxing
+     * @param accepts If the result of comparing the value with the limit is valid
+     */
+    private static Predicate<Object> number(Field field, Class<?> annotation, IntPredicate accepts, long limit) {
+        Class<?> fieldType = field.getType();
+        if (fieldType == int.class || fieldType == long.class || fieldType == short.class || fieldType == byte.class) {
+            return (object) -> {
+                try {
+                    return accepts.test(Long.compare(field.getLong(object), limit));
+                } catch (IllegalAccessException ex) {
+                    throw new IllegalStateException(ex);
+                }
+            };
+        }
+        if (fieldType == double.class || fieldType == float.class) {
+            return (object) -> {
+                try {
+                    return accepts.test(Double.compare(field.getDouble(object), limit));
+                } catch (IllegalAccessException ex) {
+                    throw new IllegalStateException(ex);
+                }
+            };
+        }
+        requireType(field, annotation, Number.class.isAssignableFrom(fieldType));
+        return (object) -> {
+            Number value = (Number)value(field, object);
+            return value == null || accepts.test(compare(value, limit));
+        };
+    }
+
+    private static int compare(Number value, long limit) {
+        if (value instanceof BigDecimal) {
+            return ((BigDecimal)value).compareTo(BigDecimal.valueOf(limit));
+        }
+        if (value instanceof BigInteger) {
+            return ((BigInteger)value).compareTo(BigInteger.valueOf(limit));
+        }
+        if (value instanceof Double || value instanceof Float) {
+            return Double.compare(value.doubleValue(), limit);
+        }
+        return Long.compare(value.longValue(), limit);
+    }
+
+    private static int length(Object value) {
+        if (value instanceof CharSequence) {
+            return ((CharSequence)value).length();
+        }
+        if (value instanceof Collection) {
+            return ((Collection<?>)value).size();
+        }
+        if (value instanceof Map) {
+            return ((Map<?, ?>)value).size();
+        }
+        return Array.getLength(value);
+    }
+
+    private static boolean isBlank(CharSequence value) {
+        for (int i = 0; i < value.length(); i++) {
+            if (!Character.isWhitespace(value.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static Object value(Field field, Object object) {
+        try {
+            return field.get(object);
+        } catch (IllegalAccessException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private static void requireType(Field field, Class<?> annotation, boolean supported) {
+        if (!supported) {
+            throw new IllegalArgumentException(
+                "@" + annotation.getSimpleName() + " is not supported on " + field.getDeclaringClass().getName()
+                    + "." + field.getName() + " of type " + field.getType().getName()
+            );
+        }
+    }
+
+    private static final class Check {
+
+        private final String field;
+        private final String code;
+        private final Object[] args;
+        private final Predicate<Object> test;
+
+        private Check(String field, String code, Object[] args, Predicate<Object> test) {
+            this.field = field;
+            this.code = code;
+            this.args = args;
+            this.test = test;
+        }
+
+    }
+
+}
@@ -9,6 +9,8 @@ public abstract class AbstractController implements Controller {
 
     private Router router;
     private EventBus eventBus;
+    private ResponseOptions responseOptions = ResponseOptions.DEFAULT;
+    private ResponseCache responseCache;
 
     public AbstractController() {
     }
@@ -3,17 +3,29 @@ package org.nardhar.vertx.web;
 import io.vertx.core.AsyncResult;
 import io.vertx.core.Future;
 import io.vertx.core.Handler;
+import io.vertx.core.buffer.Buffer;
 import io.vertx.core.eventbus.EventBus;
 import io.vertx.core.eventbus.Message;
+import io.vertx.core.eventbus.ReplyException;
+import io.vertx.core.eventbus.ReplyFailure;
 import io.vertx.core.http.HttpMethod;
+import io.vertx.core.http.HttpServerResponse;
 import io.vertx.core.json.Json;
 import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
+import io.vertx.core.streams.ReadStream;
 import io.vertx.ext.web.Router;
 import io.vertx.ext.web.RoutingContext;
 import org.nardhar.vertx.eventbus.BusSender;
+import org.nardhar.vertx.eventbus.Deadline;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
 import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
 public interface Controller extends BusSender {
 
@@ -25,8 +37,28 @@ public interface Controller extends BusSender {
 
     void setEventBus(EventBus eventBus);
 
+    /**
+     * @return The options of the responses of the actions, AbstractController keeps the ones set by the WebVerticle
+     */
+    default ResponseOptions getResponseOptions() {
+        return ResponseOptions.DEFAULT;
+    }
+
+    default void setResponseOptions(ResponseOptions responseOptions) {}
+
+    /**
+     * @return The response cache of the WebVerticle, null if it's not configured
+     */
+    default ResponseCache getResponseCache() {
+        return null;
+    }
+
+    default void setResponseCache(ResponseCache responseCache) {}
+
     /**
      * Definition of a Controller Action for responding a request
+     * The caller runs with the deadline of the request, so the messages it sends carry it and the work left
+     * is dropped once it passes or the client goes away
      * @param method The HttpMethod
      * @param path The request path
      * @param caller The function that takes the RoutingContext and returns a Future of the response body
@@ -35,20 +67,138 @@ public interface Controller extends BusSender {
     default <T> void action(HttpMethod method, String path, Function<RoutingContext, Future<T>> caller) {
         getRouter()
             .route(method, path)
-            .handler((ctx) -> caller.apply(ctx).setHandler((result) -> {
-                if (!ctx.response().ended()) {
-                    if (result.succeeded()) {
-                        ctx.response()
-                            .setStatusCode(ctx.request().method().equals(HttpMethod.POST) ? 201 : 200)
-                            .end(Json.encode(result.result()));
-                    } else {
-                        // TODO: create a proper error handler
-                        ctx.response()
-                            .setStatusCode(ctx.request().method().equals(HttpMethod.GET) ? 404 : 400)
-                            .end(result.cause().getMessage());
+            .handler((ctx) -> {
+                Deadline deadline = deadline(ctx);
+                if (deadline != null) {
+                    ctx.response().closeHandler((v) -> deadline.cancel());
+                }
+                Deadline.run(deadline, () -> caller.apply(ctx).setHandler((result) -> {
+                    if (!ctx.response().ended()) {
+                        if (result.succeeded()) {
+                            respond(
+                                ctx,
+                                ctx.request().method().equals(HttpMethod.POST) ? 201 : 200,
+                                Buffer.buffer(Json.encode(result.result()))
+                            );
+                        } else {
+                            respondFailure(ctx, result.cause());
+                        }
                     }
+                }));
+            });
+    }
+
+    /**
+     * The deadline of a request, the requestTimeout of the ResponseOptions or the X-Request-Timeout header
+     * (in milliseconds) when the client asks for a shorter one
+     * @param ctx The RoutingContext
+     * @return The deadline, null if the request has none
+     */
+    default Deadline deadline(RoutingContext ctx) {
+        long timeout = getResponseOptions().getRequestTimeout();
+        String requested = ctx.request().getHeader("X-Request-Timeout");
+        if (requested != null) {
+            try {
+                long value = Long.parseLong(requested.trim());
+                if (value > 0 && (timeout <= 0 || value < timeout)) {
+                    timeout = value;
                 }
-            }));
+            } catch (NumberFormatException ex) {
+                // an invalid header is ignored
+            }
+        }
+        return timeout > 0 ? Deadline.in(timeout) : null;
+    }
+
+    /**
+     * Definition of a GET action whose responses are kept in the ResponseCache, when the WebVerticle has one
+     * Identical requests (same path and query) share the call of the first one while it runs, so the caller
+     * must not depend on anything else of the request, and runs with the deadline of the request as in action
+     * @param path The request path
+     * @param caller The function that takes the RoutingContext and returns a Future of the response body
+     * @param models The models whose writes invalidate the cached responses
+     * @param <T> The type of the response body (should be JsonArray or JsonObject)
+     */
+    default <T> void cachedAction(String path, Function<RoutingContext, Future<T>> caller, Class<?>... models) {
+        ResponseCache cache = getResponseCache();
+        if (cache == null) {
+            action(HttpMethod.GET, path, caller);
+            return;
+        }
+        Set<String> dependencies = Arrays.stream(models).map(Class::getName).collect(Collectors.toSet());
+        getRouter()
+            .route(HttpMethod.GET, path)
+            .handler((ctx) -> {
+                Deadline deadline = deadline(ctx);
+                if (deadline != null) {
+                    ctx.response().closeHandler((v) -> deadline.cancel());
+                }
+                Deadline.run(deadline, () -> cache.get(
+                    ResponseCache.key(ctx.request()),
+                    dependencies,
+                    () -> caller.apply(ctx).map((body) -> Buffer.buffer(Json.encode(body))),
+                    System.currentTimeMillis()
+                ).setHandler((result) -> {
+                    if (!ctx.response().ended()) {
+                        if (result.succeeded()) {
+                            respond(ctx, 200, result.result().getBody(), result.result()::getEtag);
+                        } else {
+                            respondFailure(ctx, result.cause());
+                        }
+                    }
+                }));
+            });
+    }
+
+    /**
+     * Ends a response with its encoded body, as configured in the ResponseOptions
+     * GET responses get the strong ETag of the body and a 304 without body if it matches If-None-Match,
+     * and bodies below the compression threshold are sent as they are
+     * @param ctx The RoutingContext
+     * @param statusCode The status code
+     * @param body The encoded body
+     */
+    default void respond(RoutingContext ctx, int statusCode, Buffer body) {
+        respond(ctx, statusCode, body, () -> ETag.of(body.getBytes()));
+    }
+
+    /**
+     * Ends a response with its encoded body and the ETag it already has
+     * @param ctx The RoutingContext
+     * @param statusCode The status code
+     * @param body The encoded body
+     * @param etag The ETag of the body, only called if ETags are enabled
+     */
+    default void respond(RoutingContext ctx, int statusCode, Buffer body, Supplier<String> etag) {
+        ResponseOptions options = getResponseOptions();
+        HttpServerResponse response = ctx.response();
+
+        if (options.isEtag() && statusCode == 200 && ctx.request().method().equals(HttpMethod.GET)) {
+            String tag = etag.get();
+            response.putHeader("ETag", tag);
+            if (ETag.matches(ctx.request().getHeader("If-None-Match"), tag)) {
+                response.setStatusCode(304).end();
+                return;
+            }
+        }
+        if (options.isCompression() && body.length() < options.getCompressionMinSize()) {
+            // vertx doesn't compress responses with the identity encoding
+            response.putHeader("Content-Encoding", "identity");
+        }
+        response.setStatusCode(statusCode).end(body);
+    }
+
+    default void respondFailure(RoutingContext ctx, Throwable cause) {
+        // TODO: create a proper error handler
+        if (cause instanceof ReplyException && (((ReplyException)cause).failureCode() == 504
+            || ((ReplyException)cause).failureType() == ReplyFailure.TIMEOUT)) {
+            // the deadline of the request passed, or the time of a send
+            ctx.response().setStatusCode(504).end(String.valueOf(cause.getMessage()));
+            return;
+        }
+        ctx.response()
+            .setStatusCode(ctx.request().method().equals(HttpMethod.GET) ? 404 : 400)
+            .end(String.valueOf(cause.getMessage()));
     }
 
     // shortcuts
@@ -60,6 +210,14 @@ public interface Controller extends BusSender {
         action(HttpMethod.GET, path, caller);
     }
 
+    default void cachedList(String path, Function<RoutingContext, Future<JsonArray>> caller, Class<?>... models) {
+        cachedAction(path, caller, models);
+    }
+
+    default void cachedGet(String path, Function<RoutingContext, Future<JsonObject>> caller, Class<?>... models) {
+        cachedAction(path, caller, models);
+    }
+
     default void post(String path, Function<RoutingContext, Future<JsonObject>> caller) {
         action(HttpMethod.POST, path, caller);
     }
@@ -87,10 +245,81 @@ public interface Controller extends BusSender {
         });
     }
 
+    /**
+     * Definition of a list action that streams its response as a chunked JSON array, one element at a time,
+     * so time to first byte and memory don't depend on the size of the result
+     * The stream is paused while the response can't take more data
+     * @param path The request path
+     * @param caller The function that takes the RoutingContext and returns a stream of the elements (e.g. dbStream)
+     * @param <T> The type of the elements (models, JsonObjects or anything Json.encode can encode)
+     */
+    default <T> void listStream(String path, Function<RoutingContext, ReadStream<T>> caller) {
+        getRouter()
+            .route(HttpMethod.GET, path)
+            .handler((ctx) -> JsonArrayResponse.write(ctx, caller.apply(ctx), (element) -> {
+                Object encoded = busEncode(element);
+                if (encoded instanceof JsonObject) {
+                    return ((JsonObject)encoded).encode();
+                }
+                if (encoded instanceof JsonArray) {
+                    return ((JsonArray)encoded).encode();
+                }
+                return Json.encode(encoded);
+            }, this::respondFailure));
+    }
+
+    /**
+     * Reads the body of the request, bodies larger than the maximum size of the ResponseOptions get a 413
+     * @param ctx The RoutingContext
+     * @return A Future of the body
+     */
+    default Future<Buffer> getBody(RoutingContext ctx) {
+        return RequestBody.read(ctx, getResponseOptions().getMaxBodySize());
+    }
+
     default Future<JsonObject> getJsonBody(RoutingContext ctx) {
-        Future<JsonObject> future = Future.future();
+        return getBody(ctx).map(Buffer::toJsonObject);
+    }
+
+    /**
+     * Reads the body of the request straight into an object, without an intermediate JsonObject
+     * @param ctx The RoutingContext
+     * @param clazz The class of the body (e.g. a Model)
+     * @param <T> The type of the body
+     * @return A Future of the decoded body
+     */
+    default <T> Future<T> getModelBody(RoutingContext ctx, Class<T> clazz) {
+        return getBody(ctx).map((body) -> Json.decodeValue(body, clazz));
+    }
+
+    /**
+     * Parses a body with a JSON array as it arrives, emitting its elements one at a time,
+     * so large arrays are never kept whole in memory
+     * Pausing the stream pauses the request
+     * @param ctx The RoutingContext
+     * @param clazz The class of the elements
+     * @param <T> The type of the elements
+     * @return The stream of the elements, it starts reading when a handler is set
+     */
+    default <T> ReadStream<T> getModelStream(RoutingContext ctx, Class<T> clazz) {
+        return new JsonArrayParser<>(ctx, clazz, getResponseOptions().getMaxBodySize());
+    }
+
+    /**
+     * Reads a body with a JSON array into a list, parsing its elements as they arrive
+     * @param ctx The RoutingContext
+     * @param clazz The class of the elements
+     * @param <T> The type of the elements
+     * @return A Future of the elements
+     */
+    default <T> Future<List<T>> getModelListBody(RoutingContext ctx, Class<T> clazz) {
+        Future<List<T>> future = Future.future();
+        List<T> elements = new ArrayList<>();
 
-        ctx.request().bodyHandler((body) -> future.complete(body.toJsonObject()));
+        getModelStream(ctx, clazz)
+            .exceptionHandler(future::tryFail)
+            .endHandler((v) -> future.tryComplete(elements))
+            .handler(elements::add);
 
         return future;
     }
@@ -0,0 +1,55 @@
+package org.nardhar.vertx.web;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Base64;
+
+/**
+ * Strong entity tags computed from the encoded body of a response
+ */
+final class ETag {
+
+    private static final ThreadLocal<MessageDigest> digest = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    });
+
+    private ETag() {}
+
+    /**
+     * Computes the tag of a body, the first 128 bits of its SHA-256
+     * @param body The encoded body
+     * @return The quoted tag
+     */
+    static String of(byte[] body) {
+        byte[] hash = digest.get().digest(body);
+        return "\"" + Base64.getUrlEncoder().withoutPadding().encodeToString(Arrays.copyOf(hash, 16)) + "\"";
+    }
+
+    /**
+     * Checks an If-None-Match header against a tag, with the weak comparison the header uses
+     * @param ifNoneMatch The header value, could be null
+     * @param etag The quoted tag of the current body
+     * @return If the client already has the current body
+     */
+    static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            candidate = candidate.trim();
+            if (candidate.startsWith("W/")) {
+                candidate = candidate.substring(2);
+            }
+            if (candidate.equals("*") || candidate.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+}
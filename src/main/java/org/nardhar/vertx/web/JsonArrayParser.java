@@ -0,0 +1,215 @@
+package org.nardhar.vertx.web;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.async.ByteArrayFeeder;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import io.vertx.core.Handler;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.Json;
+import io.vertx.core.streams.ReadStream;
+import io.vertx.ext.web.RoutingContext;
+import org.nardhar.vertx.eventbus.Deadline;
+import org.nardhar.vertx.exception.BusinessException;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Parses a request body with a JSON array as it arrives, emitting each element as an object of a class
+ * The body is never kept whole, only the tokens of the element being parsed and the elements of the last chunk
+ * while the stream is paused, which also pauses the request
+ * Its handlers run with the Deadline that was current when it was created
+ * @param <T> The type of the elements
+ */
+class JsonArrayParser<T> implements ReadStream<T> {
+
+    private final RoutingContext ctx;
+    private final Class<T> clazz;
+    private final long maxSize;
+    private final JsonParser parser;
+    private final ByteArrayFeeder feeder;
+    private final Deque<T> parsed = new ArrayDeque<>();
+    private final Deadline deadline = Deadline.current();
+
+    private Handler<T> handler;
+    private Handler<Void> endHandler;
+    private Handler<Throwable> exceptionHandler;
+
+    private TokenBuffer element;
+    private int depth;
+    private long received;
+    private boolean started;
+    private boolean arrayStarted;
+    private boolean arrayEnded;
+    private boolean bodyEnded;
+    private boolean paused;
+    private boolean delivering;
+    private boolean done;
+
+    JsonArrayParser(RoutingContext ctx, Class<T> clazz, long maxSize) {
+        this.ctx = ctx;
+        this.clazz = clazz;
+        this.maxSize = maxSize;
+        try {
+            this.parser = Json.mapper.getFactory().createNonBlockingByteArrayParser();
+        } catch (IOException ex) {
+            throw new IllegalStateException(ex);
+        }
+        this.feeder = (ByteArrayFeeder)parser.getNonBlockingInputFeeder();
+        // the request is paused until there is a handler, so no chunk arrives before it
+        ctx.request().pause();
+    }
+
+    @Override
+    public JsonArrayParser<T> handler(Handler<T> handler) {
+        this.handler = handler;
+        if (handler != null && !started) {
+            started = true;
+            start();
+        }
+        return this;
+    }
+
+    @Override
+    public JsonArrayParser<T> pause() {
+        paused = true;
+        ctx.request().pause();
+        return this;
+    }
+
+    @Override
+    public JsonArrayParser<T> resume() {
+        paused = false;
+        ctx.request().resume();
+        deliver();
+        return this;
+    }
+
+    @Override
+    public JsonArrayParser<T> endHandler(Handler<Void> endHandler) {
+        this.endHandler = endHandler;
+        return this;
+    }
+
+    @Override
+    public JsonArrayParser<T> exceptionHandler(Handler<Throwable> exceptionHandler) {
+        this.exceptionHandler = exceptionHandler;
+        return this;
+    }
+
+    private void start() {
+        if (RequestBody.declaresMore(ctx.request(), maxSize)) {
+            fail(RequestBody.reject(ctx, maxSize));
+            ctx.request().resume();
+            return;
+        }
+        // the request callbacks run without the deadline of the action
+        ctx.request().handler((chunk) -> Deadline.run(deadline, () -> feed(chunk)));
+        ctx.request().exceptionHandler((ex) -> Deadline.run(deadline, () -> fail(ex)));
+        ctx.request().endHandler((v) -> Deadline.run(deadline, () -> {
+            if (!done) {
+                bodyEnded = true;
+                feeder.endOfInput();
+                parse();
+                deliver();
+            }
+        }));
+        if (!paused) {
+            ctx.request().resume();
+        }
+    }
+
+    private void feed(Buffer chunk) {
+        if (done) {
+            return;
+        }
+        received += chunk.length();
+        if (received > maxSize) {
+            fail(RequestBody.reject(ctx, maxSize));
+            return;
+        }
+        try {
+            feeder.feedInput(chunk.getBytes(), 0, chunk.length());
+        } catch (IOException ex) {
+            fail(new BusinessException(ex, "web.invalidBody.error"));
+            return;
+        }
+        parse();
+        deliver();
+    }
+
+    /**
+     * Consumes the tokens available so far, each complete element is read into an object of the class
+     */
+    private void parse() {
+        try {
+            JsonToken token;
+            while (!done && (token = parser.nextToken()) != null && token != JsonToken.NOT_AVAILABLE) {
+                if (!arrayStarted) {
+                    if (token != JsonToken.START_ARRAY) {
+                        throw new JsonParseException(parser, "Expected a JSON array");
+                    }
+                    arrayStarted = true;
+                } else if (arrayEnded) {
+                    throw new JsonParseException(parser, "Unexpected content after the JSON array");
+                } else if (depth == 0 && token == JsonToken.END_ARRAY) {
+                    arrayEnded = true;
+                } else {
+                    if (element == null) {
+                        element = new TokenBuffer(Json.mapper, false);
+                    }
+                    element.copyCurrentEvent(parser);
+                    if (token.isStructStart()) {
+                        depth++;
+                    } else if (token.isStructEnd()) {
+                        depth--;
+                    }
+                    if (depth == 0) {
+                        parsed.add(Json.mapper.readValue(element.asParser(), clazz));
+                        element = null;
+                    }
+                }
+            }
+        } catch (IOException | RuntimeException ex) {
+            fail(new BusinessException(ex, "web.invalidBody.error"));
+        }
+    }
+
+    private void deliver() {
+        // an element handler may pause or resume the stream while it's delivering
+        if (delivering || done) {
+            return;
+        }
+        delivering = true;
+        while (!paused && !done && !parsed.isEmpty()) {
+            handler.handle(parsed.poll());
+        }
+        delivering = false;
+
+        if (!paused && !done && bodyEnded && parsed.isEmpty()) {
+            if (!arrayEnded) {
+                fail(new BusinessException("Unexpected end of the JSON array", "web.invalidBody.error"));
+                return;
+            }
+            done = true;
+            if (endHandler != null) {
+                endHandler.handle(null);
+            }
+        }
+    }
+
+    private void fail(Throwable cause) {
+        if (done) {
+            return;
+        }
+        done = true;
+        parsed.clear();
+        if (exceptionHandler != null) {
+            exceptionHandler.handle(cause);
+        }
+    }
+
+}
@@ -0,0 +1,159 @@
+package org.nardhar.vertx.web;
+
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpServerResponse;
+import io.vertx.core.streams.ReadStream;
+import io.vertx.ext.web.RoutingContext;
+
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * Writes a ReadStream to a chunked response as a JSON array, encoding one element at a time,
+ * so neither the elements nor the encoded array are ever held in memory as a whole
+ * The elements received in the same event loop task are sent in one chunk, and the stream is paused
+ * while the write queue of the response is full
+ * A failure before the first chunk is responded by the failure handler (Controller.respondFailure),
+ * after it the response is reset, so the client never takes a truncated array as a complete one
+ * @param <T> The type of the elements
+ */
+class JsonArrayResponse<T> {
+
+    // pending elements are sent once they reach this size, even if the event loop task hasn't finished
+    static final int FLUSH_SIZE = 16 * 1024;
+
+    private final RoutingContext ctx;
+    private final ReadStream<T> stream;
+    private final Function<T, String> encoder;
+    private final BiConsumer<RoutingContext, Throwable> failureHandler;
+
+    private Buffer pending;
+    private boolean flushScheduled;
+    private boolean empty = true;
+    private boolean done;
+
+    private JsonArrayResponse(
+        RoutingContext ctx,
+        ReadStream<T> stream,
+        Function<T, String> encoder,
+        BiConsumer<RoutingContext, Throwable> failureHandler
+    ) {
+        this.ctx = ctx;
+        this.stream = stream;
+        this.encoder = encoder;
+        this.failureHandler = failureHandler;
+    }
+
+    /**
+     * Starts writing the stream to the response of a request
+     * @param ctx The routing context
+     * @param stream The stream of elements, it must not have handlers yet
+     * @param encoder The encoding of an element as JSON
+     * @param failureHandler The response of a failure before the first chunk
+     * @param <T> The type of the elements
+     */
+    static <T> void write(
+        RoutingContext ctx,
+        ReadStream<T> stream,
+        Function<T, String> encoder,
+        BiConsumer<RoutingContext, Throwable> failureHandler
+    ) {
+        new JsonArrayResponse<>(ctx, stream, encoder, failureHandler).start();
+    }
+
+    private void start() {
+        // the client went away, so the rest of the stream is left unread
+        ctx.response().closeHandler((v) -> {
+            if (!done) {
+                done = true;
+                stream.pause();
+            }
+        });
+        stream.exceptionHandler(this::fail);
+        stream.endHandler((v) -> end());
+        stream.handler(this::element);
+    }
+
+    private void element(T element) {
+        if (done) {
+            return;
+        }
+        String json;
+        try {
+            json = encoder.apply(element);
+        } catch (RuntimeException ex) {
+            stream.pause();
+            fail(ex);
+            return;
+        }
+        if (pending == null) {
+            pending = Buffer.buffer(FLUSH_SIZE);
+        }
+        pending.appendString(empty ? "[" : ",").appendString(json);
+        empty = false;
+
+        if (pending.length() >= FLUSH_SIZE) {
+            flush();
+        } else if (!flushScheduled) {
+            flushScheduled = true;
+            ctx.vertx().runOnContext((v) -> {
+                flushScheduled = false;
+                flush();
+            });
+        }
+    }
+
+    private void flush() {
+        if (done || pending == null) {
+            return;
+        }
+        HttpServerResponse response = head();
+        response.write(pending);
+        pending = null;
+
+        if (response.writeQueueFull()) {
+            stream.pause();
+            response.drainHandler((v) -> {
+                if (!done) {
+                    stream.resume();
+                }
+            });
+        }
+    }
+
+    private void end() {
+        if (done) {
+            return;
+        }
+        done = true;
+        Buffer last = pending != null ? pending : Buffer.buffer();
+        pending = null;
+        head().end(last.appendString(empty ? "[]" : "]"));
+    }
+
+    private void fail(Throwable cause) {
+        if (done) {
+            return;
+        }
+        done = true;
+        pending = null;
+        HttpServerResponse response = ctx.response();
+        if (!response.headWritten()) {
+            failureHandler.accept(ctx, cause);
+        } else {
+            response.reset();
+        }
+    }
+
+    private HttpServerResponse head() {
+        HttpServerResponse response = ctx.response();
+        if (!response.headWritten()) {
+            response
+                .setChunked(true)
+                .setStatusCode(200)
+                .putHeader("Content-Type", "application/json");
+        }
+        return response;
+    }
+
+}
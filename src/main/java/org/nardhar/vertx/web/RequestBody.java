@@ -0,0 +1,86 @@
+package org.nardhar.vertx.web;
+
+import io.vertx.core.Future;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpServerRequest;
+import io.vertx.core.http.HttpVersion;
+import io.vertx.ext.web.RoutingContext;
+import org.nardhar.vertx.eventbus.Deadline;
+import org.nardhar.vertx.exception.BusinessException;
+
+/**
+ * Reads request bodies with a maximum size, bodies that exceed it get a 413 as soon as it's known
+ */
+final class RequestBody {
+
+    private RequestBody() {}
+
+    /**
+     * Reads the whole body of a request
+     * The Future is completed with the Deadline that was current when reading started,
+     * so what is composed on it (e.g. the sends with the body) keeps the deadline of the request
+     * @param ctx The RoutingContext
+     * @param maxSize The maximum size in bytes
+     * @return A Future of the body, failed if it's too large (the 413 is already sent then)
+     */
+    static Future<Buffer> read(RoutingContext ctx, long maxSize) {
+        Future<Buffer> future = Future.future();
+        HttpServerRequest request = ctx.request();
+
+        if (declaresMore(request, maxSize)) {
+            future.fail(reject(ctx, maxSize));
+            return future;
+        }
+
+        Deadline deadline = Deadline.current();
+        Buffer body = Buffer.buffer();
+        request.handler((chunk) -> {
+            if (future.isComplete()) {
+                return;
+            }
+            if (body.length() + chunk.length() > maxSize) {
+                Deadline.run(deadline, () -> future.fail(reject(ctx, maxSize)));
+            } else {
+                body.appendBuffer(chunk);
+            }
+        });
+        request.exceptionHandler((ex) -> Deadline.run(deadline, () -> future.tryFail(ex)));
+        request.endHandler((v) -> Deadline.run(deadline, () -> future.tryComplete(body)));
+
+        return future;
+    }
+
+    /**
+     * @return If the Content-Length of the request is larger than the maximum size
+     */
+    static boolean declaresMore(HttpServerRequest request, long maxSize) {
+        String length = request.getHeader("Content-Length");
+        if (length == null) {
+            return false;
+        }
+        try {
+            return Long.parseLong(length.trim()) > maxSize;
+        } catch (NumberFormatException ex) {
+            return false;
+        }
+    }
+
+    /**
+     * Responds 413 and stops reading the body, HTTP/1 connections are closed after the response
+     * since the rest of the body would still arrive on them
+     * @return The failure for the body Future
+     */
+    static BusinessException reject(RoutingContext ctx, long maxSize) {
+        HttpServerRequest request = ctx.request();
+        if (!ctx.response().ended()) {
+            if (request.version() != HttpVersion.HTTP_2) {
+                ctx.response()
+                    .putHeader("Connection", "close")
+                    .bodyEndHandler((v) -> request.connection().close());
+            }
+            ctx.response().setStatusCode(413).end();
+        }
+        return new BusinessException("Request body larger than " + maxSize + " bytes", "web.bodyTooLarge.error");
+    }
+
+}
@@ -0,0 +1,202 @@
+package org.nardhar.vertx.web;
+
+import io.vertx.core.Future;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpServerRequest;
+import io.vertx.core.json.JsonObject;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * LRU cache of encoded GET responses by normalized path and query, with TTL
+ * Identical requests that arrive while a response is being produced share the same call instead of starting their own,
+ * and responses are dropped when the repository publishes a write to a model they depend on
+ * Only responses that don't depend on the user (headers, session) should be cached
+ * It must be used from a single verticle context, the WebVerticle creates one per instance
+ */
+public class ResponseCache {
+
+    static final class Entry {
+        private final Buffer body;
+        private final long storedAt;
+        private final Set<String> models;
+        private String etag;
+
+        private Entry(Buffer body, long storedAt, Set<String> models) {
+            this.body = body;
+            this.storedAt = storedAt;
+            this.models = models;
+        }
+
+        Buffer getBody() {
+            return body;
+        }
+
+        /**
+         * @return The ETag of the body, computed once
+         */
+        String getEtag() {
+            if (etag == null) {
+                etag = ETag.of(body.getBytes());
+            }
+            return etag;
+        }
+    }
+
+    // a response being produced, with the requests waiting for it
+    private static final class Flight {
+        private final Future<Entry> future = Future.future();
+        private final Set<String> models;
+        // a write to one of its models happened while it was running, so its response is not stored
+        private boolean stale;
+
+        private Flight(Set<String> models) {
+            this.models = models;
+        }
+    }
+
+    private final int maxSize;
+    private final long ttl;
+
+    private final LinkedHashMap<String, Entry> entries;
+    private final Map<String, Flight> flights = new HashMap<>();
+
+    private long hits;
+    private long misses;
+    private long coalesced;
+    private long evictions;
+    private long invalidations;
+
+    public ResponseCache(int maxSize, long ttl) {
+        this.maxSize = maxSize;
+        this.ttl = ttl;
+        this.entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                if (size() > ResponseCache.this.maxSize) {
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Creates a cache from its configuration, e.g. {"size": 1000, "ttl": 5000}, ttl in milliseconds
+     * @param config The configuration
+     * @return The cache
+     */
+    public static ResponseCache fromConfig(JsonObject config) {
+        return new ResponseCache(config.getInteger("size", 1000), config.getLong("ttl", 5000L));
+    }
+
+    /**
+     * Builds the key of a request from its path and its query parameters sorted by name and value,
+     * so the order of the parameters doesn't matter
+     * @param request The request
+     * @return The key
+     */
+    static String key(HttpServerRequest request) {
+        List<Map.Entry<String, String>> params = new ArrayList<>(request.params().entries());
+        if (params.isEmpty()) {
+            return request.path();
+        }
+        params.sort(Map.Entry.<String, String>comparingByKey().thenComparing(Map.Entry.comparingByValue()));
+        StringBuilder key = new StringBuilder(request.path()).append('?');
+        params.forEach((param) -> key.append(param.getKey()).append('=').append(param.getValue()).append('&'));
+        return key.substring(0, key.length() - 1);
+    }
+
+    /**
+     * Returns the cached response of a key, or the response being produced for it,
+     * or produces it and stores it if no model it depends on was written meanwhile
+     * @param key The key of the request
+     * @param models The names of the models the response depends on
+     * @param producer The call that produces the encoded response, failures are not cached
+     * @param now The current time in milliseconds
+     * @return The response
+     */
+    Future<Entry> get(String key, Set<String> models, Supplier<Future<Buffer>> producer, long now) {
+        Entry entry = entries.get(key);
+        if (entry != null) {
+            if (now - entry.storedAt < ttl) {
+                hits++;
+                return Future.succeededFuture(entry);
+            }
+            entries.remove(key);
+        }
+
+        Flight running = flights.get(key);
+        if (running != null) {
+            coalesced++;
+            return running.future;
+        }
+
+        misses++;
+        Flight flight = new Flight(models);
+        flights.put(key, flight);
+
+        Future<Buffer> produced;
+        try {
+            produced = producer.get();
+        } catch (RuntimeException ex) {
+            produced = Future.failedFuture(ex);
+        }
+        produced.setHandler((result) -> {
+            if (flights.get(key) == flight) {
+                flights.remove(key);
+            }
+            if (result.failed()) {
+                flight.future.fail(result.cause());
+                return;
+            }
+            // stored with the time of the request, so it never outlives the ttl
+            Entry stored = new Entry(result.result(), now, models);
+            if (!flight.stale) {
+                entries.put(key, stored);
+            }
+            flight.future.complete(stored);
+        });
+        return flight.future;
+    }
+
+    /**
+     * Drops the responses that depend on a model, and detaches the running calls that depend on it,
+     * so the following requests don't get a response produced before the write
+     * @param model The model name
+     */
+    void invalidate(String model) {
+        invalidations++;
+        entries.values().removeIf((entry) -> entry.models.contains(model));
+        Iterator<Flight> running = flights.values().iterator();
+        while (running.hasNext()) {
+            Flight flight = running.next();
+            if (flight.models.contains(model)) {
+                flight.stale = true;
+                running.remove();
+            }
+        }
+    }
+
+    /**
+     * @return The counters and size of the cache
+     */
+    JsonObject stats() {
+        return new JsonObject()
+            .put("size", entries.size())
+            .put("hits", hits)
+            .put("misses", misses)
+            .put("coalesced", coalesced)
+            .put("evictions", evictions)
+            .put("invalidations", invalidations);
+    }
+
+}
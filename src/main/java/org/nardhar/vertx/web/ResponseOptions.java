@@ -0,0 +1,91 @@
+package org.nardhar.vertx.web;
+
+import io.vertx.core.json.JsonObject;
+
+/**
+ * Options of the responses of the controller actions, read from the WebVerticle configuration,
+ * e.g. "etag": true, "compression": {"level": 6, "minSize": 1024}, "maxBodySize": 1048576, "requestTimeout": 5000
+ */
+public class ResponseOptions {
+
+    public static final long DEFAULT_MAX_BODY_SIZE = 10 * 1024 * 1024;
+
+    public static final ResponseOptions DEFAULT = new ResponseOptions(false, false, 0, DEFAULT_MAX_BODY_SIZE, 0);
+
+    private final boolean etag;
+    private final boolean compression;
+    private final int compressionMinSize;
+    private final long maxBodySize;
+    private final long requestTimeout;
+
+    public ResponseOptions(boolean etag, boolean compression, int compressionMinSize, long maxBodySize) {
+        this(etag, compression, compressionMinSize, maxBodySize, 0);
+    }
+
+    public ResponseOptions(
+        boolean etag,
+        boolean compression,
+        int compressionMinSize,
+        long maxBodySize,
+        long requestTimeout
+    ) {
+        this.etag = etag;
+        this.compression = compression;
+        this.compressionMinSize = compressionMinSize;
+        this.maxBodySize = maxBodySize;
+        this.requestTimeout = requestTimeout;
+    }
+
+    /**
+     * Creates the options from a WebVerticle configuration
+     * @param config The configuration
+     * @return The options, responses without ETags and compression, bodies up to 10MB and requests without deadline
+     * if they are not configured
+     */
+    public static ResponseOptions fromConfig(JsonObject config) {
+        JsonObject compression = config.getJsonObject("compression");
+        return new ResponseOptions(
+            config.getBoolean("etag", false),
+            compression != null,
+            compression != null ? compression.getInteger("minSize", 1024) : 0,
+            config.getLong("maxBodySize", DEFAULT_MAX_BODY_SIZE),
+            config.getLong("requestTimeout", 0L)
+        );
+    }
+
+    /**
+     * @return If GET responses carry a strong ETag and get a 304 when it matches If-None-Match
+     */
+    public boolean isEtag() {
+        return etag;
+    }
+
+    /**
+     * @return If the server compresses responses, with gzip or deflate as the client accepts
+     */
+    public boolean isCompression() {
+        return compression;
+    }
+
+    /**
+     * @return The size in bytes from which bodies are compressed, smaller ones aren't worth it
+     */
+    public int getCompressionMinSize() {
+        return compressionMinSize;
+    }
+
+    /**
+     * @return The maximum size in bytes of request bodies, larger ones get a 413
+     */
+    public long getMaxBodySize() {
+        return maxBodySize;
+    }
+
+    /**
+     * @return The milliseconds an action has to respond, its deadline, 0 for none
+     */
+    public long getRequestTimeout() {
+        return requestTimeout;
+    }
+
+}
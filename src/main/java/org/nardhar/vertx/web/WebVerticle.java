@@ -1,44 +1,280 @@
 package org.nardhar.vertx.web;
 
 import io.vertx.core.AbstractVerticle;
+import io.vertx.core.AsyncResult;
+import io.vertx.core.CompositeFuture;
+import io.vertx.core.DeploymentOptions;
 import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.VertxOptions;
+import io.vertx.core.http.Http2Settings;
+import io.vertx.core.http.HttpServerOptions;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.shareddata.LocalMap;
+import io.vertx.core.shareddata.Shareable;
 import io.vertx.ext.web.Router;
+import org.nardhar.vertx.eventbus.FailureReplyCodec;
+import org.nardhar.vertx.eventbus.SendPolicies;
+import org.nardhar.vertx.index.ClassIndex;
+import org.nardhar.vertx.metrics.Metrics;
+import org.nardhar.vertx.repository.ModelCodec;
+import org.nardhar.vertx.repository.RepositoryAddress;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
 
 public class WebVerticle extends AbstractVerticle {
 
+    /**
+     * Address replying the size and counters of the response cache, when it's configured
+     */
+    public static final String RESPONSE_CACHE_STATS = "web.responseCache.stats";
+
+    /**
+     * Deploys the instances of a configuration, "instances" or the number of cores by default,
+     * each one with its own event loop, router and controllers
+     * @param vertx The vertx instance, see vertxOptions
+     * @param config The WebVerticle configuration
+     * @param handler The handler of the deployment
+     */
+    public static void deploy(Vertx vertx, JsonObject config, Handler<AsyncResult<String>> handler) {
+        vertx.deployVerticle(
+            WebVerticle.class.getName(),
+            new DeploymentOptions()
+                .setConfig(config)
+                .setInstances(config.getInteger("instances", Runtime.getRuntime().availableProcessors())),
+            handler
+        );
+    }
+
+    /**
+     * Creates the options of the vertx instance for a WebVerticle configuration, the transport is chosen
+     * when vertx is created, e.g. "nativeTransport": true for epoll (netty-transport-native-epoll must be
+     * in the classpath, otherwise vertx falls back to NIO)
+     * @param config The WebVerticle configuration
+     * @return The options
+     */
+    public static VertxOptions vertxOptions(JsonObject config) {
+        return new VertxOptions().setPreferNativeTransport(config.getBoolean("nativeTransport", false));
+    }
+
+    // cache of the cached actions of every controller of this instance, null if it's not configured
+    private ResponseCache responseCache;
+
     @Override
     public void start(Future<Void> startFuture) {
+        // controllers send and receive models through the eventBus
+        ModelCodec.register(vertx.eventBus());
+        FailureReplyCodec.register(vertx.eventBus());
+
         Router router = Router.router(vertx);
 
-        initControllers(router);
+        ResponseOptions responseOptions = ResponseOptions.fromConfig(config());
 
-        vertx.createHttpServer()
-            .requestHandler(router::accept)
-            .listen(config().getInteger("port"), (ar) -> {
-                if (ar.succeeded()) {
-                    System.out.println("Web server started");
-                    startFuture.complete();
-                } else {
-                    startFuture.fail(ar.cause());
-                }
-            });
+        // timeouts, hedging and circuit breakers of the sends of the controllers, by address prefix
+        JsonObject sendPolicies = config().getJsonObject("sendPolicies");
+        if (sendPolicies != null) {
+            SendPolicies.configure(sendPolicies);
+        }
+
+        // e.g. "responseCache": {"size": 1000, "ttl": 5000}, for the cachedGet and cachedList actions
+        JsonObject responseCacheConfig = config().getJsonObject("responseCache");
+        if (responseCacheConfig != null) {
+            responseCache = ResponseCache.fromConfig(responseCacheConfig);
+            vertx.eventBus().<JsonObject>consumer(
+                RepositoryAddress.WRITTEN,
+                (message) -> responseCache.invalidate(message.body().getString("model"))
+            );
+            // the counters of the cache of the instance that receives it, as repository.cache.stats
+            vertx.eventBus().<JsonObject>consumer(
+                RESPONSE_CACHE_STATS,
+                (message) -> message.reply(responseCache.stats())
+            );
+        }
+
+        initControllers(router, responseOptions).setHandler((init) -> {
+            if (init.failed()) {
+                startFuture.fail(init.cause());
+                return;
+            }
+
+            // optional route with the metrics snapshot of this JVM, e.g. "metricsRoute": "/metrics"
+            String metricsRoute = config().getString("metricsRoute");
+            if (metricsRoute != null) {
+                router.get(metricsRoute).handler((ctx) -> ctx.response()
+                    .putHeader("Content-Type", "application/json")
+                    .end(Metrics.snapshot().encode()));
+            }
+
+            // every instance listens on the same port, vertx balances the connections between them
+            vertx.createHttpServer(serverOptions())
+                .requestHandler(router::accept)
+                .listen(config().getInteger("port"), (ar) -> {
+                    if (ar.succeeded()) {
+                        System.out.println("Web server started");
+                        startFuture.complete();
+                    } else {
+                        startFuture.fail(ar.cause());
+                    }
+                });
+        });
     }
 
+    /**
+     * Creates the controllers of the controllers configuration or, without it, the ones indexed at compile time
+     * Their classes are loaded concurrently in worker threads, once for every instance, then they are created
+     * and initialized in this event loop in the listed order, since the order of the routes matters
+     * @param router The router
+     * @param responseOptions The options of the responses of the actions
+     * @return A future completed when every controller is initialized
+     */
     @SuppressWarnings("unchecked")
-    public void initControllers(Router router) {
-        // TODO: we could get all @Controller annotated classes instead of passing a configuration variable
-        config().getJsonArray("controllers")
-            .forEach((controllerClass) -> {
-                try {
-                    Controller controller = ((Class<Controller>) Class.forName((String)controllerClass)).newInstance();
-                    controller.setRouter(router);
-                    controller.setEventBus(vertx.eventBus());
-                    controller.init();
-                } catch (IllegalAccessException|InstantiationException|ClassNotFoundException ex) {
-                    // TODO: add a proper logger
-                    System.out.println("Could not deploy controller " + controllerClass);
+    public Future<Void> initControllers(Router router, ResponseOptions responseOptions) {
+        JsonArray controllers = config().getJsonArray("controllers");
+        List<String> names = controllers != null
+            ? ((List<Object>) controllers.getList()).stream().map(String::valueOf).collect(Collectors.toList())
+            : ClassIndex.names(Controller.class);
+
+        Future<Void> future = Future.future();
+        controllerClasses(names).setHandler((ar) -> {
+            try {
+                ar.result().classes.forEach((controllerClass) -> {
+                    Controller controller = createController(controllerClass);
+                    // controllers that could not be created were already reported
+                    if (controller != null) {
+                        controller.setRouter(router);
+                        controller.setEventBus(vertx.eventBus());
+                        controller.setResponseOptions(responseOptions);
+                        controller.setResponseCache(responseCache);
+                        controller.init();
+                    }
+                });
+                future.complete();
+            } catch (RuntimeException ex) {
+                future.fail(ex);
+            }
+        });
+        return future;
+    }
+
+    /**
+     * Options of the HTTP server, read from the configuration, e.g.
+     * "server": {"tcpNoDelay": true, "tcpFastOpen": true, "tcpQuickAck": true, "acceptBacklog": 1024,
+     * "idleTimeout": 60, "http2": {"maxConcurrentStreams": 100}}
+     * and "compression": {"level": 6, "minSize": 1024}, gzip or deflate as the client accepts
+     * TCP fast open and quick ack are only set with the native transport
+     * @return The options
+     */
+    protected HttpServerOptions serverOptions() {
+        HttpServerOptions serverOptions = new HttpServerOptions();
+
+        JsonObject compression = config().getJsonObject("compression");
+        if (compression != null) {
+            serverOptions
+                .setCompressionSupported(true)
+                .setCompressionLevel(compression.getInteger("level", 6));
+        }
+
+        JsonObject server = config().getJsonObject("server", new JsonObject());
+        serverOptions
+            .setTcpNoDelay(server.getBoolean("tcpNoDelay", true))
+            // seconds without reading or writing before closing a connection, 0 keeps them open
+            .setIdleTimeout(server.getInteger("idleTimeout", 0));
+        if (server.containsKey("acceptBacklog")) {
+            serverOptions.setAcceptBacklog(server.getInteger("acceptBacklog"));
+        }
+        if (vertx.isNativeTransportEnabled()) {
+            serverOptions
+                .setTcpFastOpen(server.getBoolean("tcpFastOpen", false))
+                .setTcpQuickAck(server.getBoolean("tcpQuickAck", false));
+        } else if (server.getBoolean("tcpFastOpen", false) || server.getBoolean("tcpQuickAck", false)) {
+            System.out.println("TCP fast open and quick ack need the native transport, they are not set");
+        }
+
+        // HTTP/2 over cleartext (h2c) is always accepted, with prior knowledge or upgrading HTTP/1.1 connections
+        JsonObject http2 = server.getJsonObject("http2", new JsonObject());
+        if (http2.containsKey("maxConcurrentStreams")) {
+            serverOptions.setInitialSettings(
+                new Http2Settings().setMaxConcurrentStreams(http2.getLong("maxConcurrentStreams"))
+            );
+        }
+
+        return serverOptions;
+    }
+
+    /**
+     * Resolves the controller classes once per vertx instance, the first WebVerticle instance loads them
+     * concurrently in worker threads and the others reuse them
+     * Controller objects are not shared, they keep the router and the response cache of their event loop
+     */
+    private Future<ControllerClasses> controllerClasses(List<String> names) {
+        LocalMap<String, ControllerClasses> resolved = vertx.sharedData().getLocalMap("web.controllers");
+        String key = String.join(",", names);
+        ControllerClasses classes = resolved.get(key);
+        if (classes != null) {
+            return Future.succeededFuture(classes);
+        }
+
+        List<Future<Class<? extends Controller>>> loaded = names.stream()
+            .map(this::loadController)
+            .collect(Collectors.toList());
+
+        Future<ControllerClasses> future = Future.future();
+        // CompositeFuture.all only takes a raw list
+        List<Future> all = loaded.stream().map((result) -> (Future) result).collect(Collectors.toList());
+        CompositeFuture.all(all).setHandler((ar) -> {
+            List<Class<? extends Controller>> loadedClasses = new ArrayList<>();
+            loaded.forEach((result) -> {
+                if (result.result() != null) {
+                    loadedClasses.add(result.result());
                 }
             });
+            ControllerClasses created = new ControllerClasses(loadedClasses);
+            // another instance may have resolved them meanwhile
+            ControllerClasses previous = resolved.putIfAbsent(key, created);
+            future.complete(previous != null ? previous : created);
+        });
+        return future;
+    }
+
+    private Future<Class<? extends Controller>> loadController(String controllerClass) {
+        Future<Class<? extends Controller>> future = Future.future();
+        vertx.<Class<? extends Controller>>executeBlocking((blocking) -> {
+            try {
+                blocking.complete(Class.forName(controllerClass).asSubclass(Controller.class));
+            } catch (ClassNotFoundException|ClassCastException ex) {
+                // TODO: add a proper logger
+                System.out.println("Could not deploy controller " + controllerClass);
+                blocking.complete();
+            }
+        }, false, future.completer());
+        return future;
+    }
+
+    private Controller createController(Class<? extends Controller> controllerClass) {
+        try {
+            return controllerClass.newInstance();
+        } catch (IllegalAccessException|InstantiationException ex) {
+            System.out.println("Could not deploy controller " + controllerClass.getName());
+            return null;
+        }
+    }
+
+    /**
+     * The controller classes of a configuration, immutable so they can be kept in a LocalMap
+     */
+    private static final class ControllerClasses implements Shareable {
+
+        private final List<Class<? extends Controller>> classes;
+
+        private ControllerClasses(List<Class<? extends Controller>> classes) {
+            this.classes = Collections.unmodifiableList(classes);
+        }
+
     }
 
 }
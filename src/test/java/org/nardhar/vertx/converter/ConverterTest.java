@@ -0,0 +1,173 @@
+package org.nardhar.vertx.converter;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import org.junit.Test;
+import org.nardhar.vertx.repository.Model;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+public class ConverterTest {
+
+    public enum Status { DRAFT, PUBLISHED }
+
+    // the processor generates ConverterTest_ArticleJsonMapper for it
+    public static class Article implements Model {
+
+        static final String collection = "article";
+
+        private String id;
+        @JsonProperty("headline")
+        private String title;
+        private int views;
+        private boolean featured;
+        private Status status;
+        private List<Long> ratings;
+        private Map<String, Object> meta;
+        @JsonIgnore
+        private String draft;
+
+        public String getId() {
+            return id;
+        }
+
+        public void setId(String id) {
+            this.id = id;
+        }
+
+        public String getTitle() {
+            return title;
+        }
+
+        public void setTitle(String title) {
+            this.title = title;
+        }
+
+        public int getViews() {
+            return views;
+        }
+
+        public void setViews(int views) {
+            this.views = views;
+        }
+
+        public boolean isFeatured() {
+            return featured;
+        }
+
+        public void setFeatured(boolean featured) {
+            this.featured = featured;
+        }
+
+        public Status getStatus() {
+            return status;
+        }
+
+        public void setStatus(Status status) {
+            this.status = status;
+        }
+
+        public List<Long> getRatings() {
+            return ratings;
+        }
+
+        public void setRatings(List<Long> ratings) {
+            this.ratings = ratings;
+        }
+
+        public Map<String, Object> getMeta() {
+            return meta;
+        }
+
+        public void setMeta(Map<String, Object> meta) {
+            this.meta = meta;
+        }
+
+        public String getDraft() {
+            return draft;
+        }
+
+        public void setDraft(String draft) {
+            this.draft = draft;
+        }
+    }
+
+    private Article article() {
+        Article article = new Article();
+        article.setId("1");
+        article.setTitle("Title");
+        article.setViews(10);
+        article.setFeatured(true);
+        article.setStatus(Status.PUBLISHED);
+        article.setRatings(Arrays.asList(4L, 5L));
+        article.setMeta(Collections.singletonMap("source", new JsonObject().put("name", "wire").getMap()));
+        article.setDraft("not serialized");
+        return article;
+    }
+
+    @Test
+    public void generatesTheMapperWithTheModelMetadata() {
+        JsonMapper<Article> mapper = JsonMappers.get(Article.class);
+
+        assertNotNull(mapper);
+        assertEquals("article", mapper.collection());
+        assertEquals("id", mapper.idField());
+        assertEquals(Arrays.asList("id", "headline", "views", "featured", "status", "ratings", "meta"), mapper.fields());
+    }
+
+    @Test
+    public void convertsAsJacksonDoes() {
+        Article article = article();
+
+        assertEquals(JsonObject.mapFrom(article), Converter.toJsonObject(article));
+    }
+
+    @Test
+    public void convertsBackLeavingMissingKeysWithTheirDefaults() {
+        JsonObject json = new JsonObject()
+            .put("id", "2")
+            .put("headline", "Other")
+            .put("ratings", new JsonArray().add(3).add(4))
+            .put("status", "DRAFT")
+            .put("views", (Object) null);
+
+        Article article = Converter.fromJsonObject(json, Article.class);
+
+        assertEquals("2", article.getId());
+        assertEquals("Other", article.getTitle());
+        assertEquals(Arrays.asList(3L, 4L), article.getRatings());
+        assertEquals(Status.DRAFT, article.getStatus());
+        assertEquals(0, article.getViews());
+        assertEquals(JsonObject.mapFrom(json.mapTo(Article.class)), Converter.toJsonObject(article));
+    }
+
+    @Test
+    public void coercesScalarsAsJacksonDoes() {
+        JsonObject json = new JsonObject()
+            .put("headline", 123)
+            .put("views", "10")
+            .put("featured", "true")
+            .put("ratings", new JsonArray().add("3").add(4.0));
+
+        Article article = Converter.fromJsonObject(json, Article.class);
+
+        assertEquals("123", article.getTitle());
+        assertEquals(10, article.getViews());
+        assertEquals(Arrays.asList(3L, 4L), article.getRatings());
+        assertEquals(JsonObject.mapFrom(json.mapTo(Article.class)), Converter.toJsonObject(article));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void failsValuesJacksonCanNotCoerce() {
+        Converter.fromJsonObject(new JsonObject().put("views", "many"), Article.class);
+    }
+
+}
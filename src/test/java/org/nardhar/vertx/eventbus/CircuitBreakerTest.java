@@ -0,0 +1,76 @@
+package org.nardhar.vertx.eventbus;
+
+import io.vertx.core.json.JsonObject;
+import org.junit.Test;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class CircuitBreakerTest {
+
+    @Test
+    public void opensWhenTheErrorRateIsReached() {
+        CircuitBreaker breaker = new CircuitBreaker(0.5, 4, 1000, 500);
+
+        breaker.record(true, 0);
+        breaker.record(true, 10);
+        breaker.record(false, 20);
+        // not enough calls yet
+        assertTrue(breaker.allow(30));
+
+        breaker.record(true, 30);
+        assertTrue(breaker.isOpen());
+        assertFalse(breaker.allow(100));
+    }
+
+    @Test
+    public void startsAWindowWithoutThePreviousFailures() {
+        CircuitBreaker breaker = new CircuitBreaker(0.5, 2, 1000, 500);
+
+        breaker.record(true, 0);
+        breaker.record(false, 1500);
+        breaker.record(false, 1600);
+        breaker.record(true, 1700);
+
+        assertFalse(breaker.isOpen());
+    }
+
+    @Test
+    public void letsASingleCallThroughOnceTheOpenTimeEnds() {
+        CircuitBreaker breaker = new CircuitBreaker(0.5, 1, 1000, 500);
+        breaker.record(true, 0);
+
+        assertFalse(breaker.allow(499));
+        assertTrue(breaker.allow(500));
+        assertFalse(breaker.allow(501));
+
+        // the call failed, so it's open again
+        breaker.record(true, 600);
+        assertFalse(breaker.allow(1000));
+
+        assertTrue(breaker.allow(1100));
+        breaker.record(false, 1150);
+        assertFalse(breaker.isOpen());
+        assertTrue(breaker.allow(1200));
+    }
+
+    @Test
+    public void policiesMatchTheLongestPrefix() {
+        SendPolicies.configure(new JsonObject()
+            .put("repository.", new JsonObject().put("timeout", 2000))
+            .put("repository.Book.", new JsonObject().put("circuitBreaker", new JsonObject()))
+        );
+
+        assertNull(SendPolicies.circuitBreaker("repository.Author.findOne"));
+        CircuitBreaker breaker = SendPolicies.circuitBreaker("repository.Book.findOne");
+        assertNotNull(breaker);
+        assertSame(breaker, SendPolicies.circuitBreaker("repository.Book.findOne"));
+        assertNull(SendPolicies.circuitBreaker("other"));
+
+        SendPolicies.configure(new JsonObject());
+    }
+
+}
@@ -0,0 +1,63 @@
+package org.nardhar.vertx.eventbus;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class DeadlineTest {
+
+    @Test
+    public void expiresWhenItPassesOrIsCancelled() {
+        assertTrue(Deadline.at(System.currentTimeMillis() - 1).isExpired());
+        assertEquals(0, Deadline.at(0).remaining());
+
+        Deadline deadline = Deadline.in(60_000);
+        assertFalse(deadline.isExpired());
+        assertTrue(deadline.remaining() > 0);
+
+        deadline.cancel();
+        assertTrue(deadline.isExpired());
+        assertEquals(0, deadline.remaining());
+    }
+
+    @Test
+    public void runsWithTheDeadlineAsTheCurrentOne() {
+        Deadline outer = Deadline.in(1000);
+        Deadline inner = Deadline.in(500);
+
+        assertNull(Deadline.current());
+        Deadline.run(outer, () -> {
+            assertSame(outer, Deadline.current());
+            Deadline.run(inner, () -> assertSame(inner, Deadline.current()));
+            Deadline.run(null, () -> assertNull(Deadline.current()));
+            assertSame(outer, Deadline.current());
+        });
+        assertNull(Deadline.current());
+    }
+
+    @Test
+    public void restoresThePreviousOneWhenTheWorkFails() {
+        Deadline deadline = Deadline.in(1000);
+        try {
+            Deadline.run(deadline, () -> {
+                throw new IllegalStateException("failed");
+            });
+        } catch (IllegalStateException ex) {
+            // expected
+        }
+        assertNull(Deadline.current());
+    }
+
+    @Test
+    public void failsTheExceededWorkWithA504() {
+        FailureReply reply = Deadline.exceeded();
+
+        assertEquals(504, reply.failureCode());
+        assertEquals("deadline.exceeded.error", reply.getPayload().getString("code"));
+    }
+
+}
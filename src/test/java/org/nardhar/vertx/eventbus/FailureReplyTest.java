@@ -0,0 +1,61 @@
+package org.nardhar.vertx.eventbus;
+
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.eventbus.ReplyException;
+import io.vertx.core.eventbus.ReplyFailure;
+import io.vertx.core.json.JsonObject;
+import org.junit.Test;
+import org.nardhar.vertx.exception.ApplicationException;
+import org.nardhar.vertx.exception.BusinessException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class FailureReplyTest {
+
+    @Test
+    public void carriesTheFailureAsItWasEncoded() {
+        BusinessException notFound = new BusinessException("Book Not Found", "repository.notFound.error", 42);
+        FailureReply reply = FailureReply.of(404, notFound);
+
+        assertEquals(0, notFound.getStackTrace().length);
+        assertEquals(0, reply.getStackTrace().length);
+        assertEquals(404, reply.failureCode());
+        assertEquals("repository.notFound.error", reply.getPayload().getString("code"));
+        assertEquals(new JsonObject(notFound.encode()), new JsonObject(reply.getMessage()));
+    }
+
+    @Test
+    public void forwardsFailuresOfOtherReplies() {
+        FailureReply reply = FailureReply.of(404, new BusinessException("Book Not Found", "repository.notFound.error"));
+
+        assertSame(reply, FailureReply.of(404, reply));
+        assertSame(reply.getPayload(), FailureReply.of(400, reply).getPayload());
+
+        // failures of message.fail with an encoded ApplicationException keep their code
+        ReplyException failed = new ReplyException(
+            ReplyFailure.RECIPIENT_FAILURE,
+            400,
+            new ApplicationException("Invalid", "repository.update.error").encode()
+        );
+        assertEquals("repository.update.error", FailureReply.of(400, failed).getPayload().getString("code"));
+        assertEquals(
+            "service.error",
+            FailureReply.of(400, new IllegalStateException("{not json")).getPayload().getString("code")
+        );
+    }
+
+    @Test
+    public void encodesToTheWire() {
+        FailureReply reply = FailureReply.of(503, new BusinessException("Overloaded", "repository.overloaded"));
+        FailureReplyCodec codec = new FailureReplyCodec();
+
+        Buffer buffer = Buffer.buffer().appendString("header");
+        codec.encodeToWire(buffer, reply);
+        FailureReply decoded = codec.decodeFromWire(6, buffer);
+
+        assertEquals(503, decoded.failureCode());
+        assertEquals(reply.getPayload(), decoded.getPayload());
+    }
+
+}
@@ -0,0 +1,28 @@
+package org.nardhar.vertx.index;
+
+import org.junit.Test;
+import org.nardhar.vertx.converter.ConverterTest;
+import org.nardhar.vertx.repository.Model;
+import org.nardhar.vertx.web.Controller;
+import org.nardhar.vertx.web.WebVerticleTest;
+
+import static org.junit.Assert.assertTrue;
+
+public class ClassIndexTest {
+
+    @Test
+    public void listsTheModelsIndexedAtCompileTime() {
+        assertTrue(ClassIndex.names(Model.class).contains(ConverterTest.Article.class.getName()));
+    }
+
+    @Test
+    public void listsTheControllersIndexedAtCompileTime() {
+        assertTrue(ClassIndex.names(Controller.class).contains(WebVerticleTest.ForwardController.class.getName()));
+    }
+
+    @Test
+    public void isEmptyWithoutIndexedClasses() {
+        assertTrue(ClassIndex.names(Runnable.class).isEmpty());
+    }
+
+}
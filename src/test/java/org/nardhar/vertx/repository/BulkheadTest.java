@@ -0,0 +1,142 @@
+package org.nardhar.vertx.repository;
+
+import io.vertx.core.MultiMap;
+import io.vertx.core.eventbus.Message;
+import org.junit.Before;
+import org.junit.Test;
+import org.nardhar.vertx.eventbus.Deadline;
+import org.nardhar.vertx.eventbus.FailureReply;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class BulkheadTest {
+
+    // the names of the messages the handler ran, in order
+    private List<String> ran;
+    // the deadline that was current when each message ran
+    private Map<String, Deadline> ranWith;
+    // the messages the handler ran, by name, replying them ends their operation
+    private Map<String, Message<Object>> running;
+    // the replies of the messages, by name
+    private Map<String, Object> replies;
+
+    @Before
+    public void setUp() {
+        ran = new ArrayList<>();
+        ranWith = new HashMap<>();
+        running = new HashMap<>();
+        replies = new HashMap<>();
+    }
+
+    /**
+     * A message that records its reply, named by its body
+     */
+    @SuppressWarnings("unchecked")
+    private Message<Object> message(String name, Deadline deadline) {
+        MultiMap headers = MultiMap.caseInsensitiveMultiMap();
+        if (deadline != null) {
+            headers.add(Deadline.HEADER, String.valueOf(deadline.getAt()));
+        }
+        Class<?>[] type = new Class<?>[] {Message.class};
+        return (Message<Object>)Proxy.newProxyInstance(Message.class.getClassLoader(), type, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "headers":
+                    return headers;
+                case "body":
+                    return name;
+                case "reply":
+                    replies.put(name, args[0]);
+                    return null;
+                default:
+                    return null;
+            }
+        });
+    }
+
+    private void execute(Bulkhead bulkhead, String name, Deadline deadline) {
+        bulkhead.execute(message(name, deadline), (message) -> {
+            ran.add(name);
+            ranWith.put(name, Deadline.current());
+            running.put(name, message);
+        });
+    }
+
+    @Test
+    public void queuesTheOperationsOverTheLimit() {
+        Bulkhead bulkhead = new Bulkhead("country", 1, 10);
+        execute(bulkhead, "first", null);
+        execute(bulkhead, "second", null);
+        execute(bulkhead, "third", null);
+
+        assertEquals(1, ran.size());
+        assertEquals(Integer.valueOf(2), bulkhead.stats().getInteger("queueDepth"));
+
+        // replying an operation runs the next queued one
+        running.get("first").reply("done");
+        assertEquals(2, ran.size());
+        running.get("second").reply("done");
+        running.get("third").reply("done");
+
+        assertEquals(3, ran.size());
+        assertEquals("second", ran.get(1));
+        assertEquals("third", ran.get(2));
+        assertEquals(Integer.valueOf(0), bulkhead.stats().getInteger("inFlight"));
+        assertEquals(Long.valueOf(2), bulkhead.stats().getLong("queued"));
+    }
+
+    @Test
+    public void rejectsOperationsWhenTheQueueIsFull() {
+        Bulkhead bulkhead = new Bulkhead("country", 1, 1);
+        execute(bulkhead, "first", null);
+        execute(bulkhead, "second", null);
+        execute(bulkhead, "third", null);
+
+        assertEquals(1, ran.size());
+        assertTrue(replies.get("third") instanceof FailureReply);
+        assertEquals(503, ((FailureReply)replies.get("third")).failureCode());
+        assertEquals(Long.valueOf(1), bulkhead.stats().getLong("rejected"));
+
+        running.get("first").reply("done");
+        assertEquals("second", ran.get(1));
+    }
+
+    @Test
+    public void failsTheQueuedOperationsWhoseDeadlinePassed() throws InterruptedException {
+        Bulkhead bulkhead = new Bulkhead("country", 1, 10);
+        Deadline later = Deadline.in(60_000);
+        execute(bulkhead, "first", null);
+        execute(bulkhead, "expiring", Deadline.in(20));
+        execute(bulkhead, "waiting", later);
+
+        // the deadline of the second one passes while it waits
+        Thread.sleep(40);
+        running.get("first").reply("done");
+
+        assertEquals(2, ran.size());
+        assertEquals("waiting", ran.get(1));
+        assertEquals(504, ((FailureReply)replies.get("expiring")).failureCode());
+        assertEquals(Long.valueOf(1), bulkhead.stats().getLong("expired"));
+        // queued operations run with their own deadline as the current one
+        assertEquals(later.getAt(), ranWith.get("waiting").getAt());
+    }
+
+    @Test
+    public void releasesOperationsThatThrow() {
+        Bulkhead bulkhead = new Bulkhead("country", 1, 10);
+        bulkhead.execute(message("failing", null), (message) -> {
+            throw new IllegalStateException("failed");
+        });
+        execute(bulkhead, "next", null);
+
+        assertEquals(500, ((FailureReply)replies.get("failing")).failureCode());
+        assertEquals("next", ran.get(0));
+    }
+
+}
@@ -0,0 +1,120 @@
+package org.nardhar.vertx.repository;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.mongo.BulkOperation;
+import io.vertx.ext.mongo.BulkWriteOptions;
+import io.vertx.ext.mongo.MongoClientBulkWriteResult;
+import io.vertx.ext.unit.Async;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@RunWith(VertxUnitRunner.class)
+public class InsertCoalescerTest {
+
+    private Vertx vertx;
+    private MemoryBackend backend;
+    // the size of every bulkWrite sent to the backend
+    private List<Integer> bulkWrites;
+
+    @Before
+    public void setUp() {
+        vertx = Vertx.vertx();
+        bulkWrites = new ArrayList<>();
+        backend = new MemoryBackend() {
+            @Override
+            public void bulkWriteWithOptions(
+                String collection,
+                List<BulkOperation> operations,
+                BulkWriteOptions options,
+                Handler<AsyncResult<MongoClientBulkWriteResult>> handler
+            ) {
+                bulkWrites.add(operations.size());
+                super.bulkWriteWithOptions(collection, operations, options, handler);
+            }
+        };
+    }
+
+    @After
+    public void tearDown(TestContext context) {
+        vertx.close(context.asyncAssertSuccess());
+    }
+
+    @Test
+    public void writesTheInsertsOfAWindowTogether(TestContext context) {
+        Async async = context.async(3);
+        vertx.runOnContext((v) -> {
+            InsertCoalescer coalescer = new InsertCoalescer(vertx, backend, 20, 100);
+            for (int i = 0; i < 3; i++) {
+                coalescer.insert("country", new JsonObject().put("code", "C" + i), context.asyncAssertSuccess((id) -> {
+                    context.assertNotNull(id);
+                    context.assertEquals(1, bulkWrites.size());
+                    context.assertEquals(3, bulkWrites.get(0));
+                    async.countDown();
+                }));
+            }
+            // nothing is written before the window ends
+            context.assertTrue(bulkWrites.isEmpty());
+        });
+    }
+
+    @Test
+    public void flushesFullBatchesRightAway(TestContext context) {
+        Async async = context.async(6);
+        vertx.runOnContext((v) -> {
+            // the window is long enough that only the maximum size could flush the batches
+            InsertCoalescer coalescer = new InsertCoalescer(vertx, backend, 10000, 2);
+            for (int i = 0; i < 4; i++) {
+                coalescer.insert("country", new JsonObject().put("code", "C" + i), context.asyncAssertSuccess((id) -> {
+                    async.countDown();
+                }));
+            }
+            context.assertEquals(2, bulkWrites.size());
+            context.assertEquals(2, bulkWrites.get(0));
+            context.assertEquals(2, bulkWrites.get(1));
+
+            // the batches of each collection are kept apart
+            coalescer.insert("city", new JsonObject().put("name", "La Paz"), context.asyncAssertSuccess((id) -> {
+                async.countDown();
+            }));
+            context.assertEquals(2, bulkWrites.size());
+            coalescer.insert("city", new JsonObject().put("name", "Quito"), context.asyncAssertSuccess((id) -> {
+                async.countDown();
+            }));
+            context.assertEquals(3, bulkWrites.size());
+        });
+    }
+
+    @Test
+    public void failsOnlyTheInsertsThatFailed(TestContext context) {
+        Async async = context.async(3);
+        vertx.runOnContext((v) -> backend.insert("country", new JsonObject().put("_id", "bo"), context.asyncAssertSuccess((inserted) -> {
+            InsertCoalescer coalescer = new InsertCoalescer(vertx, backend, 20, 100);
+            coalescer.insert("country", new JsonObject().put("_id", "cl"), context.asyncAssertSuccess((id) -> {
+                context.assertEquals("cl", id);
+                async.countDown();
+            }));
+            coalescer.insert("country", new JsonObject().put("_id", "bo"), context.asyncAssertFailure((ex) -> {
+                context.assertTrue(ex.getMessage().contains("duplicate key"));
+                async.countDown();
+            }));
+            coalescer.insert("country", new JsonObject().put("_id", "pe"), context.asyncAssertSuccess((id) -> {
+                context.assertEquals("pe", id);
+                backend.count("country", new JsonObject(), context.asyncAssertSuccess((count) -> {
+                    context.assertEquals(3L, count);
+                    async.countDown();
+                }));
+            }));
+        })));
+    }
+
+}
@@ -0,0 +1,60 @@
+package org.nardhar.vertx.repository;
+
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class KeysetTest {
+
+    @Test
+    public void appendsIdInTheDirectionOfTheLastKey() {
+        JsonObject sort = Keyset.sortWithId(new JsonObject().put("name", -1));
+
+        assertEquals(new JsonObject().put("name", -1).put("_id", -1), sort);
+        assertEquals(new JsonObject().put("_id", 1), Keyset.sortWithId(null));
+    }
+
+    @Test
+    public void seeksAfterTheLastValues() {
+        JsonObject sort = new JsonObject().put("name", 1).put("_id", -1);
+        JsonArray last = new JsonArray().add("b").add("5");
+
+        JsonObject query = Keyset.after(new JsonObject().put("active", true), sort, last);
+
+        assertEquals(new JsonObject().put("$and", new JsonArray()
+            .add(new JsonObject().put("active", true))
+            .add(new JsonObject().put("$or", new JsonArray()
+                .add(new JsonObject().put("name", new JsonObject().put("$gt", "b")))
+                .add(new JsonObject().put("name", "b").put("_id", new JsonObject().put("$lt", "5")))
+            ))
+        ), query);
+    }
+
+    @Test
+    public void firstPageKeepsTheQuery() {
+        JsonObject query = new JsonObject().put("active", true);
+
+        assertEquals(query, Keyset.after(query, new JsonObject().put("_id", 1), null));
+    }
+
+    @Test
+    public void cursorRoundTrip() {
+        JsonArray values = new JsonArray().add("b").add(new JsonObject().put("nested", 1)).add("5");
+
+        assertEquals(values, Keyset.decodeCursor(Keyset.encodeCursor(values)));
+        assertEquals(new JsonArray().add("x"), Keyset.values(
+            new JsonObject().put("a", new JsonObject().put("b", "x")),
+            new JsonObject().put("a.b", 1)
+        ));
+        assertNull(Keyset.decodeCursor(null));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsInvalidCursor() {
+        Keyset.decodeCursor("not a cursor");
+    }
+
+}
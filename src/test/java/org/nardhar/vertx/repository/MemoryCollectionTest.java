@@ -0,0 +1,154 @@
+package org.nardhar.vertx.repository;
+
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.mongo.BulkOperation;
+import io.vertx.ext.mongo.MongoClientBulkWriteResult;
+import io.vertx.ext.mongo.MongoClientUpdateResult;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class MemoryCollectionTest {
+
+    private MemoryCollection countries;
+
+    @Before
+    public void setUp() {
+        countries = new MemoryCollection("country");
+        countries.createIndex("code", false);
+        countries.createIndex("population", true);
+        countries.insert(country("1", "BO", 11, "es", "qu"));
+        countries.insert(country("2", "AR", 45, "es"));
+        countries.insert(country("3", "BR", 214, "pt"));
+        countries.insert(country("4", "PE", 33, "es", "qu"));
+    }
+
+    private JsonObject country(String id, String code, int population, String... languages) {
+        return new JsonObject()
+            .put("_id", id)
+            .put("code", code)
+            .put("population", population)
+            .put("languages", new JsonArray(Arrays.asList((Object[])languages)));
+    }
+
+    private List<String> ids(List<JsonObject> documents) {
+        return documents.stream().map((document) -> document.getString("_id")).collect(Collectors.toList());
+    }
+
+    @Test
+    public void findsByEqualityInAndRange() {
+        assertEquals(Arrays.asList("3"), ids(countries.find(new JsonObject().put("code", "BR"), null, null, 0, 0)));
+        assertEquals(
+            Arrays.asList("1", "4"),
+            ids(countries.find(new JsonObject().put("code", new JsonObject().put("$in", new JsonArray().add("PE").add("BO"))), null, null, 0, 0))
+        );
+        assertEquals(
+            Arrays.asList("2", "4"),
+            ids(countries.find(new JsonObject().put("population", new JsonObject().put("$gte", 33).put("$lt", 100)), null, null, 0, 0))
+        );
+        // arrays match if any of their elements does
+        assertEquals(Arrays.asList("1", "4"), ids(countries.find(new JsonObject().put("languages", "qu"), null, null, 0, 0)));
+        assertEquals(4, countries.count(new JsonObject()));
+    }
+
+    @Test
+    public void sortsSkipsLimitsAndProjects() {
+        List<JsonObject> found = countries.find(
+            new JsonObject().put("languages", "es"),
+            new JsonObject().put("code", 1),
+            new JsonObject().put("population", -1),
+            1,
+            1
+        );
+
+        assertEquals(1, found.size());
+        assertEquals(new JsonObject().put("_id", "4").put("code", "PE"), found.get(0));
+    }
+
+    @Test
+    public void seeksAfterTheLastValuesOfAPage() {
+        JsonObject sort = Keyset.sortWithId(new JsonObject().put("population", 1));
+        JsonObject query = Keyset.after(new JsonObject(), sort, new JsonArray().add(33).add("4"));
+
+        assertEquals(Arrays.asList("2", "3"), ids(countries.find(query, null, sort, 0, 10)));
+    }
+
+    @Test
+    public void updatesKeepTheIndexesCurrent() {
+        MongoClientUpdateResult result = countries.update(
+            new JsonObject().put("_id", "3"),
+            new JsonObject().put("$set", new JsonObject().put("code", "BRA")),
+            false,
+            false
+        );
+
+        assertEquals(1, result.getDocMatched());
+        assertEquals(1, result.getDocModified());
+        assertEquals(0, countries.count(new JsonObject().put("code", "BR")));
+        assertEquals(1, countries.count(new JsonObject().put("code", "BRA")));
+
+        result = countries.update(
+            new JsonObject().put("code", "CL"),
+            new JsonObject().put("$set", new JsonObject().put("population", 19)),
+            true,
+            false
+        );
+        assertNotNull(result.getDocUpsertedId());
+        assertEquals(1, countries.count(new JsonObject().put("code", "CL").put("population", new JsonObject().put("$lt", 20))));
+    }
+
+    @Test
+    public void findsOneAndUpdatesOrDeletes() {
+        JsonObject updated = countries.findOneAndUpdate(
+            new JsonObject().put("code", "AR"),
+            new JsonObject().put("$inc", new JsonObject().put("population", 1)),
+            null,
+            null,
+            false,
+            true
+        );
+        assertEquals(Long.valueOf(46), updated.getLong("population"));
+
+        JsonObject deleted = countries.findOneAndDelete(new JsonObject().put("code", "AR"));
+        assertEquals("2", deleted.getString("_id"));
+        assertNull(countries.findOneAndDelete(new JsonObject().put("code", "AR")));
+        assertEquals(3, countries.remove(new JsonObject(), true));
+    }
+
+    @Test
+    public void bulkWritesKeepGoingWhenUnordered() {
+        try {
+            countries.bulkWrite(Arrays.asList(
+                BulkOperation.createInsert(country("1", "XX", 0)),
+                BulkOperation.createInsert(country("6", "UY", 3)),
+                BulkOperation.createDelete(new JsonObject().put("code", "PE"))
+            ), false);
+            fail("the duplicate _id should fail the bulkWrite");
+        } catch (BulkWriteException ex) {
+            assertEquals(Collections.singleton(0), ex.getErrors().keySet());
+            assertTrue(ex.getErrors().get(0) instanceof IllegalStateException);
+            assertEquals(1, countries.count(new JsonObject().put("code", "UY")));
+            assertEquals(0, countries.count(new JsonObject().put("code", "PE")));
+        }
+
+        MongoClientBulkWriteResult result = countries.bulkWrite(Arrays.asList(
+            BulkOperation.createReplace(new JsonObject().put("_id", "7"), country("7", "PY", 7), true),
+            BulkOperation.createUpdate(new JsonObject().put("languages", "es"), new JsonObject().put("$set", new JsonObject().put("spanish", true)), false, true)
+        ), true);
+        assertEquals(1, result.getUpserts().size());
+        assertEquals(2, result.getMatchedCount());
+        assertEquals(2, countries.count(new JsonObject().put("spanish", true)));
+    }
+
+}
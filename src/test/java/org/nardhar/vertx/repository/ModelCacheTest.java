@@ -0,0 +1,59 @@
+package org.nardhar.vertx.repository;
+
+import io.vertx.core.json.JsonObject;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ModelCacheTest {
+
+    private final JsonObject document = new JsonObject().put("_id", "1").put("name", "Bolivia");
+
+    @Test
+    public void servesFreshThenStaleThenExpires() {
+        ModelCache cache = new ModelCache(10, 100, 50);
+        cache.put("1", document, cache.generation(), 0);
+
+        ModelCache.Entry entry = cache.get("1", 100);
+        assertNotNull(entry);
+        assertEquals(ModelCache.State.FRESH, cache.state(entry, 100));
+
+        entry = cache.get("1", 150);
+        assertNotNull(entry);
+        assertEquals(ModelCache.State.STALE, cache.state(entry, 150));
+        assertTrue(cache.startRefresh(entry));
+        assertFalse(cache.startRefresh(entry));
+
+        assertNull(cache.get("1", 151));
+        assertEquals(Long.valueOf(1), cache.stats().getLong("misses"));
+        assertEquals(Long.valueOf(1), cache.stats().getLong("evictions"));
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsed() {
+        ModelCache cache = new ModelCache(2, 1000, 0);
+        cache.put("1", document, cache.generation(), 0);
+        cache.put("2", document, cache.generation(), 0);
+        cache.get("1", 0);
+        cache.put("3", document, cache.generation(), 0);
+
+        assertNotNull(cache.get("1", 0));
+        assertNull(cache.get("2", 0));
+        assertEquals(Long.valueOf(1), cache.stats().getLong("evictions"));
+    }
+
+    @Test
+    public void readsStartedBeforeAnInvalidationAreNotStored() {
+        ModelCache cache = new ModelCache(10, 1000, 0);
+        long generation = cache.generation();
+        cache.invalidate("1");
+        cache.put("1", document, generation, 0);
+
+        assertNull(cache.get("1", 0));
+    }
+
+}
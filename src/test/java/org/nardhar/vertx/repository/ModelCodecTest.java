@@ -0,0 +1,107 @@
+package org.nardhar.vertx.repository;
+
+import io.vertx.core.buffer.Buffer;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class ModelCodecTest {
+
+    public static class Country implements Model {
+
+        private String id;
+        private String name;
+        private int population;
+
+        @Override
+        public String getId() {
+            return id;
+        }
+
+        @Override
+        public void setId(String id) {
+            this.id = id;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public int getPopulation() {
+            return population;
+        }
+
+        public void setPopulation(int population) {
+            this.population = population;
+        }
+
+    }
+
+    private Country country(String id, String name, int population) {
+        Country country = new Country();
+        country.setId(id);
+        country.setName(name);
+        country.setPopulation(population);
+        return country;
+    }
+
+    @Test
+    public void decodesTheEncodedModel() {
+        ModelCodec codec = new ModelCodec();
+        // the eventBus decodes from the position after its own headers
+        Buffer buffer = Buffer.buffer().appendString("headers");
+        int pos = buffer.length();
+        codec.encodeToWire(buffer, country("pe", "Per\u00fa", 33000000));
+
+        Model decoded = codec.decodeFromWire(pos, buffer);
+
+        assertTrue(decoded instanceof Country);
+        assertEquals("pe", decoded.getId());
+        assertEquals("Per\u00fa", ((Country)decoded).getName());
+        assertEquals(33000000, ((Country)decoded).getPopulation());
+    }
+
+    @Test
+    public void decodesTheEncodedModelList() {
+        ModelListCodec codec = new ModelListCodec();
+        Buffer buffer = Buffer.buffer().appendString("headers");
+        int pos = buffer.length();
+        codec.encodeToWire(buffer, Arrays.asList(country("bo", "Bolivia", 11000000), country("cl", "Chile", 19000000)));
+
+        List<Model> decoded = codec.decodeFromWire(pos, buffer);
+
+        assertEquals(2, decoded.size());
+        assertEquals("bo", decoded.get(0).getId());
+        assertEquals("Bolivia", ((Country)decoded.get(0)).getName());
+        assertEquals("cl", decoded.get(1).getId());
+        assertEquals(19000000, ((Country)decoded.get(1)).getPopulation());
+    }
+
+    @Test
+    public void decodesAnEmptyModelList() {
+        ModelListCodec codec = new ModelListCodec();
+        Buffer buffer = Buffer.buffer();
+        codec.encodeToWire(buffer, Arrays.asList());
+
+        assertTrue(codec.decodeFromWire(0, buffer).isEmpty());
+    }
+
+    @Test
+    public void handsOverTheSameModelLocally() {
+        Country country = country("ar", "Argentina", 45000000);
+        List<Model> countries = Arrays.asList(country);
+
+        assertSame(country, new ModelCodec().transform(country));
+        assertSame(countries, new ModelListCodec().transform(countries));
+    }
+
+}
@@ -0,0 +1,147 @@
+package org.nardhar.vertx.repository;
+
+import io.vertx.core.CompositeFuture;
+import io.vertx.core.DeploymentOptions;
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.unit.Async;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.nardhar.vertx.eventbus.FailureReply;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+@RunWith(VertxUnitRunner.class)
+public class ModelLoaderTest {
+
+    public static class Country implements Model {
+
+        static final String collection = "country";
+
+        private String id;
+        private String name;
+
+        @Override
+        public String getId() {
+            return id;
+        }
+
+        @Override
+        public void setId(String id) {
+            this.id = id;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+    }
+
+    private Vertx vertx;
+    private RepositorySender sender;
+    // the amount of ids of every findAll sent to the repository
+    private List<Integer> queries;
+
+    @Before
+    public void setUp(TestContext context) {
+        vertx = Vertx.vertx();
+        sender = vertx::eventBus;
+        queries = new ArrayList<>();
+        String findAll = RepositoryAddress.of(Country.class.getName(), "findAll");
+        vertx.eventBus().addInterceptor((sendContext) -> {
+            if (findAll.equals(sendContext.message().address())) {
+                JsonObject query = (JsonObject)sendContext.message().body();
+                queries.add(query.getJsonObject("_id").getJsonArray("$in").size());
+            }
+            sendContext.next();
+        });
+
+        JsonObject config = new JsonObject()
+            .put("backend", "memory")
+            .put("models", new JsonArray().add(Country.class.getName()));
+        vertx.deployVerticle(new RepositoryVerticle(), new DeploymentOptions().setConfig(config), context.asyncAssertSuccess());
+    }
+
+    @After
+    public void tearDown(TestContext context) {
+        vertx.close(context.asyncAssertSuccess());
+    }
+
+    private void insertCountries(TestContext context, int count, Runnable then) {
+        List<Country> countries = IntStream.range(0, count).mapToObj((i) -> {
+            Country country = new Country();
+            country.setId("c" + i);
+            country.setName("country " + i);
+            return country;
+        }).collect(Collectors.toList());
+        sender.dbInsertMany(Country.class, countries).setHandler(context.asyncAssertSuccess((inserted) -> then.run()));
+    }
+
+    @Test
+    public void loadsTheIdsOfATaskWithOneQuery(TestContext context) {
+        Async async = context.async();
+        insertCountries(context, 3, () -> vertx.runOnContext((v) -> {
+            Future<Country> first = sender.dbLoad(Country.class, "c0");
+            Future<Country> second = sender.dbLoad(Country.class, "c2");
+            Future<Country> repeated = sender.dbLoad(Country.class, "c0");
+
+            CompositeFuture.all(first, second, repeated).setHandler(context.asyncAssertSuccess((loaded) -> {
+                context.assertEquals(Arrays.asList(2), queries);
+                context.assertEquals("country 0", first.result().getName());
+                context.assertEquals("country 2", second.result().getName());
+                // every caller gets its own instance of a repeated id
+                context.assertEquals("country 0", repeated.result().getName());
+                context.assertNotEquals(first.result(), repeated.result());
+                async.complete();
+            }));
+        }));
+    }
+
+    @Test
+    public void splitsLargeBatches(TestContext context) {
+        Async async = context.async();
+        int count = ModelLoader.MAX_BATCH_SIZE + 1;
+        insertCountries(context, count, () -> vertx.runOnContext((v) -> {
+            List<Future> loaded = IntStream.range(0, count)
+                .mapToObj((i) -> sender.dbLoad(Country.class, "c" + i))
+                .collect(Collectors.toList());
+
+            CompositeFuture.all(loaded).setHandler(context.asyncAssertSuccess((all) -> {
+                context.assertEquals(Arrays.asList(ModelLoader.MAX_BATCH_SIZE, 1), queries);
+                context.assertEquals("country " + (count - 1), ((Country)loaded.get(count - 1).result()).getName());
+                async.complete();
+            }));
+        }));
+    }
+
+    @Test
+    public void failsMissingIdsWithNotFound(TestContext context) {
+        Async async = context.async();
+        insertCountries(context, 1, () -> vertx.runOnContext((v) -> {
+            Future<Country> found = sender.dbLoad(Country.class, "c0");
+            sender.dbLoad(Country.class, "missing").setHandler(context.asyncAssertFailure((ex) -> {
+                context.assertTrue(ex instanceof FailureReply);
+                context.assertEquals(404, ((FailureReply)ex).failureCode());
+                // the other ids of the batch are still found
+                context.assertEquals(Arrays.asList(2), queries);
+                context.assertEquals("country 0", found.result().getName());
+                async.complete();
+            }));
+        }));
+    }
+
+}
@@ -0,0 +1,144 @@
+package org.nardhar.vertx.repository;
+
+import io.vertx.core.DeploymentOptions;
+import io.vertx.core.Vertx;
+import io.vertx.core.eventbus.DeliveryOptions;
+import io.vertx.core.eventbus.ReplyException;
+import io.vertx.core.eventbus.ReplyFailure;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.unit.Async;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+@RunWith(VertxUnitRunner.class)
+public class RepositoryAddressTest {
+
+    public static class Country implements Model {
+
+        static final String collection = "country";
+
+        private String id;
+
+        @Override
+        public String getId() {
+            return id;
+        }
+
+        @Override
+        public void setId(String id) {
+            this.id = id;
+        }
+
+    }
+
+    public static class City implements Model {
+
+        static final String collection = "city";
+
+        private String id;
+
+        @Override
+        public String getId() {
+            return id;
+        }
+
+        @Override
+        public void setId(String id) {
+            this.id = id;
+        }
+
+    }
+
+    private static final String COUNTRY = Country.class.getName();
+    private static final String CITY = City.class.getName();
+
+    private Vertx vertx;
+
+    @Before
+    public void setUp() {
+        vertx = Vertx.vertx();
+    }
+
+    @After
+    public void tearDown(TestContext context) {
+        vertx.close(context.asyncAssertSuccess());
+    }
+
+    private JsonObject config() {
+        return new JsonObject()
+            .put("backend", "memory")
+            .put("models", new JsonArray().add(COUNTRY).add(CITY));
+    }
+
+    private void deploy(TestContext context, JsonObject config, int instances, Runnable then) {
+        vertx.deployVerticle(
+            RepositoryVerticle.class.getName(),
+            new DeploymentOptions().setConfig(config).setInstances(instances),
+            context.asyncAssertSuccess((id) -> then.run())
+        );
+    }
+
+    private void count(TestContext context, String address, String model, Runnable then) {
+        DeliveryOptions options = new DeliveryOptions().addHeader("model", model);
+        vertx.eventBus().send(address, new JsonObject(), options, context.asyncAssertSuccess((reply) -> then.run()));
+    }
+
+    private void countFails(TestContext context, String address, String model, Runnable then) {
+        DeliveryOptions options = new DeliveryOptions().addHeader("model", model);
+        vertx.eventBus().send(address, new JsonObject(), options, context.asyncAssertFailure((ex) -> {
+            context.assertEquals(ReplyFailure.NO_HANDLERS, ((ReplyException)ex).failureType());
+            then.run();
+        }));
+    }
+
+    @Test
+    public void servesEveryModelAtItsOwnAndTheSharedAddresses(TestContext context) {
+        Async async = context.async();
+        deploy(context, config(), 2, () ->
+            count(context, RepositoryAddress.of(COUNTRY, "count"), COUNTRY, () ->
+                count(context, RepositoryAddress.of(CITY, "count"), CITY, () ->
+                    count(context, RepositoryAddress.of("count"), CITY, async::complete)
+                )
+            )
+        );
+    }
+
+    @Test
+    public void servesOnlyTheConfiguredModels(TestContext context) {
+        Async async = context.async();
+        deploy(context, config().put("serve", new JsonArray().add(CITY)), 1, () ->
+            count(context, RepositoryAddress.of(CITY, "count"), CITY, () ->
+                countFails(context, RepositoryAddress.of(COUNTRY, "count"), COUNTRY, () ->
+                    // the shared addresses are left to the instances serving every model
+                    countFails(context, RepositoryAddress.of("count"), CITY, async::complete)
+                )
+            )
+        );
+    }
+
+    @Test
+    public void splitsTheModelsBetweenVerticles(TestContext context) {
+        Async async = context.async();
+        deploy(context, config().put("serve", new JsonArray().add(CITY)), 1, () ->
+            deploy(context, config().put("serve", new JsonArray().add(COUNTRY)).put("sharedAddresses", true), 1, () -> {
+                // both write to the same memory backend, so a country saved by one is seen by the other
+                DeliveryOptions options = new DeliveryOptions().addHeader("model", COUNTRY);
+                JsonObject country = new JsonObject().put("_id", "bo");
+                String save = RepositoryAddress.of(COUNTRY, "save");
+                String count = RepositoryAddress.of("count");
+                vertx.eventBus().send(save, country, options, context.asyncAssertSuccess((saved) ->
+                    vertx.eventBus().<JsonObject>send(count, new JsonObject(), options, context.asyncAssertSuccess((counted) -> {
+                        context.assertEquals(1L, counted.body().getLong("count"));
+                        count(context, RepositoryAddress.of(CITY, "count"), CITY, async::complete);
+                    }))
+                ));
+            })
+        );
+    }
+
+}
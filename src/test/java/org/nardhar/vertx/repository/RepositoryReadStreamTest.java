@@ -0,0 +1,206 @@
+package org.nardhar.vertx.repository;
+
+import io.vertx.core.DeploymentOptions;
+import io.vertx.core.Vertx;
+import io.vertx.core.eventbus.DeliveryOptions;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.streams.ReadStream;
+import io.vertx.ext.unit.Async;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.nardhar.vertx.eventbus.Deadline;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+@RunWith(VertxUnitRunner.class)
+public class RepositoryReadStreamTest {
+
+    public static class City implements Model {
+
+        static final String collection = "city";
+
+        private String id;
+        private String name;
+
+        @Override
+        public String getId() {
+            return id;
+        }
+
+        @Override
+        public void setId(String id) {
+            this.id = id;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+    }
+
+    private Vertx vertx;
+    private RepositorySender sender;
+    // credit messages sent to the repository, the first one with the query included
+    private AtomicInteger credits;
+    // deadline headers of the credit messages
+    private List<String> deadlines;
+
+    @Before
+    public void setUp(TestContext context) {
+        vertx = Vertx.vertx();
+        sender = vertx::eventBus;
+        credits = new AtomicInteger();
+        deadlines = new ArrayList<>();
+        vertx.eventBus().addInterceptor((sendContext) -> {
+            Object body = sendContext.message().body();
+            if (body instanceof JsonObject && ((JsonObject)body).containsKey("credit")) {
+                credits.incrementAndGet();
+                deadlines.add(sendContext.message().headers().get(Deadline.HEADER));
+            }
+            sendContext.next();
+        });
+
+        JsonObject config = new JsonObject()
+            .put("backend", "memory")
+            .put("models", new JsonArray().add(City.class.getName()));
+        vertx.deployVerticle(new RepositoryVerticle(), new DeploymentOptions().setConfig(config), context.asyncAssertSuccess());
+    }
+
+    @After
+    public void tearDown(TestContext context) {
+        vertx.close(context.asyncAssertSuccess());
+    }
+
+    private void insertCities(TestContext context, int count, Runnable then) {
+        List<City> cities = IntStream.range(0, count).mapToObj((i) -> {
+            City city = new City();
+            city.setName("city " + i);
+            return city;
+        }).collect(Collectors.toList());
+        sender.dbInsertMany(City.class, cities).setHandler(context.asyncAssertSuccess((inserted) -> then.run()));
+    }
+
+    @Test
+    public void streamsEveryModelInChunksAndEnds(TestContext context) {
+        Async async = context.async();
+        insertCities(context, 5, () -> {
+            List<String> names = new ArrayList<>();
+            ReadStream<City> stream = sender.dbStream(City.class, new JsonObject(), 2);
+            stream.exceptionHandler(context::fail);
+            stream.endHandler((v) -> {
+                context.assertEquals(5, names.size());
+                context.assertTrue(names.contains("city 0") && names.contains("city 4"));
+                // a credit for each of the chunks of 2, 2 and 1 models
+                context.assertEquals(3, credits.get());
+                async.complete();
+            });
+            stream.handler((city) -> names.add(city.getName()));
+        });
+    }
+
+    @Test
+    public void asksForEveryChunkWithTheDeadlineOfTheCaller(TestContext context) {
+        Async async = context.async();
+        insertCities(context, 5, () -> {
+            Deadline deadline = Deadline.in(60_000);
+            List<ReadStream<City>> created = new ArrayList<>();
+            Deadline.run(deadline, () -> created.add(sender.dbStream(City.class, new JsonObject(), 2)));
+
+            // started outside of the deadline, the stream keeps the one it was created with
+            ReadStream<City> stream = created.get(0);
+            stream.exceptionHandler(context::fail);
+            stream.endHandler((v) -> {
+                String at = String.valueOf(deadline.getAt());
+                context.assertEquals(Arrays.asList(at, at, at), deadlines);
+                async.complete();
+            });
+            stream.handler((city) -> context.assertEquals(deadline, Deadline.current()));
+        });
+    }
+
+    @Test
+    public void endsAfterAnEmptyLastChunk(TestContext context) {
+        Async async = context.async();
+        insertCities(context, 4, () -> {
+            AtomicInteger received = new AtomicInteger();
+            ReadStream<City> stream = sender.dbStream(City.class, new JsonObject(), 2);
+            stream.exceptionHandler(context::fail);
+            stream.endHandler((v) -> {
+                context.assertEquals(4, received.get());
+                async.complete();
+            });
+            stream.handler((city) -> received.incrementAndGet());
+        });
+    }
+
+    @Test
+    public void endsRightAwayWithoutModels(TestContext context) {
+        Async async = context.async();
+        ReadStream<City> stream = sender.dbStream(City.class, new JsonObject(), 2);
+        stream.exceptionHandler(context::fail);
+        stream.endHandler((v) -> async.complete());
+        stream.handler((city) -> context.fail("no model was expected"));
+    }
+
+    @Test
+    public void asksForNoChunkWhilePaused(TestContext context) {
+        Async async = context.async();
+        insertCities(context, 5, () -> {
+            AtomicInteger received = new AtomicInteger();
+            ReadStream<City> stream = sender.dbStream(City.class, new JsonObject(), 2);
+            stream.exceptionHandler(context::fail);
+            stream.endHandler((v) -> {
+                context.assertEquals(5, received.get());
+                async.complete();
+            });
+            stream.handler((city) -> {
+                if (received.incrementAndGet() == 3) {
+                    stream.pause();
+                    int creditsWhenPaused = credits.get();
+                    vertx.setTimer(100, (timerId) -> {
+                        // the rest of the second chunk is kept and no other one is requested
+                        context.assertEquals(3, received.get());
+                        context.assertEquals(creditsWhenPaused, credits.get());
+                        stream.resume();
+                    });
+                }
+            });
+        });
+    }
+
+    @Test
+    public void projectsEveryChunk(TestContext context) {
+        Async async = context.async();
+        insertCities(context, 3, () -> {
+            DeliveryOptions options = new DeliveryOptions()
+                .addHeader("model", City.class.getName())
+                .addHeader("fields", new JsonObject().put("name", 0).encode());
+            String address = RepositoryAddress.of(City.class.getName(), "stream");
+            JsonObject first = new JsonObject().put("query", new JsonObject()).put("credit", 1);
+            vertx.eventBus().<JsonArray>send(address, first, options, context.asyncAssertSuccess((chunk) -> {
+                context.assertFalse(chunk.body().getJsonObject(0).containsKey("name"));
+                // the credit for the next chunk is sent without the headers of the first message
+                chunk.<JsonArray>reply(new JsonObject().put("credit", 1), context.asyncAssertSuccess((next) -> {
+                    context.assertEquals(1, next.body().size());
+                    context.assertFalse(next.body().getJsonObject(0).containsKey("name"));
+                    async.complete();
+                }));
+            }));
+        });
+    }
+
+}
@@ -0,0 +1,199 @@
+package org.nardhar.vertx.repository;
+
+import io.vertx.core.DeploymentOptions;
+import io.vertx.core.Vertx;
+import io.vertx.core.eventbus.DeliveryOptions;
+import io.vertx.core.eventbus.EventBus;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.unit.Async;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.nardhar.vertx.eventbus.Deadline;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+@RunWith(VertxUnitRunner.class)
+public class RepositoryVerticleTest {
+
+    public static class Country implements Model {
+
+        static final String collection = "country";
+
+        private String id;
+        private String name;
+
+        @Override
+        public String getId() {
+            return id;
+        }
+
+        @Override
+        public void setId(String id) {
+            this.id = id;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+    }
+
+    private static final String MODEL = Country.class.getName();
+
+    private Vertx vertx;
+    private DeliveryOptions options;
+
+    @Before
+    public void setUp(TestContext context) {
+        vertx = Vertx.vertx();
+        options = new DeliveryOptions().addHeader("model", MODEL);
+
+        JsonObject config = new JsonObject()
+            .put("backend", "memory")
+            .put("memory", new JsonObject().put("name", "RepositoryVerticleTest"))
+            .put("models", new JsonArray().add(MODEL))
+            .put("cache", new JsonObject().put(MODEL, new JsonObject()
+                .put("size", 10)
+                .put("ttl", 60000)
+                .put("staleTtl", 60000)
+            ));
+        vertx.deployVerticle(new RepositoryVerticle(), new DeploymentOptions().setConfig(config), context.asyncAssertSuccess());
+    }
+
+    @After
+    public void tearDown(TestContext context) {
+        vertx.close(context.asyncAssertSuccess());
+    }
+
+    @Test
+    public void savingAnExistingDocumentEvictsItsCachedCopy(TestContext context) {
+        EventBus eventBus = vertx.eventBus();
+        Async async = context.async();
+
+        String save = RepositoryAddress.of(MODEL, "save");
+        String findOne = RepositoryAddress.of(MODEL, "findOne");
+        JsonObject byId = new JsonObject().put("_id", "bo");
+        JsonObject first = new JsonObject().put("_id", "bo").put("name", "Bolivia");
+        JsonObject second = new JsonObject().put("_id", "bo").put("name", "Plurinational State of Bolivia");
+
+        eventBus.<JsonObject>send(save, first, options, context.asyncAssertSuccess((inserted) ->
+            // the first findOne keeps the document in the cache
+            eventBus.<JsonObject>send(findOne, byId, options, context.asyncAssertSuccess((cached) -> {
+                context.assertEquals("Bolivia", cached.body().getString("name"));
+                // saving a document with an _id replaces it, mongo doesn't return its id then
+                eventBus.<JsonObject>send(save, second, options, context.asyncAssertSuccess((saved) -> {
+                    context.assertEquals("bo", saved.body().getString("id"));
+                    eventBus.<JsonObject>send(findOne, byId, options, context.asyncAssertSuccess((found) -> {
+                        context.assertEquals("Plurinational State of Bolivia", found.body().getString("name"));
+                        async.complete();
+                    }));
+                }));
+            }))
+        ));
+    }
+
+    @Test
+    public void publishesTheWriteBeforeReplyingIt(TestContext context) {
+        Async async = context.async();
+
+        // the consumer and the reply handler share a context, so they get their messages in order
+        vertx.runOnContext((v) -> {
+            EventBus eventBus = vertx.eventBus();
+            boolean[] published = new boolean[1];
+            eventBus.<JsonObject>consumer(RepositoryAddress.WRITTEN, (message) -> {
+                context.assertEquals(MODEL, message.body().getString("model"));
+                published[0] = true;
+            }).completionHandler(context.asyncAssertSuccess((registered) ->
+                eventBus.<JsonObject>send(
+                    RepositoryAddress.of(MODEL, "save"),
+                    new JsonObject().put("name", "Peru"),
+                    options,
+                    context.asyncAssertSuccess((saved) -> {
+                        context.assertTrue(published[0]);
+                        async.complete();
+                    })
+                )
+            ));
+        });
+    }
+
+    @Test
+    public void savingExistingModelsReplacesThem(TestContext context) {
+        Async async = context.async();
+        RepositorySender sender = vertx::eventBus;
+
+        Country bolivia = new Country();
+        bolivia.setName("Bolivia");
+        Country chile = new Country();
+        chile.setName("Chile");
+
+        sender.dbSaveAll(Country.class, Arrays.asList(bolivia, chile)).setHandler(context.asyncAssertSuccess((inserted) -> {
+            String boliviaId = bolivia.getId();
+            context.assertNotNull(boliviaId);
+            bolivia.setName("Plurinational State of Bolivia");
+
+            sender.dbSaveAll(Country.class, Arrays.asList(bolivia, chile)).setHandler(context.asyncAssertSuccess((saved) -> {
+                context.assertEquals(boliviaId, bolivia.getId());
+                sender.dbCount(Country.class, new JsonObject()).setHandler(context.asyncAssertSuccess((count) -> {
+                    context.assertEquals(2L, count);
+                    JsonObject byId = new JsonObject().put("_id", boliviaId);
+                    sender.dbFindOne(Country.class, byId).setHandler(context.asyncAssertSuccess((found) -> {
+                        context.assertEquals("Plurinational State of Bolivia", found.getName());
+                        async.complete();
+                    }));
+                }));
+            }));
+        }));
+    }
+
+    @Test
+    public void findsPagesWithTheDeadlineOfTheCaller(TestContext context) {
+        Async async = context.async();
+        RepositorySender sender = vertx::eventBus;
+        List<String> deadlines = new ArrayList<>();
+        vertx.eventBus().addInterceptor((sendContext) -> {
+            if (sendContext.message().address().equals(RepositoryAddress.of(MODEL, "findPage"))) {
+                deadlines.add(sendContext.message().headers().get(Deadline.HEADER));
+            }
+            sendContext.next();
+        });
+
+        List<Country> countries = Stream.of("Bolivia", "Chile", "Peru").map((name) -> {
+            Country country = new Country();
+            country.setName(name);
+            return country;
+        }).collect(Collectors.toList());
+        JsonObject byName = new JsonObject().put("name", 1);
+
+        sender.dbInsertMany(Country.class, countries).setHandler(context.asyncAssertSuccess((inserted) -> {
+            Deadline deadline = Deadline.in(60_000);
+            Deadline.run(deadline, () -> sender.dbFindPage(Country.class, new JsonObject(), byName, 2, null)
+                .setHandler(context.asyncAssertSuccess((first) -> {
+                    context.assertEquals(2, first.getItems().size());
+                    context.assertNotNull(first.getCursor());
+                    // the reply keeps the deadline, so the next page is asked for with it too
+                    sender.dbFindPage(Country.class, new JsonObject(), byName, 2, first.getCursor())
+                        .setHandler(context.asyncAssertSuccess((second) -> {
+                            context.assertEquals("Peru", second.getItems().get(0).getName());
+                            String at = String.valueOf(deadline.getAt());
+                            context.assertEquals(Arrays.asList(at, at), deadlines);
+                            async.complete();
+                        }));
+                })));
+        }));
+    }
+
+}
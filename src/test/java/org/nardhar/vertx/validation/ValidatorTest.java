@@ -0,0 +1,103 @@
+package org.nardhar.vertx.validation;
+
+import org.junit.Test;
+import org.nardhar.vertx.exception.FieldError;
+import org.nardhar.vertx.exception.ValidationException;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+public class ValidatorTest {
+
+    public static class Book {
+        @NotBlank
+        String title;
+        @Size(min = 1, max = 3)
+        List<String> tags = Collections.singletonList("fiction");
+        @Min(1450)
+        @Max(2100)
+        int year = 2000;
+        @Min(0)
+        BigDecimal price;
+        @Pattern(regexp = "[0-9-]{10,17}", code = "book.isbn.error")
+        String isbn;
+    }
+
+    public static class Novel extends Book {
+        @NotNull
+        String genre = "drama";
+    }
+
+    public static class Invalid {
+        @Min(0)
+        String count;
+    }
+
+    private Book book(String title) {
+        Book book = new Book();
+        book.title = title;
+        return book;
+    }
+
+    private List<String> fields(ValidationException errors) {
+        return errors.getErrors().stream().map(FieldError::getField).collect(Collectors.toList());
+    }
+
+    @Test
+    public void validObjectsHaveNoErrors() {
+        Book book = book("Dune");
+        book.price = new BigDecimal("9.99");
+        book.isbn = "978-0441172719";
+
+        assertNull(Validator.of(Book.class).validate(book));
+        Novel novel = new Novel();
+        novel.title = "Emma";
+        assertNull(Validator.of(Novel.class).validate(novel));
+    }
+
+    @Test
+    public void collectsTheErrorsOfEveryField() {
+        Novel novel = new Novel();
+        novel.title = "  ";
+        novel.tags = Arrays.asList("a", "b", "c", "d");
+        novel.year = 3000;
+        novel.price = new BigDecimal("-1");
+        novel.isbn = "none";
+        novel.genre = null;
+
+        ValidationException errors = Validator.of(Novel.class).validate(novel);
+
+        assertEquals(Arrays.asList("title", "tags", "year", "price", "isbn", "genre"), fields(errors));
+        FieldError size = errors.getErrors().get(1);
+        assertEquals("validation.size.error", size.getCode());
+        assertArrayEquals(new Object[] {1, 3}, size.getArgs());
+        assertEquals("book.isbn.error", errors.getErrors().get(4).getCode());
+    }
+
+    @Test
+    public void prefixesTheErrorsOfABatchWithTheirIndex() {
+        ValidationException errors = Validator.validateAll(Arrays.asList(book("Dune"), book(null), book("")));
+
+        assertEquals(Arrays.asList("1.title", "2.title"), fields(errors));
+        assertNull(Validator.validateAll(Arrays.asList(book("Dune"), book("Emma"))));
+    }
+
+    @Test
+    public void rejectsConstraintsOnUnsupportedTypes() {
+        try {
+            Validator.of(Invalid.class);
+            fail("@Min can't be on a String");
+        } catch (IllegalArgumentException ex) {
+            assertEquals(true, ex.getMessage().contains("Invalid.count"));
+        }
+    }
+
+}
@@ -0,0 +1,32 @@
+package org.nardhar.vertx.web;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ETagTest {
+
+    private final String etag = ETag.of("[{\"id\":\"1\"}]".getBytes(StandardCharsets.UTF_8));
+
+    @Test
+    public void dependsOnlyOnTheBody() {
+        assertEquals(etag, ETag.of("[{\"id\":\"1\"}]".getBytes(StandardCharsets.UTF_8)));
+        assertNotEquals(etag, ETag.of("[{\"id\":\"2\"}]".getBytes(StandardCharsets.UTF_8)));
+        assertTrue(etag.startsWith("\"") && etag.endsWith("\""));
+    }
+
+    @Test
+    public void matchesIfNoneMatchLists() {
+        assertTrue(ETag.matches(etag, etag));
+        assertTrue(ETag.matches("\"other\", W/" + etag, etag));
+        assertTrue(ETag.matches("*", etag));
+        assertFalse(ETag.matches("\"other\"", etag));
+        assertFalse(ETag.matches(null, etag));
+    }
+
+}
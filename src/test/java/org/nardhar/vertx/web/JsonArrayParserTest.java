@@ -0,0 +1,139 @@
+package org.nardhar.vertx.web;
+
+import io.vertx.core.Handler;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpServerRequest;
+import io.vertx.core.http.HttpServerResponse;
+import io.vertx.core.http.HttpVersion;
+import io.vertx.ext.web.RoutingContext;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class JsonArrayParserTest {
+
+    public static class Item {
+        public String name;
+        public List<Integer> counts;
+    }
+
+    private Handler<Buffer> bodyHandler;
+    private Handler<Void> bodyEndHandler;
+    private Integer statusCode;
+    private boolean requestPaused;
+    private RoutingContext ctx;
+
+    private List<Item> items;
+    private Throwable failure;
+    private boolean ended;
+
+    @Before
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        items = new ArrayList<>();
+        failure = null;
+        ended = false;
+        statusCode = null;
+        requestPaused = false;
+
+        HttpServerResponse response = proxy(HttpServerResponse.class, (name, args) -> {
+            if (name.equals("setStatusCode")) {
+                statusCode = (Integer)args[0];
+            }
+            return name.equals("ended") ? (Object)(statusCode != null) : null;
+        });
+        HttpServerRequest request = proxy(HttpServerRequest.class, (name, args) -> {
+            if (name.equals("handler")) {
+                bodyHandler = (Handler<Buffer>)args[0];
+            } else if (name.equals("endHandler")) {
+                bodyEndHandler = (Handler<Void>)args[0];
+            } else if (name.equals("pause")) {
+                requestPaused = true;
+            } else if (name.equals("resume")) {
+                requestPaused = false;
+            } else if (name.equals("version")) {
+                return HttpVersion.HTTP_2;
+            } else if (name.equals("response")) {
+                return response;
+            }
+            return null;
+        });
+        ctx = proxy(RoutingContext.class, (name, args) -> name.equals("request") ? request : response);
+    }
+
+    private interface Call {
+        Object call(String name, Object[] args);
+    }
+
+    /**
+     * Implements an interface with a function of the method name, methods that return the interface return the proxy
+     */
+    @SuppressWarnings("unchecked")
+    private <T> T proxy(Class<T> type, Call call) {
+        return (T)Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] {type}, (proxy, method, args) -> {
+            Object result = call.call(method.getName(), args);
+            return result == null && method.getReturnType().isInstance(proxy) ? proxy : result;
+        });
+    }
+
+    private void parse(long maxSize, String... chunks) {
+        new JsonArrayParser<>(ctx, Item.class, maxSize)
+            .exceptionHandler((ex) -> failure = ex)
+            .endHandler((v) -> ended = true)
+            .handler(items::add);
+        for (String chunk : chunks) {
+            bodyHandler.handle(Buffer.buffer(chunk));
+        }
+        bodyEndHandler.handle(null);
+    }
+
+    @Test
+    public void parsesElementsSplitAcrossChunks() {
+        parse(1024, "[{\"name\":\"fi", "rst\",\"counts\":[1,", "2]} , {\"name\":\"second\"}", "]");
+
+        assertNull(failure);
+        assertTrue(ended);
+        assertEquals(2, items.size());
+        assertEquals("first", items.get(0).name);
+        assertEquals(2, items.get(0).counts.size());
+        assertEquals("second", items.get(1).name);
+    }
+
+    @Test
+    public void pausesTheRequestUntilItHasAHandler() {
+        JsonArrayParser<Item> parser = new JsonArrayParser<>(ctx, Item.class, 1024);
+        assertTrue(requestPaused);
+        assertNull(bodyHandler);
+
+        parser.handler(items::add);
+        assertFalse(requestPaused);
+        assertNotNull(bodyHandler);
+    }
+
+    @Test
+    public void failsIncompleteArrays() {
+        parse(1024, "[{\"name\":\"first\"}, {\"name\":");
+
+        assertNotNull(failure);
+        assertEquals(1, items.size());
+    }
+
+    @Test
+    public void rejectsBodiesLargerThanTheMaximum() {
+        parse(16, "[{\"name\":\"first\"},", "{\"name\":\"second\"}]");
+
+        assertNotNull(failure);
+        assertEquals(Integer.valueOf(413), statusCode);
+        assertTrue(!ended);
+    }
+
+}
@@ -0,0 +1,64 @@
+package org.nardhar.vertx.web;
+
+import io.vertx.core.Future;
+import io.vertx.core.buffer.Buffer;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class ResponseCacheTest {
+
+    private final Set<String> models = Collections.singleton("org.app.Book");
+    private final AtomicInteger calls = new AtomicInteger();
+
+    private Future<Buffer> produce(Future<Buffer> pending) {
+        calls.incrementAndGet();
+        return pending;
+    }
+
+    @Test
+    public void sharesTheRunningCallAndCachesItsResponse() {
+        ResponseCache cache = new ResponseCache(10, 100);
+        Future<Buffer> pending = Future.future();
+
+        Future<ResponseCache.Entry> first = cache.get("/books", models, () -> produce(pending), 0);
+        Future<ResponseCache.Entry> second = cache.get("/books", models, () -> produce(pending), 0);
+        assertSame(first, second);
+        assertFalse(first.isComplete());
+
+        pending.complete(Buffer.buffer("[]"));
+        assertEquals("[]", first.result().getBody().toString());
+
+        assertTrue(cache.get("/books", models, () -> produce(Future.future()), 99).isComplete());
+        assertEquals(1, calls.get());
+
+        // expired
+        assertFalse(cache.get("/books", models, () -> produce(Future.future()), 100).isComplete());
+        assertEquals(2, calls.get());
+        assertEquals(Long.valueOf(1), cache.stats().getLong("coalesced"));
+    }
+
+    @Test
+    public void dropsResponsesOfWrittenModels() {
+        ResponseCache cache = new ResponseCache(10, 1000);
+        cache.get("/books", models, () -> produce(Future.succeededFuture(Buffer.buffer("[]"))), 0);
+        Future<Buffer> pending = Future.future();
+        cache.get("/books?page=2", models, () -> produce(pending), 0);
+
+        cache.invalidate("org.app.Book");
+
+        // the running call was detached, so its response is not stored
+        pending.complete(Buffer.buffer("[]"));
+        assertEquals(Long.valueOf(0), cache.stats().getLong("size"));
+        assertFalse(cache.get("/books?page=2", models, () -> produce(Future.future()), 0).isComplete());
+        assertEquals(3, calls.get());
+    }
+
+}
@@ -1,17 +1,106 @@
 package org.nardhar.vertx.web;
 
+import io.vertx.core.DeploymentOptions;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.unit.Async;
 import io.vertx.ext.unit.TestContext;
 import io.vertx.ext.unit.junit.VertxUnitRunner;
+import org.junit.After;
+import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.nardhar.vertx.eventbus.Deadline;
 
 @RunWith(VertxUnitRunner.class)
 public class WebVerticleTest {
 
+    public static class ForwardController extends AbstractController {
+        @Override
+        public void init() {
+            post("/forward", (ctx) -> getJsonBody(ctx).compose((body) -> busGetObject("test.forward", body)));
+        }
+    }
+
+    private Vertx vertx;
+
+    @Before
+    public void setUp() {
+        vertx = Vertx.vertx();
+    }
+
+    @After
+    public void tearDown(TestContext context) {
+        vertx.close(context.asyncAssertSuccess());
+    }
 
     @Test
     public void canGetStatus(TestContext context) {
 
     }
 
+    @Test
+    public void startsWithTheServerOptions(TestContext context) {
+        JsonObject config = new JsonObject()
+            .put("port", 0)
+            .put("controllers", new JsonArray())
+            .put("server", new JsonObject()
+                .put("tcpNoDelay", true)
+                .put("idleTimeout", 60)
+                .put("acceptBacklog", 256)
+                .put("http2", new JsonObject().put("maxConcurrentStreams", 50)))
+            .put("compression", new JsonObject().put("level", 4));
+
+        vertx.deployVerticle(
+            WebVerticle.class.getName(),
+            new DeploymentOptions().setConfig(config).setInstances(2),
+            context.asyncAssertSuccess()
+        );
+    }
+
+    @Test
+    public void repliesTheResponseCacheStats(TestContext context) {
+        JsonObject config = new JsonObject()
+            .put("port", 0)
+            .put("controllers", new JsonArray())
+            .put("responseCache", new JsonObject().put("size", 10).put("ttl", 1000));
+
+        DeploymentOptions options = new DeploymentOptions().setConfig(config);
+        vertx.deployVerticle(WebVerticle.class.getName(), options, context.asyncAssertSuccess((id) ->
+            vertx.eventBus().<JsonObject>send(WebVerticle.RESPONSE_CACHE_STATS, null, context.asyncAssertSuccess((stats) -> {
+                context.assertEquals(0, stats.body().getInteger("size"));
+                context.assertEquals(0L, stats.body().getLong("hits"));
+            }))
+        ));
+    }
+
+    @Test
+    public void sendsTheBodyWithTheDeadlineOfTheRequest(TestContext context) {
+        JsonObject config = new JsonObject()
+            .put("port", 8931)
+            .put("controllers", new JsonArray().add(ForwardController.class.getName()))
+            .put("requestTimeout", 5000);
+
+        // replies the deadline it got with the forwarded body
+        vertx.eventBus().<JsonObject>consumer("test.forward", (message) ->
+            message.reply(message.body().copy().put("deadline", message.headers().get(Deadline.HEADER)))
+        );
+
+        Async async = context.async();
+        DeploymentOptions options = new DeploymentOptions().setConfig(config);
+        vertx.deployVerticle(WebVerticle.class.getName(), options, context.asyncAssertSuccess((id) ->
+            vertx.createHttpClient().post(8931, "localhost", "/forward", (response) -> {
+                context.assertEquals(201, response.statusCode());
+                response.bodyHandler((body) -> {
+                    JsonObject reply = body.toJsonObject();
+                    context.assertEquals("Lima", reply.getString("name"));
+                    context.assertNotNull(reply.getString("deadline"));
+                    async.complete();
+                });
+            }).end(Buffer.buffer(new JsonObject().put("name", "Lima").encode()))
+        ));
+    }
+
 }